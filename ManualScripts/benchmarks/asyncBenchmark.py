@@ -0,0 +1,92 @@
+import argparse
+import random
+import statistics
+import threading
+import time
+from concurrent.futures import ThreadPoolExecutor
+
+import requests
+
+# Measures detail lookup latency while a burst of slow list queries is running, on the synchronous endpoints
+# (/api/v1/book) and then on the async ones (/api/v1/async/book), and reports the tail latency of both.
+# Start the server with few request threads, so the burst can exhaust them, and without the book cache:
+#   java -jar target/demo-0.0.1-SNAPSHOT.jar --server.tomcat.threads.max=50 --book.cache.maximum-size=0
+# On the synchronous endpoints the lookups queue for a Tomcat thread behind the listings; on the async ones
+# they get the lookup lane of the DatabaseExecutor, and listings beyond its queue get a 503 instead.
+# Example: python asyncBenchmark.py --list-clients 200 --lookup-clients 20 --duration 60
+
+SERVER_URL = 'http://localhost:8080'
+ENDPOINTS = {'sync': '/api/v1/book', 'async': '/api/v1/async/book'}
+
+def fetch_book_ids(session, count):
+    response = session.get(SERVER_URL + ENDPOINTS['sync'], params={'limit': count})
+    response.raise_for_status()
+    return [book['id'] for book in response.json()]
+
+def run_clients(request, clients, deadline, results, lock):
+    session = requests.Session()
+    while time.monotonic() < deadline:
+        start = time.perf_counter()
+        try:
+            status = request(session).status_code
+        except requests.RequestException:
+            status = None
+        elapsed = time.perf_counter() - start
+        with lock:
+            results.append((status, elapsed))
+
+def report(name, results, duration):
+    latencies = sorted(elapsed for status, elapsed in results if status == 200)
+    rejected = sum(1 for status, _ in results if status == 503)
+    errors = len(results) - len(latencies) - rejected
+    if not latencies:
+        print(f"{name}: no successful requests, {rejected} rejected, {errors} errors")
+        return
+    def percentile(p):
+        return latencies[min(len(latencies) - 1, int(len(latencies) * p))] * 1000
+    print(f"{name}: {len(latencies) / duration:.0f} req/s, {rejected} rejected (503), {errors} errors, "
+          f"p50 {percentile(0.50):.1f} ms, p95 {percentile(0.95):.1f} ms, p99 {percentile(0.99):.1f} ms, "
+          f"max {latencies[-1] * 1000:.1f} ms, mean {statistics.mean(latencies) * 1000:.1f} ms")
+
+def run_mode(mode, book_ids, list_params, list_clients, lookup_clients, duration):
+    base_url = SERVER_URL + ENDPOINTS[mode]
+    list_results, lookup_results = [], []
+    lock = threading.Lock()
+    deadline = time.monotonic() + duration
+
+    def list_request(session):
+        return session.get(base_url, params=list_params)
+
+    def lookup_request(session):
+        return session.get(f"{base_url}/{random.choice(book_ids)}")
+
+    with ThreadPoolExecutor(max_workers=list_clients + lookup_clients) as executor:
+        for _ in range(list_clients):
+            executor.submit(run_clients, list_request, list_clients, deadline, list_results, lock)
+        for _ in range(lookup_clients):
+            executor.submit(run_clients, lookup_request, lookup_clients, deadline, lookup_results, lock)
+
+    report(f"[{mode}] GET {ENDPOINTS[mode]}/{{id}} during the burst", lookup_results, duration)
+    report(f"[{mode}] GET {ENDPOINTS[mode]} (slow listing)", list_results, duration)
+
+def benchmark(list_clients, lookup_clients, duration, list_limit):
+    book_ids = fetch_book_ids(requests.Session(), 1000)
+    if not book_ids:
+        print("No books to benchmark against, load some with csvPostRequests.py first")
+        return
+
+    # A large page sorted on an unindexed column, so every listing is a full sort of the catalog
+    list_params = {'limit': list_limit, 'sort_by': 'word_count', 'sorting_order': 'DESC'}
+    print(f"{list_clients} clients listing {list_limit} books, {lookup_clients} clients looking up by id, "
+          f"{duration}s per mode")
+    for mode in ENDPOINTS:
+        run_mode(mode, book_ids, list_params, list_clients, lookup_clients, duration)
+
+if __name__ == "__main__":
+    parser = argparse.ArgumentParser()
+    parser.add_argument('--list-clients', type=int, default=200, help="clients sending slow list queries")
+    parser.add_argument('--lookup-clients', type=int, default=20, help="clients looking books up by id")
+    parser.add_argument('--duration', type=int, default=30, help="seconds per mode")
+    parser.add_argument('--list-limit', type=int, default=5000, help="books per slow listing")
+    args = parser.parse_args()
+    benchmark(args.list_clients, args.lookup_clients, args.duration, args.list_limit)
@@ -0,0 +1,84 @@
+import argparse
+import random
+import statistics
+import threading
+import time
+from concurrent.futures import ThreadPoolExecutor
+
+import requests
+
+# Measures throughput and latency of the list and detail endpoints under concurrent load.
+# Run it once against each threading mode and compare the two reports:
+#   Platform threads: java -jar target/demo-0.0.1-SNAPSHOT.jar
+#   Virtual threads:  java -jar target/demo-0.0.1-SNAPSHOT.jar --spring.threads.virtual.enabled=true   (Java 21+)
+# Add --book.cache.maximum-size=0 to both runs so detail requests go to the database instead of the book cache.
+# Example: python threadingBenchmark.py --label virtual --concurrency 400 --duration 60
+
+BASE_URL = 'http://localhost:8080/api/v1/book'
+
+def fetch_book_ids(session, count):
+    response = session.get(BASE_URL, params={'limit': count})
+    response.raise_for_status()
+    return [book['id'] for book in response.json()]
+
+def run_load(name, request, concurrency, duration):
+    latencies = []
+    errors = 0
+    lock = threading.Lock()
+    deadline = time.monotonic() + duration
+
+    def worker():
+        nonlocal errors
+        session = requests.Session()
+        while time.monotonic() < deadline:
+            start = time.perf_counter()
+            try:
+                ok = request(session).status_code == 200
+            except requests.RequestException:
+                ok = False
+            elapsed = time.perf_counter() - start
+            with lock:
+                if ok:
+                    latencies.append(elapsed)
+                else:
+                    errors += 1
+
+    with ThreadPoolExecutor(max_workers=concurrency) as executor:
+        for _ in range(concurrency):
+            executor.submit(worker)
+
+    report(name, latencies, errors, duration)
+
+def report(name, latencies, errors, duration):
+    if not latencies:
+        print(f"{name}: no successful requests, {errors} errors")
+        return
+    latencies.sort()
+    def percentile(p):
+        return latencies[min(len(latencies) - 1, int(len(latencies) * p))] * 1000
+    print(f"{name}: {len(latencies) / duration:.0f} req/s, {errors} errors, "
+          f"p50 {percentile(0.50):.1f} ms, p95 {percentile(0.95):.1f} ms, p99 {percentile(0.99):.1f} ms, "
+          f"mean {statistics.mean(latencies) * 1000:.1f} ms")
+
+def benchmark(label, concurrency, duration, page_size):
+    book_ids = fetch_book_ids(requests.Session(), 1000)
+    if not book_ids:
+        print("No books to benchmark against, load some with csvPostRequests.py first")
+        return
+
+    print(f"[{label}] {concurrency} concurrent clients, {duration}s per endpoint")
+    run_load(f"[{label}] GET /api/v1/book?limit={page_size}",
+             lambda session: session.get(BASE_URL, params={'limit': page_size}),
+             concurrency, duration)
+    run_load(f"[{label}] GET /api/v1/book/{{id}}",
+             lambda session: session.get(f"{BASE_URL}/{random.choice(book_ids)}"),
+             concurrency, duration)
+
+if __name__ == "__main__":
+    parser = argparse.ArgumentParser()
+    parser.add_argument('--label', default='run', help="name for this run in the report, e.g. platform or virtual")
+    parser.add_argument('--concurrency', type=int, default=200)
+    parser.add_argument('--duration', type=int, default=30, help="seconds per endpoint")
+    parser.add_argument('--page-size', type=int, default=50)
+    args = parser.parse_args()
+    benchmark(args.label, args.concurrency, args.duration, args.page_size)
@@ -0,0 +1,72 @@
+-- Compares the old strpos/citext search predicate with the trigram-indexed LIKE predicate
+-- on a synthetic 1M row copy of the book table.
+-- Run against a scratch database, e.g.: psql -d aml_bench -f trigramSearchBenchmark.sql
+
+create extension if not exists citext;
+create extension if not exists pg_trgm;
+
+drop table if exists book_benchmark;
+
+create table book_benchmark
+(
+    id             uuid         not null primary key,
+    work_title     varchar(100) not null,
+    primary_author varchar(100) not null,
+    year_published int,
+    word_count     int
+);
+
+insert into book_benchmark (id, work_title, primary_author, year_published, word_count)
+select gen_random_uuid(),
+       'The ' || initcap(substr(md5(i::text), 1, 12)) || ' Chronicles',
+       'Author ' || initcap(substr(md5((i % 50000)::text), 1, 10)),
+       1500 + (i % 525),
+       10000 + (i % 400000)
+from generate_series(1, 1000000) as i;
+
+analyze book_benchmark;
+
+\timing on
+
+\echo '--- Before: strpos/citext predicate, no index can serve it (expect Seq Scan)'
+explain (analyze, buffers)
+select id, work_title, primary_author
+from book_benchmark
+where strpos(work_title::citext, 'a3f9c'::citext) > 0;
+
+\echo '--- Before: lower() LIKE predicate without the trigram index (expect Seq Scan)'
+explain (analyze, buffers)
+select id, work_title, primary_author
+from book_benchmark
+where lower(work_title) like '%a3f9c%';
+
+-- Same indexes as db/migration/V2__book_trigram_search.sql
+create index book_benchmark_work_title_trgm_idx
+    on book_benchmark using gin (lower(work_title) gin_trgm_ops);
+create index book_benchmark_primary_author_trgm_idx
+    on book_benchmark using gin (lower(primary_author) gin_trgm_ops);
+
+analyze book_benchmark;
+
+\echo '--- After: lower() LIKE predicate with the trigram index (expect Bitmap Index Scan)'
+explain (analyze, buffers)
+select id, work_title, primary_author
+from book_benchmark
+where lower(work_title) like '%a3f9c%';
+
+\echo '--- After: title and author filters combined (expect BitmapAnd or a single Bitmap Index Scan)'
+explain (analyze, buffers)
+select id, work_title, primary_author
+from book_benchmark
+where lower(primary_author) like '%b7e%'
+  and lower(work_title) like '%a3f9c%';
+
+\echo '--- Patterns shorter than three characters have no trigrams and still scan'
+explain (analyze, buffers)
+select id, work_title, primary_author
+from book_benchmark
+where lower(work_title) like '%a3%';
+
+\timing off
+
+drop table book_benchmark;
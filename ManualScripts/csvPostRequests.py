@@ -1,31 +1,29 @@
 import csv
 import requests
 
-# POSTs each row in a CSV file
+# POSTs a whole CSV file to the batch endpoint in one request
 # Use this after scraping info into a CSV
-# To-DO: Either here or in the backend, make sure you are not duplicating existing values
+# The backend skips rows whose title and author already exist (or repeat within the file)
 
 def send_post_requests():
     csv_file = 'books.csv'
-    endpoint = 'http://localhost:8080/api/v1/book'
+    endpoint = 'http://localhost:8080/api/v1/book/batch'
 
-    with open(csv_file, mode='r', newline='', encoding='utf-8') as file:
-        reader = csv.DictReader(file)
+    with open(csv_file, mode='rb') as file:
+        response = requests.post(endpoint, data=file, headers={'Content-Type': 'text/csv'})
 
-        for row in reader:
-            payload = {
-                'work_title': row['work_title'],
-                'primary_author': row['primary_author'],
-                'year_published': row['year_published'],
-                'word_count': row['word_count']
-            }
+    if response.status_code != 200:
+        print(f"Failed to send batch POST request: {response.status_code}")
+        return
 
-            response = requests.post(endpoint, json=payload)
-
-            if response.status_code == 200:
-                print(f"Successfully sent POST request for '{row['work_title']}'")
-            else:
-                print(f"Failed to send POST request for '{row['work_title']}'")
+    for result in response.json():
+        title = result.get('work_title')
+        if result['status'] == 'INSERTED':
+            print(f"Added '{title}'")
+        elif result['status'] == 'DUPLICATE':
+            print(f"Skipped '{title}' (already exists)")
+        else:
+            print(f"Invalid row {result['index'] + 1}: '{title}'")
 
 if __name__ == "__main__":
-    send_post_requests()
\ No newline at end of file
+    send_post_requests()
@@ -0,0 +1,49 @@
+package com.example.aml.api;
+
+import com.example.aml.dto.BookDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Serializes a GET /api/v1/book response body with an ObjectMapper configured the way Spring MVC's is
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookListSerializationBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int rowCount;
+
+    private final ObjectWriter bookListWriter = Jackson2ObjectMapperBuilder.json().build().writer();
+    private List<BookDTO> books;
+
+    @Setup
+    public void setUp() {
+        books = IntStream.range(0, rowCount)
+                .mapToObj(i -> new BookDTO(
+                        UUID.randomUUID(),
+                        "Work Title " + i,
+                        "Primary Author " + i % 500,
+                        1800 + i % 200,
+                        50000 + i,
+                        new String[]{"Fiction", "Classic"}))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return bookListWriter.writeValueAsBytes(books);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.aml.dao;
+
+import com.example.aml.model.Book;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Maps one book row. H2's SimpleResultSet stands in for the driver's ResultSet: it is an in-memory
+// implementation, so unlike a Mockito mock it doesn't add stubbing overhead to every getter call.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BookRowMapperBenchmark {
+    private SimpleResultSet resultSet;
+
+    @Setup
+    public void setUp() throws SQLException {
+        resultSet = new SimpleResultSet();
+        resultSet.addColumn("id", Types.VARCHAR, 36, 0);
+        resultSet.addColumn("work_title", Types.VARCHAR, 100, 0);
+        resultSet.addColumn("primary_author", Types.VARCHAR, 100, 0);
+        resultSet.addColumn("year_published", Types.INTEGER, 10, 0);
+        resultSet.addColumn("word_count", Types.INTEGER, 10, 0);
+        resultSet.addColumn("picture_id", Types.OTHER, 0, 0);
+        resultSet.addColumn("created_at", Types.DATE, 0, 0);
+        resultSet.addColumn("updated_at", Types.DATE, 0, 0);
+        resultSet.addColumn("genres", Types.ARRAY, 0, 0);
+        Date today = new Date(System.currentTimeMillis());
+        resultSet.addRow(
+                UUID.randomUUID().toString(),
+                "Pride and Prejudice",
+                "Jane Austen",
+                1813,
+                122189,
+                UUID.randomUUID(),
+                today,
+                today,
+                new Object[]{"Romance", "Classic", "Satire"});
+        resultSet.next();
+    }
+
+    @Benchmark
+    public Book mapRow() throws SQLException {
+        return BookDataAccessService.bookRowMapper.mapRow(resultSet, 0);
+    }
+}
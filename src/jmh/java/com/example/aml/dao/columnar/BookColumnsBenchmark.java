@@ -0,0 +1,70 @@
+package com.example.aml.dao.columnar;
+
+import com.example.aml.dao.query.BookQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Timestamp;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Filters the columnar catalog on author substring, year range and genre, once on the calling thread and once
+// split across the scan pool, to find where book.columnar.parallel-scan-threshold should sit
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookColumnsBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    private int rowCount;
+
+    private final ForkJoinPool scanPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final BookQuery query = BookQuery.builder()
+            .primaryAuthor("author 4")
+            .yearPublishedLowerLimit(1850)
+            .genresAny(List.of("Classic"))
+            .build();
+    private BookColumns columns;
+
+    @Setup
+    public void setUp() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        columns = new BookColumns(IntStream.range(0, rowCount)
+                .mapToObj(i -> new BookColumns.Row(
+                        UUID.randomUUID(),
+                        "Work Title " + i,
+                        "Primary Author " + i % 500,
+                        1800 + i % 200,
+                        50000 + i,
+                        null,
+                        now,
+                        now,
+                        i % 3 == 0 ? new String[]{"Fiction", "Classic"} : new String[]{"Poetry"}))
+                .toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        scanPool.shutdown();
+    }
+
+    @Benchmark
+    public BitSet sequentialScan() {
+        return columns.matchingRows(query, null, scanPool, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public BitSet parallelScan() {
+        return columns.matchingRows(query, null, scanPool, 0);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.aml.mapper;
+
+import com.example.aml.dto.BookDTO;
+import com.example.aml.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BookDTOMapperBenchmark {
+    private final BookDTOMapper bookDTOMapper = new BookDTOMapper();
+    private final Book book = new Book(
+            UUID.randomUUID(),
+            "Pride and Prejudice",
+            "Jane Austen",
+            1813,
+            122189,
+            UUID.randomUUID(),
+            new Date(),
+            new Date(),
+            new String[]{"Romance", "Classic", "Satire"});
+
+    @Benchmark
+    public BookDTO apply() {
+        return bookDTOMapper.apply(book);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.aml.service;
+
+import com.example.aml.dao.query.BookQueryCompiler;
+import com.example.aml.dao.query.CompiledBookQuery;
+import com.example.aml.dao.query.SqlDialect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The per-request string handling and query building behind GET /api/v1/book
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BookServiceBenchmark {
+    private final BookQueryCompiler bookQueryCompiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+    private final Map<String, String> filterParams = Map.of(
+            "primary_author", "Jane%20Austen",
+            "word_count_lower_limit", "50000",
+            "year_published_upper_limit", "1900",
+            "sort_by", "year_published",
+            "sorting_order", "DESC");
+
+    @Benchmark
+    public String prepareStringPlain() {
+        return BookService.prepareString("Pride and Prejudice");
+    }
+
+    @Benchmark
+    public String prepareStringEncoded() {
+        return BookService.prepareString("Alice%27s%20Adventures%20in%20Wonderland");
+    }
+
+    @Benchmark
+    public String prepareStringWithQuotes() {
+        return BookService.prepareString("Howl's Moving Castle");
+    }
+
+    // Request parameters to SQL text and bind arguments, as getBooks does before touching the database
+    @Benchmark
+    public CompiledBookQuery buildQuery() {
+        return bookQueryCompiler.compile(BookService.toBookQuery(filterParams));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.aml.api;
+
+import com.example.aml.dao.cache.BookCache;
+import com.example.aml.dao.cache.BookCacheStatistics;
+import com.example.aml.dao.query.BookQueryCompiler;
+import com.example.aml.dao.query.QueryShapeStatistics;
+import com.example.aml.service.CoverBackfillService;
+import com.example.aml.service.CoverBackfillStatus;
+import com.example.aml.service.CoverFetchExecutor;
+import com.example.aml.service.CoverFetchStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RequestMapping("api/v1/admin")
+@RestController
+public class AdminController {
+    private final BookQueryCompiler bookQueryCompiler;
+    private final BookCache bookCache;
+    private final CoverFetchExecutor coverFetchExecutor;
+    private final CoverBackfillService coverBackfillService;
+
+    @Autowired
+    public AdminController(
+            BookQueryCompiler bookQueryCompiler,
+            BookCache bookCache,
+            CoverFetchExecutor coverFetchExecutor,
+            CoverBackfillService coverBackfillService) {
+        this.bookQueryCompiler = bookQueryCompiler;
+        this.bookCache = bookCache;
+        this.coverFetchExecutor = coverFetchExecutor;
+        this.coverBackfillService = coverBackfillService;
+    }
+
+    // Every distinct book-listing statement the compiler has produced, most used first
+    @GetMapping(path = "query-shapes")
+    public ResponseEntity<List<QueryShapeStatistics>> getQueryShapes() {
+        return new ResponseEntity<>(bookQueryCompiler.getShapeStatistics(), HttpStatus.OK);
+    }
+
+    @GetMapping(path = "book-cache")
+    public ResponseEntity<BookCacheStatistics> getBookCacheStatistics() {
+        return new ResponseEntity<>(bookCache.getStatistics(), HttpStatus.OK);
+    }
+
+    // Queue depth, active lookups and submit-to-completion latency of the cover lookups started by addBook
+    @GetMapping(path = "cover-fetch")
+    public ResponseEntity<CoverFetchStatistics> getCoverFetchStatistics() {
+        return new ResponseEntity<>(coverFetchExecutor.getStatistics(), HttpStatus.OK);
+    }
+
+    // Attaches covers to every book that doesn't have one yet. Runs in the background; poll GET cover-backfill.
+    // ?resume=true continues after the last book a stopped run finished.
+    @PostMapping(path = "cover-backfill/start")
+    public ResponseEntity<CoverBackfillStatus> startCoverBackfill(
+            @RequestParam(name = "resume", defaultValue = "false") boolean resume) {
+        return new ResponseEntity<>(coverBackfillService.start(resume), HttpStatus.ACCEPTED);
+    }
+
+    @PostMapping(path = "cover-backfill/stop")
+    public ResponseEntity<CoverBackfillStatus> stopCoverBackfill() {
+        return new ResponseEntity<>(coverBackfillService.stop(), HttpStatus.OK);
+    }
+
+    @GetMapping(path = "cover-backfill")
+    public ResponseEntity<CoverBackfillStatus> getCoverBackfillStatus() {
+        return new ResponseEntity<>(coverBackfillService.getStatus(), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.aml.api;
+
+import com.example.aml.dto.BookBatchResultDTO;
+import com.example.aml.dto.BookDTO;
+import com.example.aml.model.BookFacets;
+import com.example.aml.service.DatabaseExecutor;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static com.example.aml.utility.BookConstants.NEXT_PAGE_TOKEN_HEADER;
+
+// The JSON endpoints of BookController, with the JDBC work on the DatabaseExecutor instead of the servlet thread.
+// The servlet thread returns to Tomcat as soon as the work is queued, so slow listings pile up in the query
+// lane rather than taking every request thread, and lookups by id keep their own lane.
+// Requests that time out (book.async.request-timeout) or find the lane's queue full get a 503.
+@CrossOrigin(origins = "*", exposedHeaders = {NEXT_PAGE_TOKEN_HEADER, HttpHeaders.ETAG})
+@RequestMapping("api/v1/async/book")
+@RestController
+public class AsyncBookController {
+    private final BookController bookController;
+    private final DatabaseExecutor databaseExecutor;
+
+    @Autowired
+    public AsyncBookController(BookController bookController, DatabaseExecutor databaseExecutor) {
+        this.bookController = bookController;
+        this.databaseExecutor = databaseExecutor;
+    }
+
+    @PostMapping
+    public CompletableFuture<ResponseEntity<Integer>> addBook(@RequestBody BookDTO book) {
+        return unavailableOnOverload(databaseExecutor.lookup(() -> bookController.addBook(book)));
+    }
+
+    @PostMapping(path = "batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<List<BookBatchResultDTO>>> addBooks(@RequestBody List<BookDTO> books) {
+        return unavailableOnOverload(databaseExecutor.query(() -> bookController.addBooks(books)));
+    }
+
+    @GetMapping(path = "{id}")
+    public CompletableFuture<ResponseEntity<BookDTO>> selectBookById(@PathVariable("id") UUID id) {
+        return unavailableOnOverload(databaseExecutor.lookup(() -> bookController.selectBookById(id)));
+    }
+
+    @GetMapping(path = "byNameAndAuthor")
+    public CompletableFuture<ResponseEntity<BookDTO>> selectBookByNameAndAuthor(
+            @RequestParam Map<String, String> params) {
+        return unavailableOnOverload(databaseExecutor.lookup(() -> bookController.selectBookByNameAndAuthor(params)));
+    }
+
+    @GetMapping
+    public CompletableFuture<ResponseEntity<List<BookDTO>>> getBooks(@RequestParam Map<String, String> params) {
+        return unavailableOnOverload(databaseExecutor.query(() -> bookController.getBooks(params)));
+    }
+
+    @GetMapping(path = "search")
+    public CompletableFuture<ResponseEntity<List<BookDTO>>> searchBooks(@RequestParam Map<String, String> params) {
+        return unavailableOnOverload(databaseExecutor.query(() -> bookController.searchBooks(params)));
+    }
+
+    @GetMapping(path = "facets")
+    public CompletableFuture<ResponseEntity<BookFacets>> getBookFacets(@RequestParam Map<String, String> params) {
+        return unavailableOnOverload(databaseExecutor.query(() -> bookController.getBookFacets(params)));
+    }
+
+    @DeleteMapping(path = "{id}")
+    public CompletableFuture<ResponseEntity<Integer>> deleteBookById(@PathVariable("id") UUID id) {
+        return unavailableOnOverload(databaseExecutor.lookup(() -> bookController.deleteBookById(id)));
+    }
+
+    @DeleteMapping
+    public CompletableFuture<ResponseEntity<Integer>> deleteBooksByIds(@RequestBody List<UUID> ids) {
+        return unavailableOnOverload(databaseExecutor.query(() -> bookController.deleteBooksByIds(ids)));
+    }
+
+    @PutMapping(path = "{id}")
+    public CompletableFuture<ResponseEntity<Integer>> updateBookById(
+            @PathVariable("id") UUID id,
+            @NotNull @Valid @RequestBody BookDTO book) {
+        return unavailableOnOverload(databaseExecutor.lookup(() -> bookController.updateBookById(id, book)));
+    }
+
+    // Other failures propagate and are handled as they would be on the synchronous endpoints
+    private static <T> CompletableFuture<ResponseEntity<T>> unavailableOnOverload(
+            CompletableFuture<ResponseEntity<T>> response) {
+        return response.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof TimeoutException || cause instanceof TaskRejectedException) {
+                return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            throw e instanceof CompletionException completionException
+                    ? completionException
+                    : new CompletionException(e);
+        });
+    }
+}
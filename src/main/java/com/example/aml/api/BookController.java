@@ -1,12 +1,27 @@
 package com.example.aml.api;
 
+import com.example.aml.dto.BookBatchResultDTO;
 import com.example.aml.dto.BookDTO;
+import com.example.aml.mapper.BookCsvMapper;
 import com.example.aml.model.AssociatedImage;
+import com.example.aml.model.BookFacets;
+import com.example.aml.model.BookPage;
 import com.example.aml.service.BookService;
+import com.example.aml.utility.ImageContentTypes;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -19,21 +34,53 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 
-@CrossOrigin(origins = "*")
+import static com.example.aml.utility.BookConstants.COVER_MISSING_HEADER;
+import static com.example.aml.utility.BookConstants.MISSING_IMAGE_ID;
+import static com.example.aml.utility.BookConstants.NEXT_PAGE_TOKEN_HEADER;
+
+@CrossOrigin(origins = "*", exposedHeaders = {NEXT_PAGE_TOKEN_HEADER, HttpHeaders.ETAG, COVER_MISSING_HEADER})
 @RequestMapping("api/v1/book") // The api link
 @RestController // This is a RestAPI -- exposes endpoint for client
 public class BookController {
+    private static final int STREAM_FLUSH_INTERVAL = 256;
+    private static final UUID MISSING_PICTURE_ID = UUID.fromString(MISSING_IMAGE_ID);
+
     private final BookService bookService;
+    private final BookCsvMapper bookCsvMapper;
+    private final ObjectWriter bookStreamWriter;
+    private final CacheControl coverCacheControl;
+    private final CacheControl missingCoverCacheControl;
 
     @Autowired
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService,
+                          BookCsvMapper bookCsvMapper,
+                          ObjectMapper objectMapper,
+                          @Value("${book.cover.max-age:7d}") Duration coverMaxAge,
+                          @Value("${book.cover.missing-max-age:1h}") Duration missingCoverMaxAge) {
         this.bookService = bookService;
+        this.bookCsvMapper = bookCsvMapper;
+        // Caches may keep a cover this long without asking; after that the ETag makes revalidation a bodiless 304
+        this.coverCacheControl = CacheControl.maxAge(coverMaxAge).cachePublic();
+        // "No cover" is cached for less time, since a cover may be looked up or uploaded soon after
+        this.missingCoverCacheControl = CacheControl.maxAge(missingCoverMaxAge).cachePublic();
+        this.bookStreamWriter = objectMapper.writerFor(BookDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n");
     }
 
     @PostMapping // tells Spring this is a POST request (as opposed to get/put/etc.)
@@ -45,6 +92,17 @@ public class BookController {
         );
     }
 
+    // Accepts a JSON array of books, or a CSV file with a header row (see BookCsvMapper)
+    @PostMapping(path = "batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BookBatchResultDTO>> addBooks(@RequestBody List<BookDTO> books) {
+        return new ResponseEntity<>(bookService.addBooks(books), HttpStatus.OK);
+    }
+
+    @PostMapping(path = "batch", consumes = "text/csv")
+    public ResponseEntity<List<BookBatchResultDTO>> addBooksFromCsv(InputStream csvBody) throws IOException {
+        return new ResponseEntity<>(bookService.addBooks(bookCsvMapper.readBooks(csvBody)), HttpStatus.OK);
+    }
+
     @GetMapping(path = "{id}") // Basically, we add the path (in this case, the ID) to the link
     // ex. localhost:8080/api/v1/book/83e0eb8e-7c42-42a8-a7ab-d179a4b1cf24
     public ResponseEntity<BookDTO> selectBookById(@PathVariable("id") UUID id) {
@@ -72,12 +130,123 @@ public class BookController {
 
     @GetMapping
     public ResponseEntity<List<BookDTO>> getBooks(@RequestParam Map<String, String> params) {
-        return new ResponseEntity<>(bookService.getBooks(params), HttpStatus.OK);
+        if (!bookService.isPageRequested(params)) {
+            return new ResponseEntity<>(bookService.getBooks(params), HttpStatus.OK);
+        }
+
+        // Keyset paging: ?limit=N, then pass the returned token back as ?next=<token>
+        BookPage<BookDTO> bookPage;
+        try {
+            bookPage = bookService.getBookPage(params);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (bookPage.getNextCursor() != null) {
+            headers.add(NEXT_PAGE_TOKEN_HEADER, bookPage.getNextCursor());
+        }
+        return new ResponseEntity<>(bookPage.getItems(), headers, HttpStatus.OK);
+    }
+
+    // Newline-delimited JSON, written row by row while the query is still being read
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBooks(@RequestParam Map<String, String> params) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(outputStream -> writeBookStream(params, outputStream));
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamBooksByParam(@RequestParam Map<String, String> params) {
+        return streamBooks(params);
     }
 
+    // Ranked full-text search over title, author and genres: ?q=<terms>, plus the filters and limit/next paging
+    // of GET /api/v1/book. Results are ordered by relevance, so sort_by is ignored.
+    @GetMapping(path = "search")
+    public ResponseEntity<List<BookDTO>> searchBooks(@RequestParam Map<String, String> params) {
+        BookPage<BookDTO> bookPage;
+        try {
+            bookPage = bookService.searchBooks(params);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (bookPage.getNextCursor() != null) {
+            headers.add(NEXT_PAGE_TOKEN_HEADER, bookPage.getNextCursor());
+        }
+        return new ResponseEntity<>(bookPage.getItems(), headers, HttpStatus.OK);
+    }
+
+    // Counts per genre, decade and word_count bucket of the books matching the same filters as GET /api/v1/book
+    @GetMapping(path = "facets")
+    public ResponseEntity<BookFacets> getBookFacets(@RequestParam Map<String, String> params) {
+        return new ResponseEntity<>(bookService.getBookFacets(params), HttpStatus.OK);
+    }
+
+    // With size, the downscaled variant of that width, or the original while it hasn't been generated yet.
+    // Books without a cover get the placeholder (or a 404 when there is none), marked with X-Cover-Missing.
     @GetMapping(path = "image/{id}")
-    public ResponseEntity<AssociatedImage> getImage(@PathVariable("id") UUID id) {
-        return new ResponseEntity<>(bookService.getImageForBook(id), HttpStatus.OK);
+    public ResponseEntity<AssociatedImage> getImage(
+            @PathVariable("id") UUID id,
+            @RequestParam(name = "size", required = false) Integer size) {
+        if (size != null && !bookService.isCoverSize(size)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Optional<AssociatedImage> image = size == null
+                ? bookService.getImageForBook(id)
+                : bookService.getImageVariantForBook(id, size).or(() -> bookService.getImageForBook(id));
+        if (image.isPresent()) {
+            return new ResponseEntity<>(image.get(), HttpStatus.OK);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(COVER_MISSING_HEADER, "true");
+        return bookService.getMissingCoverImage()
+                .map(placeholder -> new ResponseEntity<>(placeholder, headers, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(headers, HttpStatus.NOT_FOUND));
+    }
+
+    // The cover itself rather than Base64 in JSON, so browsers and CDNs can cache it.
+    // Setting a cover always creates a new picture row, so the picture id is a strong ETag.
+    // With size (one of book.cover-variants.widths) the downscaled variant is served, tagged "<picture id>-<size>".
+    // Until it has been generated the original is served uncached under its own ETag, so the next request
+    // misses the variant's ETag and picks the variant up.
+    // Books without a cover get the in-memory placeholder, or with placeholder=false a 404; both carry
+    // X-Cover-Missing and may be cached for book.cover.missing-max-age.
+    @GetMapping(path = "{id}/cover")
+    public ResponseEntity<byte[]> getCover(
+            @PathVariable("id") UUID id,
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "placeholder", defaultValue = "true") boolean placeholder,
+            WebRequest webRequest) {
+        if (size != null && !bookService.isCoverSize(size)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        // Variants are small, so it's read before revalidating; the ETag depends on whether it exists yet
+        Optional<AssociatedImage> variant = size == null
+                ? Optional.empty()
+                : bookService.getImageVariantForBook(id, size);
+        Optional<UUID> pictureId = variant.map(AssociatedImage::getId).or(() -> bookService.getPictureIdForBook(id));
+        if (pictureId.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (pictureId.get().equals(MISSING_PICTURE_ID)) {
+            return missingCover(placeholder, webRequest);
+        }
+        String eTag = variant.isPresent() ? pictureId.get() + "-" + size : pictureId.get().toString();
+        CacheControl cacheControl = size != null && variant.isEmpty() ? CacheControl.noCache() : coverCacheControl;
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified(eTag, cacheControl).build();
+        }
+
+        Optional<AssociatedImage> image = variant.or(() -> bookService.getImageForBook(id));
+        if (image.isEmpty()) {
+            // The cover was removed since the book was read
+            return missingCover(placeholder, webRequest);
+        }
+        return coverResponse(image.get(), eTag, cacheControl)
+                .body(image.get().getPicture());
     }
 
     @DeleteMapping(path = "{id}")
@@ -88,6 +257,16 @@ public class BookController {
         );
     }
 
+    // Body is a JSON array of ids; every listed book is deleted in one round trip.
+    // Returns how many of them existed.
+    @DeleteMapping
+    public ResponseEntity<Integer> deleteBooksByIds(@RequestBody List<UUID> ids) {
+        return new ResponseEntity<>(
+                bookService.deleteBooksByIds(ids),
+                HttpStatus.OK
+        );
+    }
+
     @PutMapping(path = "image/{id}")
     public ResponseEntity<Integer> insertImageForBook(
             @PathVariable("id") UUID id,
@@ -102,10 +281,15 @@ public class BookController {
     public ResponseEntity<Integer> updateBookById(
             @PathVariable("id") UUID id,
             @NotNull @Valid @RequestBody BookDTO book) {
-        return new ResponseEntity<>(
-                bookService.updateBookById(id, book),
-                HttpStatus.OK
-        );
+        try {
+            return new ResponseEntity<>(
+                    bookService.updateBookById(id, book),
+                    HttpStatus.OK
+            );
+        } catch (DataIntegrityViolationException e) {
+            // Another book already has this title and author
+            return new ResponseEntity<>(0, HttpStatus.CONFLICT);
+        }
     }
 
     @PatchMapping(path = "change_field/{id}")
@@ -113,12 +297,16 @@ public class BookController {
             @PathVariable("id") UUID id,
             @RequestParam Map<String, String> params) {
         int updateResult;
-        if (Objects.equals(params.get("field_type"), "STRING")) {
-            updateResult = bookService.updateColumnValue(
-                    id, params.get("column_name"), params.get("new_value"));
-        } else {
-            updateResult = bookService.updateColumnValue(
-                    id, params.get("column_name"), Integer.parseInt(params.get("new_value")));
+        try {
+            if (Objects.equals(params.get("field_type"), "STRING")) {
+                updateResult = bookService.updateColumnValue(
+                        id, params.get("column_name"), params.get("new_value"));
+            } else {
+                updateResult = bookService.updateColumnValue(
+                        id, params.get("column_name"), Integer.parseInt(params.get("new_value")));
+            }
+        } catch (DataIntegrityViolationException e) {
+            return new ResponseEntity<>(0, HttpStatus.CONFLICT);
         }
 
         if (updateResult == 0) {
@@ -127,4 +315,59 @@ public class BookController {
 
         return new ResponseEntity<>(updateResult, HttpStatus.OK);
     }
+
+    private void writeBookStream(Map<String, String> params, OutputStream outputStream) throws IOException {
+        int[] rowsWritten = new int[1];
+        try (SequenceWriter sequenceWriter = bookStreamWriter.writeValues(outputStream)) {
+            bookService.streamBooks(params, bookDTO -> {
+                try {
+                    sequenceWriter.write(bookDTO);
+                    if (++rowsWritten[0] % STREAM_FLUSH_INTERVAL == 1) {
+                        sequenceWriter.flush(); // the first row goes out right away, then in batches
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // e.g. the client went away; stops the query
+                }
+            });
+        }
+        if (rowsWritten[0] > 0) {
+            outputStream.write('\n');
+        }
+        outputStream.flush();
+    }
+
+    private ResponseEntity<byte[]> missingCover(boolean placeholder, WebRequest webRequest) {
+        Optional<AssociatedImage> image = placeholder ? bookService.getMissingCoverImage() : Optional.empty();
+        if (image.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .header(COVER_MISSING_HEADER, "true")
+                    .cacheControl(missingCoverCacheControl)
+                    .build();
+        }
+        if (webRequest.checkNotModified(image.get().getId().toString())) {
+            return notModified(image.get().getId().toString(), missingCoverCacheControl)
+                    .header(COVER_MISSING_HEADER, "true")
+                    .build();
+        }
+        return coverResponse(image.get(), image.get().getId().toString(), missingCoverCacheControl)
+                .header(COVER_MISSING_HEADER, "true")
+                .body(image.get().getPicture());
+    }
+
+    // The 304 repeats the caching headers of the 200, so a revalidating cache keeps the cover's policy
+    private static ResponseEntity.BodyBuilder notModified(String eTag, CacheControl cacheControl) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .cacheControl(cacheControl);
+    }
+
+    private static ResponseEntity.BodyBuilder coverResponse(
+            AssociatedImage image, String eTag, CacheControl cacheControl) {
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.parseMediaType(
+                        Objects.requireNonNullElse(image.getContentType(), ImageContentTypes.DEFAULT_CONTENT_TYPE)))
+                .contentLength(image.getPicture().length);
+    }
 }
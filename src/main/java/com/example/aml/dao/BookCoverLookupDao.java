@@ -0,0 +1,12 @@
+package com.example.aml.dao;
+
+import com.example.aml.model.BookCoverLookup;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface BookCoverLookupDao {
+    Optional<BookCoverLookup> selectUnexpiredLookup(String workTitleKey, String primaryAuthorKey, Instant now);
+
+    int upsertLookup(BookCoverLookup lookup);
+}
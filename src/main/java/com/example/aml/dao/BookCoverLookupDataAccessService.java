@@ -0,0 +1,83 @@
+package com.example.aml.dao;
+
+import com.example.aml.config.BookConfig;
+import com.example.aml.dao.query.SqlDialect;
+import com.example.aml.model.BookCoverLookup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class BookCoverLookupDataAccessService implements BookCoverLookupDao {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+
+    private static final RowMapper<BookCoverLookup> lookupRowMapper = (rs, rowNum) -> new BookCoverLookup(
+            rs.getString("work_title_key"),
+            rs.getString("primary_author_key"),
+            rs.getString("cover_url"),
+            rs.getString("image_sha256"),
+            rs.getTimestamp("looked_up_at").toInstant(),
+            rs.getTimestamp("expires_at").toInstant());
+
+    @Autowired
+    public BookCoverLookupDataAccessService(JdbcTemplate jdbcTemplate, BookConfig bookConfig) {
+        this(jdbcTemplate, SqlDialect.fromProfile(bookConfig.getActiveProfile()));
+    }
+
+    public BookCoverLookupDataAccessService(JdbcTemplate jdbcTemplate, SqlDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    @Override
+    public Optional<BookCoverLookup> selectUnexpiredLookup(String workTitleKey, String primaryAuthorKey, Instant now) {
+        List<BookCoverLookup> lookups = jdbcTemplate.query(
+                """
+                SELECT work_title_key, primary_author_key, cover_url, image_sha256, looked_up_at, expires_at
+                FROM book_cover_lookup
+                WHERE work_title_key = ? AND primary_author_key = ? AND expires_at > ?
+                """,
+                lookupRowMapper,
+                workTitleKey,
+                primaryAuthorKey,
+                Timestamp.from(now));
+        return lookups.stream().findFirst();
+    }
+
+    // A newer lookup for the same book replaces the old one, whether it found a cover or not
+    @Override
+    public int upsertLookup(BookCoverLookup lookup) {
+        var statement = dialect == SqlDialect.H2
+                ? """
+                MERGE INTO book_cover_lookup(work_title_key, primary_author_key, cover_url, image_sha256, looked_up_at, expires_at)
+                KEY (work_title_key, primary_author_key)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """
+                : """
+                INSERT INTO book_cover_lookup(work_title_key, primary_author_key, cover_url, image_sha256, looked_up_at, expires_at)
+                VALUES (?, ?, ?, ?, ?, ?)
+                ON CONFLICT (work_title_key, primary_author_key) DO UPDATE
+                SET
+                    cover_url = excluded.cover_url,
+                    image_sha256 = excluded.image_sha256,
+                    looked_up_at = excluded.looked_up_at,
+                    expires_at = excluded.expires_at
+                """;
+        return jdbcTemplate.update(
+                statement,
+                lookup.getWorkTitleKey(),
+                lookup.getPrimaryAuthorKey(),
+                lookup.getCoverUrl(),
+                lookup.getImageSha256(),
+                Timestamp.from(lookup.getLookedUpAt()),
+                Timestamp.from(lookup.getExpiresAt()));
+    }
+}
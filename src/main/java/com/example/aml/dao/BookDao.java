@@ -1,16 +1,31 @@
 package com.example.aml.dao;
 
+import com.example.aml.dao.query.BookQuery;
 import com.example.aml.model.AssociatedImage;
 import com.example.aml.model.Book;
+import com.example.aml.model.BookPage;
+import com.example.aml.model.ImageVariant;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 // For any class that wishes to be a Book, the class must have the following
 public interface BookDao {
+    // Replaces the book's picture atomically: 1 if the book now has the new picture (and any old one is deleted),
+    // 0 if there is no book with that id, in which case nothing is written
     int insertImage(UUID bookId, byte[] imageAsByteArray);
 
+    int insertImages(Map<UUID, byte[]> imagesByBookId);
+
+    // Stores downscaled copies of a picture; widths that already have a variant are left alone
+    void insertImageVariants(UUID pictureId, List<ImageVariant> variants);
+
     int insertBook(UUID id, Book book);
+
+    int[] insertBooks(List<Book> books);
     default int insertBook(Book book) {
         UUID id = UUID.randomUUID();
         return insertBook(id, book);
@@ -18,16 +33,33 @@ public interface BookDao {
 
     int deleteBookById(UUID id);
 
+    // Deletes the books (and their pictures) that exist among the ids, and returns how many that was
+    int deleteBooksByIds(List<UUID> ids);
+
     int updateBookById(UUID id, Book book);
 
     Optional<Book> selectBookById(UUID id);
 
-    List<Book> selectBooks(List<String> bookQueryWhereFilters, List<String> bookQueryOtherFilters);
+    List<Book> selectBooks(BookQuery query);
+
+    BookPage<Book> selectBookPage(BookQuery query);
 
-    AssociatedImage getImageForBook(UUID id);
+    void streamBooks(BookQuery query, Consumer<Book> consumer);
+
+    // Empty when the book has no cover or doesn't exist
+    Optional<AssociatedImage> getImageForBook(UUID id);
+
+    Optional<AssociatedImage> getPictureById(UUID pictureId);
+
+    // The book's picture at the given width, or empty until that variant has been generated
+    Optional<AssociatedImage> getImageVariantForBook(UUID id, int width);
 
     Optional<Book> selectBookByNameAndAuthor(String workTitle, String primaryAuthor);
 
+    List<Book> selectBooksWithoutCover(UUID afterId, int limit);
+
+    Set<Map.Entry<String, String>> selectExistingTitleAuthorPairs(List<Map.Entry<String, String>> titleAuthorPairs);
+
     int updateColumnValue(UUID id, String columnName, String newValue);
 
     int updateColumnValue(UUID id, String columnName, Integer newValue);
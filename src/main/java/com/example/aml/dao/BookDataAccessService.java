@@ -1,29 +1,64 @@
 package com.example.aml.dao;
 
+import com.example.aml.dao.cache.BookCache;
+import com.example.aml.dao.query.BookCursor;
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookQueryCompiler;
+import com.example.aml.dao.query.CompiledBookQuery;
+import com.example.aml.dao.query.SqlDialect;
 import com.example.aml.model.AssociatedImage;
 import com.example.aml.model.Book;
-import com.example.aml.utility.BookConstants;
+import com.example.aml.model.BookPage;
+import com.example.aml.model.ImageVariant;
+import com.example.aml.utility.ImageContentTypes;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Base64;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Repository("postgres") //uses a postgres DB
+@Qualifier("catalog") // what BookService reads through, unless book.columnar.enabled puts the columnar DAO there
 public class BookDataAccessService implements BookDao {
 
     private final JdbcTemplate jdbcTemplate;
-    private static final RowMapper<Book> bookRowMapper = (rs, rowNum) -> {
+    private final BookQueryCompiler bookQueryCompiler;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final BookCache bookCache;
+
+    @Value("${book.stream.fetch-size:500}")
+    private int streamFetchSize;
+
+    // Package-private for the JMH benchmarks in src/jmh
+    static final RowMapper<Book> bookRowMapper = (rs, rowNum) -> {
         String[] genreList = null;
-        if (rs.getArray("genres") != null) {
-            genreList = (String[]) rs.getArray("genres").getArray();
+        Array genres = rs.getArray("genres");
+        if (genres != null) {
+            // PgJDBC hands back a String[], H2 an Object[]
+            Object[] genreArray = (Object[]) genres.getArray();
+            genreList = Arrays.copyOf(genreArray, genreArray.length, String[].class);
         }
 
         return new Book(
@@ -39,94 +74,228 @@ public class BookDataAccessService implements BookDao {
         );
     };
 
+    private static final String INSERT_PICTURE = """
+            INSERT INTO pictures(id, picture, content_type, byte_length)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    // Pictures are stored as raw bytes, so the driver's byte[] is handed straight through
+    private static final RowMapper<AssociatedImage> imageRowMapper = (rs, rowNum) -> new AssociatedImage(
+            UUID.fromString(rs.getString("id")),
+            rs.getBytes("picture"),
+            rs.getString("content_type"));
+
     @Autowired
-    public BookDataAccessService(JdbcTemplate jdbcTemplate) {
+    public BookDataAccessService(
+            JdbcTemplate jdbcTemplate,
+            BookQueryCompiler bookQueryCompiler,
+            TransactionTemplate transactionTemplate,
+            BookCache bookCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.bookQueryCompiler = bookQueryCompiler;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.bookCache = bookCache;
     }
 
     @Override
     public int insertImage(UUID bookId, byte[] imageAsByteArray) {
-        Optional<UUID> pictureToBeDeleted = Optional.ofNullable(
-                jdbcTemplate.queryForObject(
-                        """
-                        SELECT picture_id
-                        FROM book
+        UUID pictureId = UUID.randomUUID();
+        String contentType = ImageContentTypes.detect(imageAsByteArray);
+        int replaced = Objects.requireNonNull(transactionTemplate.execute(status -> {
+            // Locking the book row serializes uploads for the same book. It has to be its own statement: a
+            // statement that waited on the lock still reads with its old snapshot, so a CTE would miss the
+            // picture a concurrent upload just committed and leave it orphaned.
+            List<UUID> currentPicture = jdbcTemplate.queryForList(
+                    """
+                    SELECT picture_id
+                    FROM book
+                    WHERE id = ?
+                    FOR UPDATE
+                    """,
+                    UUID.class,
+                    bookId);
+            if (currentPicture.isEmpty()) {
+                return 0;
+            }
+            UUID oldPictureId = currentPicture.get(0);
+            if (bookQueryCompiler.getDialect() == SqlDialect.H2) {
+                // H2 has no data-modifying CTEs
+                jdbcTemplate.update(INSERT_PICTURE, pictureId, imageAsByteArray, contentType, imageAsByteArray.length);
+                jdbcTemplate.update("UPDATE book SET picture_id = ? WHERE id = ?", pictureId, bookId);
+                jdbcTemplate.update("DELETE FROM pictures WHERE id = ?", oldPictureId);
+                return 1;
+            }
+            jdbcTemplate.update(
+                    """
+                    WITH new_picture AS (
+                        INSERT INTO pictures(id, picture, content_type, byte_length)
+                        VALUES (?, ?, ?, ?)
+                        RETURNING id
+                    ), updated_book AS (
+                        UPDATE book
+                        SET picture_id = (SELECT id FROM new_picture)
                         WHERE id = ?
-                        """,
-                        UUID.class,
-                        bookId));
-        pictureToBeDeleted.ifPresent(uuid -> jdbcTemplate.update(
+                    )
+                    DELETE FROM pictures
+                    WHERE id = ?
+                    """,
+                    pictureId,
+                    imageAsByteArray,
+                    contentType,
+                    imageAsByteArray.length,
+                    bookId,
+                    oldPictureId);
+            return 1;
+        }));
+        bookCache.invalidate(bookId);
+        return replaced;
+    }
+
+    // Attaches many covers in one transaction with two JDBC batches. A book that got a cover some other way
+    // in the meantime keeps it, and the picture written for it here is removed again.
+    @Override
+    public int insertImages(Map<UUID, byte[]> imagesByBookId) {
+        if (imagesByBookId.isEmpty()) {
+            return 0;
+        }
+        List<UUID> bookIds = new ArrayList<>(imagesByBookId.keySet());
+        List<UUID> pictureIds = bookIds.stream().map(bookId -> UUID.randomUUID()).toList();
+        List<Object[]> pictureArgs = new ArrayList<>(bookIds.size());
+        List<Object[]> bookArgs = new ArrayList<>(bookIds.size());
+        for (int i = 0; i < bookIds.size(); ++i) {
+            byte[] image = imagesByBookId.get(bookIds.get(i));
+            pictureArgs.add(new Object[]{pictureIds.get(i), image, ImageContentTypes.detect(image), image.length});
+            bookArgs.add(new Object[]{pictureIds.get(i), bookIds.get(i)});
+        }
+
+        int updatedBooks = Objects.requireNonNull(transactionTemplate.execute(status -> {
+            jdbcTemplate.batchUpdate(INSERT_PICTURE, pictureArgs);
+            int[] updateResults = jdbcTemplate.batchUpdate(
+                    """
+                    UPDATE book
+                    SET
+                        picture_id = ?
+                    WHERE id = ? AND picture_id IS NULL
+                    """,
+                    bookArgs);
+            List<Object[]> unusedPictures = new ArrayList<>();
+            for (int i = 0; i < updateResults.length; ++i) {
+                if (updateResults[i] == 0) {
+                    unusedPictures.add(new Object[]{pictureIds.get(i)});
+                }
+            }
+            if (!unusedPictures.isEmpty()) {
+                jdbcTemplate.batchUpdate("DELETE FROM pictures WHERE id = ?", unusedPictures);
+            }
+            return updateResults.length - unusedPictures.size();
+        }));
+        bookIds.forEach(bookCache::invalidate);
+        return updatedBooks;
+    }
+
+    @Override
+    public void insertImageVariants(UUID pictureId, List<ImageVariant> variants) {
+        var statement = bookQueryCompiler.getDialect() == SqlDialect.H2
+                ? """
+                MERGE INTO picture_variants v
+                USING (VALUES (CAST(? AS UUID), CAST(? AS INT), CAST(? AS BINARY VARYING), ?, CAST(? AS INT)))
+                    AS s(picture_id, width, picture, content_type, byte_length)
+                ON v.picture_id = s.picture_id AND v.width = s.width
+                WHEN NOT MATCHED THEN INSERT (picture_id, width, picture, content_type, byte_length)
+                    VALUES (s.picture_id, s.width, s.picture, s.content_type, s.byte_length)
                 """
-                        DELETE FROM PICTURES
-                        WHERE id = ?
-                        """,
-                uuid
-        ));
-        UUID pictureId = UUID.randomUUID();
-        var pictureStatement = """
-                INSERT INTO pictures(id, picture)
-                VALUES (?, ?)
+                : """
+                INSERT INTO picture_variants(picture_id, width, picture, content_type, byte_length)
+                VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT (picture_id, width) DO NOTHING
                 """;
-        int pictureIdStatement = jdbcTemplate.update(
-                pictureStatement,
-                pictureId,
-                Base64.getEncoder().encode(imageAsByteArray)
-        );
-        int bookAddPictureStatement = jdbcTemplate.update(
+        jdbcTemplate.batchUpdate(statement, variants.stream()
+                .map(variant -> new Object[]{
+                        pictureId,
+                        variant.getWidth(),
+                        variant.getPicture(),
+                        variant.getContentType(),
+                        variant.getPicture().length})
+                .toList());
+    }
+
+    @Override
+    public Optional<AssociatedImage> getImageVariantForBook(UUID bookId, int width) {
+        return jdbcTemplate.query(
                 """
-                UPDATE book
-                SET
-                    picture_id = ?
-                WHERE id = ?
+                SELECT v.picture_id AS id, v.picture, v.content_type
+                FROM book b
+                JOIN picture_variants v
+                ON v.picture_id = b.picture_id
+                WHERE b.id = ? AND v.width = ?
                 """,
-                pictureId,
-                bookId
-        );
-        return pictureIdStatement + bookAddPictureStatement - 1;
+                imageRowMapper,
+                bookId,
+                width).stream().findFirst();
     }
 
+    // Books without a cover are common, so that case is an empty result rather than an exception
     @Override
-    public AssociatedImage getImageForBook(UUID bookId) {
-        AssociatedImage image;
-        try {
-            image = jdbcTemplate.queryForObject(
-                    String.format("""
-                        SELECT p.id, p.picture
-                         FROM book b
-                         JOIN pictures p
-                         ON b.picture_id = p.id
-                         WHERE b.id = '%s';
-                        """, bookId.toString()),
-                    (resultSet, i) -> new AssociatedImage(
-                            UUID.fromString(resultSet.getString("id")),
-                            Base64.getDecoder().decode(resultSet.getBytes("picture")))
-            );
-        } catch (Exception e) {
-            Logger.getAnonymousLogger().log(
-                    Level.INFO, String.format("Couldn't find cover image for book with ID %s", bookId.toString()));
-            image = jdbcTemplate.queryForObject(
-                    String.format("""
-                        SELECT p.id, p.picture
-                         FROM PICTURES p
-                         WHERE p.id = '%s';
-                        """, BookConstants.MISSING_IMAGE_ID),
-                    (resultSet, i) -> new AssociatedImage(
-                            UUID.fromString(resultSet.getString("id")),
-                            Base64.getDecoder().decode(resultSet.getBytes("picture")))
-            );
-        }
+    public Optional<AssociatedImage> getImageForBook(UUID bookId) {
+        return jdbcTemplate.query(
+                """
+                SELECT p.id, p.picture, p.content_type
+                FROM book b
+                JOIN pictures p
+                ON b.picture_id = p.id
+                WHERE b.id = ?
+                """,
+                imageRowMapper,
+                bookId).stream().findFirst();
+    }
 
-        return image;
+    @Override
+    public Optional<AssociatedImage> getPictureById(UUID pictureId) {
+        return jdbcTemplate.query(
+                "SELECT id, picture, content_type FROM pictures WHERE id = ?",
+                imageRowMapper,
+                pictureId).stream().findFirst();
     }
 
+    // Returns 0 instead of inserting when a book with the same title and author (ignoring case) already exists.
+    // On Postgres the unique index from V3 decides that inside the INSERT, so concurrent adds can't both win.
     @Override
     public int insertBook(UUID id, Book book) {
-        var statement = """
+        return jdbcTemplate.update(insertBookStatement(), insertBookArgs(id, book));
+    }
+
+    @Override
+    public int[] insertBooks(List<Book> books) {
+        List<Object[]> batchArgs = books.stream()
+                .map(book -> insertBookArgs(book.getId(), book))
+                .toList();
+        // One transaction per batch: in autocommit mode every row would pay for its own commit
+        return transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(insertBookStatement(), batchArgs));
+    }
+
+    // H2 has no ON CONFLICT outside of its PostgreSQL mode, so the test profile checks for the pair in the same statement
+    private String insertBookStatement() {
+        return bookQueryCompiler.getDialect() == SqlDialect.H2
+                ? """
+                INSERT INTO book(id, work_title, primary_author, year_published, word_count, created_at, updated_at, genres)
+                SELECT ?, ?, ?, ?, ?, ?, ?, ?
+                WHERE NOT EXISTS (
+                    SELECT 1
+                    FROM book
+                    WHERE LOWER(work_title) = LOWER(?) AND LOWER(primary_author) = LOWER(?)
+                )
+                """
+                : """
                 INSERT INTO book(id, work_title, primary_author, year_published, word_count, created_at, updated_at, genres)
                 VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT DO NOTHING
                 """;
-        return jdbcTemplate.update(
-                statement,
+    }
+
+    private Object[] insertBookArgs(UUID id, Book book) {
+        Object[] args = {
                 id,
                 book.getWorkTitle(),
                 book.getPrimaryAuthor(),
@@ -134,54 +303,72 @@ public class BookDataAccessService implements BookDao {
                 book.getWordCount(),
                 book.getCreatedAt(),
                 book.getUpdatedAt(),
-                book.getGenres());
+                book.getGenres()};
+        if (bookQueryCompiler.getDialect() != SqlDialect.H2) {
+            return args;
+        }
+        Object[] h2Args = Arrays.copyOf(args, args.length + 2);
+        h2Args[args.length] = book.getWorkTitle();
+        h2Args[args.length + 1] = book.getPrimaryAuthor();
+        return h2Args;
     }
 
     @Override
     public int deleteBookById(UUID id) {
-        Optional<Book> toBeDeleted = Optional.empty();
-        try {
-            toBeDeleted = Optional.ofNullable(
-                    jdbcTemplate.queryForObject(
-                            """
-                            SELECT
-                                id,
-                                work_title,
-                                primary_author,
-                                year_published,
-                                word_count,
-                                picture_id,
-                                created_at,
-                                updated_at,
-                                genres
-                            FROM book
-                            WHERE id = ?
-                            """,
-                            bookRowMapper,
-                            id));
-        } catch (EmptyResultDataAccessException e) {
-            Logger.getAnonymousLogger().log(
-                    Level.INFO,
-                    String.format("Book with id %s not found", id.toString()));
-        }
-        if (toBeDeleted.isEmpty()) {
+        return deleteBooksByIds(List.of(id));
+    }
+
+    // Deletes the books and their pictures in one statement on Postgres, two in one transaction on H2
+    @Override
+    public int deleteBooksByIds(List<UUID> ids) {
+        if (ids.isEmpty()) {
             return 0;
         }
-        var bookStatement = """
-                DELETE FROM book
-                WHERE id = ?
-                """;
-        int bookDeletionResult = jdbcTemplate.update(
-                bookStatement,
-                id);
-        var pictureStatement = """
-                DELETE FROM PICTURES
-                WHERE id = ?
-                """;
-        jdbcTemplate.update(
-                pictureStatement, toBeDeleted.get().getPicture()
-        );
-        return bookDeletionResult;
+        // The ids travel as one array, so the statement text is the same however many there are
+        String[] idArray = ids.stream().map(UUID::toString).toArray(String[]::new);
+        List<UUID> deletedIds;
+        if (bookQueryCompiler.getDialect() == SqlDialect.H2) {
+            // H2 has no DELETE ... RETURNING, but can read the deleted rows back through OLD TABLE
+            deletedIds = transactionTemplate.execute(status -> {
+                List<UUID> deletedBooks = new ArrayList<>();
+                List<String> deletedPictures = new ArrayList<>();
+                jdbcTemplate.query(
+                        """
+                        SELECT id, picture_id
+                        FROM OLD TABLE (DELETE FROM book WHERE id = ANY(CAST(? AS UUID ARRAY)))
+                        """,
+                        (RowCallbackHandler) rs -> {
+                            deletedBooks.add(rs.getObject("id", UUID.class));
+                            UUID pictureId = rs.getObject("picture_id", UUID.class);
+                            if (pictureId != null) {
+                                deletedPictures.add(pictureId.toString());
+                            }
+                        },
+                        (Object) idArray);
+                jdbcTemplate.update(
+                        "DELETE FROM pictures WHERE id = ANY(CAST(? AS UUID ARRAY))",
+                        (Object) deletedPictures.toArray(String[]::new));
+                return deletedBooks;
+            });
+        } else {
+            deletedIds = jdbcTemplate.queryForList(
+                    """
+                    WITH deleted_book AS (
+                        DELETE FROM book
+                        WHERE id = ANY(?::uuid[])
+                        RETURNING id, picture_id
+                    ), deleted_picture AS (
+                        DELETE FROM pictures
+                        WHERE id IN (SELECT picture_id FROM deleted_book)
+                    )
+                    SELECT id
+                    FROM deleted_book
+                    """,
+                    UUID.class,
+                    (Object) idArray);
+        }
+        Objects.requireNonNull(deletedIds).forEach(bookCache::invalidate);
+        return deletedIds.size();
     }
 
     @Override
@@ -197,7 +384,7 @@ public class BookDataAccessService implements BookDao {
                     updated_at = ?
                 WHERE id = ?
                 """;
-        return jdbcTemplate.update(
+        int updateResult = jdbcTemplate.update(
                 statement,
                 id,
                 book.getWorkTitle(),
@@ -206,6 +393,8 @@ public class BookDataAccessService implements BookDao {
                 book.getWordCount(),
                 book.getUpdatedAt(),
                 id);
+        bookCache.invalidate(id);
+        return updateResult;
     }
 
     @Override
@@ -219,7 +408,9 @@ public class BookDataAccessService implements BookDao {
                         """,
                 columnName, newValue, id.toString()
         );
-        return jdbcTemplate.update(statement);
+        int updateResult = jdbcTemplate.update(statement);
+        bookCache.invalidate(id);
+        return updateResult;
     }
 
     @Override
@@ -233,11 +424,17 @@ public class BookDataAccessService implements BookDao {
                         """,
                 columnName, newValue, id.toString()
         );
-        return jdbcTemplate.update(statement);
+        int updateResult = jdbcTemplate.update(statement);
+        bookCache.invalidate(id);
+        return updateResult;
     }
 
     @Override
     public Optional<Book> selectBookById(UUID id) {
+        return bookCache.get(id, this::selectBookByIdFromDatabase);
+    }
+
+    private Optional<Book> selectBookByIdFromDatabase(UUID id) {
         Book book = null;
         try {
             book = jdbcTemplate.queryForObject(
@@ -297,53 +494,119 @@ public class BookDataAccessService implements BookDao {
         return Optional.ofNullable(book);
     }
 
+    // Keyset over the books still missing a cover, for the cover backfill
     @Override
-    public List<Book> selectBooks(
-            List<String> bookQueryWhereFilters, List<String> bookQueryOtherFilters) {
-        String queryWhereFilters = getWhereFiltersFromArray(bookQueryWhereFilters);
-        String queryOtherFilters = getOtherFiltersFromArray(bookQueryOtherFilters);
-
+    public List<Book> selectBooksWithoutCover(UUID afterId, int limit) {
+        if (afterId == null) {
+            return jdbcTemplate.query(
+                    "SELECT\n" + BookQueryCompiler.BOOK_COLUMNS + """
+                    FROM book
+                    WHERE picture_id IS NULL
+                    ORDER BY id
+                    LIMIT ?
+                    """,
+                    bookRowMapper,
+                    limit);
+        }
         return jdbcTemplate.query(
-                String.format("""
-                        SELECT
-                            id,
-                            work_title,
-                            primary_author,
-                            year_published,
-                            word_count,
-                            picture_id,
-                            created_at,
-                            updated_at,
-                            genres
-                        FROM book
-                        %s
-                        %s;
-                        """, queryWhereFilters, queryOtherFilters),
-                bookRowMapper);
+                "SELECT\n" + BookQueryCompiler.BOOK_COLUMNS + """
+                FROM book
+                WHERE picture_id IS NULL AND id > ?
+                ORDER BY id
+                LIMIT ?
+                """,
+                bookRowMapper,
+                afterId,
+                limit);
     }
 
-    private static String getWhereFiltersFromArray(List<String> bookQueryFilters) {
-        StringBuilder bookQueryFiltersAsString = new StringBuilder();
-
-        if (!bookQueryFilters.isEmpty()) {
-            bookQueryFiltersAsString.append("WHERE ");
+    @Override
+    public Set<Map.Entry<String, String>> selectExistingTitleAuthorPairs(
+            List<Map.Entry<String, String>> titleAuthorPairs) {
+        if (titleAuthorPairs.isEmpty()) {
+            return Set.of();
         }
+        String[] workTitles = titleAuthorPairs.stream().map(Map.Entry::getKey).toArray(String[]::new);
+        String[] primaryAuthors = titleAuthorPairs.stream().map(Map.Entry::getValue).toArray(String[]::new);
 
-        for (int i = 0; i < bookQueryFilters.size(); ++i) {
-            bookQueryFiltersAsString.append(bookQueryFilters.get(i));
-            if (i < bookQueryFilters.size() - 1) {
-                bookQueryFiltersAsString.append(" AND ");
+        // The candidates travel as two arrays, so the statement text is the same whatever the batch size.
+        // Matching ignores case like book_title_author_uidx, which serves the lookup, and returns the candidates as given.
+        var statement = bookQueryCompiler.getDialect() == SqlDialect.H2
+                ? """
+                SELECT DISTINCT candidate.work_title, candidate.primary_author
+                FROM book b
+                JOIN UNNEST(CAST(? AS VARCHAR ARRAY), CAST(? AS VARCHAR ARRAY)) AS candidate(work_title, primary_author)
+                ON LOWER(b.work_title) = LOWER(candidate.work_title)
+                AND LOWER(b.primary_author) = LOWER(candidate.primary_author)
+                """
+                : """
+                SELECT DISTINCT candidate.work_title, candidate.primary_author
+                FROM book b
+                JOIN unnest(?::text[], ?::text[]) AS candidate(work_title, primary_author)
+                ON lower(b.work_title) = lower(candidate.work_title)
+                AND lower(b.primary_author) = lower(candidate.primary_author)
+                """;
+        return new HashSet<>(jdbcTemplate.query(
+                statement,
+                (resultSet, i) -> Map.entry(resultSet.getString("work_title"), resultSet.getString("primary_author")),
+                workTitles,
+                primaryAuthors));
+    }
+
+    @Override
+    public List<Book> selectBooks(BookQuery query) {
+        CompiledBookQuery compiledQuery = bookQueryCompiler.compile(query);
+        return jdbcTemplate.query(compiledQuery.getSql(), bookRowMapper, compiledQuery.getArgs());
+    }
+
+    @Override
+    public BookPage<Book> selectBookPage(BookQuery query) {
+        CompiledBookQuery compiledQuery = bookQueryCompiler.compile(query);
+        String sortColumn = query.getSortBy() == null ? null : query.getSortBy().getColumnName();
+
+        List<Book> books = new ArrayList<>(query.getLimit());
+        Object[] lastSortValue = new Object[1];
+        boolean[] hasNextPage = new boolean[1];
+        jdbcTemplate.query(compiledQuery.getSql(), resultSet -> {
+            if (books.size() == query.getLimit()) {
+                hasNextPage[0] = true;
+                return;
             }
+            books.add(bookRowMapper.mapRow(resultSet, books.size()));
+            if (sortColumn != null) {
+                // the raw column value, since Book only keeps the date part of its timestamps
+                lastSortValue[0] = resultSet.getObject(sortColumn);
+            }
+        }, compiledQuery.getArgs());
+
+        String nextCursor = null;
+        if (hasNextPage[0]) {
+            nextCursor = new BookCursor(
+                    query.getSortBy(),
+                    query.getSortingOrder(),
+                    lastSortValue[0],
+                    books.get(books.size() - 1).getId()).encode();
         }
-        return bookQueryFiltersAsString.toString();
+        return new BookPage<>(books, nextCursor);
     }
 
-    private static String getOtherFiltersFromArray(List<String> bookQueryFilters) {
-        StringBuilder bookQueryFiltersAsString = new StringBuilder();
-        for (String bookQueryFilter : bookQueryFilters) {
-            bookQueryFiltersAsString.append(bookQueryFilter);
-            bookQueryFiltersAsString.append('\n');
-        }
-        return bookQueryFiltersAsString.toString();
+    @Override
+    public void streamBooks(BookQuery query, Consumer<Book> consumer) {
+        CompiledBookQuery compiledQuery = bookQueryCompiler.compile(query);
+        RowCallbackHandler rowCallbackHandler = resultSet -> consumer.accept(bookRowMapper.mapRow(resultSet, 0));
+
+        // PgJDBC only honours the fetch size (i.e. uses a server-side cursor) with autocommit off,
+        // so the rows are read inside a transaction instead of being buffered all at once
+        readOnlyTransactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            compiledQuery.getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    if (streamFetchSize > 0) {
+                        statement.setFetchSize(streamFetchSize);
+                    }
+                    new ArgumentPreparedStatementSetter(compiledQuery.getArgs()).setValues(statement);
+                    return statement;
+                },
+                rowCallbackHandler));
     }
 }
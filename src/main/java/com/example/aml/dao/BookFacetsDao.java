@@ -0,0 +1,11 @@
+package com.example.aml.dao;
+
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.model.BookFacets;
+
+public interface BookFacetsDao {
+    // Counts over the books matching query's filters; its sorting and paging are ignored
+    BookFacets selectBookFacets(BookQuery query);
+
+    void refreshBookFacets();
+}
@@ -0,0 +1,163 @@
+package com.example.aml.dao;
+
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookQueryCompiler;
+import com.example.aml.dao.query.CompiledBookQuery;
+import com.example.aml.dao.query.SqlDialect;
+import com.example.aml.model.BookFacets;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+// Unfiltered facets come from the book_facets materialized view (V7), filtered ones are counted over the
+// matching books with the same bucketing. H2 has neither materialized views nor LATERAL unnest, so the
+// test profile always counts live and tallies genres from the arrays.
+@Repository
+public class BookFacetsDataAccessService implements BookFacetsDao {
+    // Lower bounds of the word_count buckets, each reaching up to the next one; V7's view uses the same ones
+    private static final int[] WORD_COUNT_BUCKETS = {0, 20000, 50000, 100000, 200000};
+    private static final List<String> WORD_COUNT_BUCKET_LABELS = IntStream.range(0, WORD_COUNT_BUCKETS.length)
+            .mapToObj(i -> i + 1 < WORD_COUNT_BUCKETS.length
+                    ? WORD_COUNT_BUCKETS[i] + "-" + (WORD_COUNT_BUCKETS[i + 1] - 1)
+                    : WORD_COUNT_BUCKETS[i] + "+")
+            .toList();
+    private static final String WORD_COUNT_BUCKET = wordCountBucketExpression();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookQueryCompiler bookQueryCompiler;
+
+    @Autowired
+    public BookFacetsDataAccessService(JdbcTemplate jdbcTemplate, BookQueryCompiler bookQueryCompiler) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookQueryCompiler = bookQueryCompiler;
+    }
+
+    @Override
+    public BookFacets selectBookFacets(BookQuery query) {
+        CompiledBookQuery filter = bookQueryCompiler.compileFilter(query);
+        boolean h2 = bookQueryCompiler.getDialect() == SqlDialect.H2;
+        FacetCounts counts = new FacetCounts();
+        if (filter.getSql().isEmpty() && !h2) {
+            jdbcTemplate.query("SELECT facet, bucket, book_count FROM book_facets", counts);
+            return counts.toBookFacets();
+        }
+
+        String where = filter.getSql().isEmpty() ? "" : "WHERE " + filter.getSql();
+        jdbcTemplate.query(
+                String.format(
+                        """
+                        WITH matching AS %s (
+                            SELECT id, genres, year_published / 10 * 10 AS decade, %s AS word_count_bucket, word_count
+                            FROM book
+                            %s
+                        )
+                        SELECT 'total' AS facet, '' AS bucket, COUNT(*) AS book_count
+                        FROM matching
+                        UNION ALL
+                        SELECT 'decade', CAST(decade AS VARCHAR), COUNT(*)
+                        FROM matching
+                        WHERE decade IS NOT NULL
+                        GROUP BY decade
+                        UNION ALL
+                        SELECT 'word_count', word_count_bucket, COUNT(*)
+                        FROM matching
+                        WHERE word_count IS NOT NULL
+                        GROUP BY word_count_bucket
+                        %s
+                        """,
+                        // One scan of book for all the facets instead of inlining the CTE into every branch
+                        h2 ? "" : "MATERIALIZED",
+                        WORD_COUNT_BUCKET,
+                        where,
+                        h2 ? "" : """
+                                UNION ALL
+                                SELECT 'genre', genre, COUNT(DISTINCT id)
+                                FROM matching
+                                CROSS JOIN LATERAL unnest(genres) AS g(genre)
+                                WHERE genre IS NOT NULL
+                                GROUP BY genre
+                                """),
+                counts,
+                filter.getArgs());
+        if (h2) {
+            String genresCondition = filter.getSql().isEmpty() ? "" : " AND " + filter.getSql();
+            jdbcTemplate.query(
+                    "SELECT genres FROM book WHERE genres IS NOT NULL" + genresCondition,
+                    rs -> {
+                        Array genres = rs.getArray("genres");
+                        Arrays.stream((Object[]) genres.getArray())
+                                .filter(Objects::nonNull)
+                                .map(Object::toString)
+                                .distinct()
+                                .forEach(genre -> counts.genres.merge(genre, 1L, Long::sum));
+                    },
+                    filter.getArgs());
+        }
+        return counts.toBookFacets();
+    }
+
+    // CONCURRENTLY keeps the view readable while it's rebuilt
+    @Override
+    public void refreshBookFacets() {
+        if (bookQueryCompiler.getDialect() == SqlDialect.H2) {
+            return;
+        }
+        jdbcTemplate.execute("REFRESH MATERIALIZED VIEW CONCURRENTLY book_facets");
+    }
+
+    private static String wordCountBucketExpression() {
+        StringBuilder expression = new StringBuilder("CASE");
+        for (int i = WORD_COUNT_BUCKETS.length - 1; i > 0; --i) {
+            expression.append(" WHEN word_count >= ").append(WORD_COUNT_BUCKETS[i])
+                    .append(" THEN '").append(WORD_COUNT_BUCKET_LABELS.get(i)).append('\'');
+        }
+        return expression.append(" ELSE '").append(WORD_COUNT_BUCKET_LABELS.get(0)).append("' END").toString();
+    }
+
+    // Collects (facet, bucket, book_count) rows
+    private static final class FacetCounts implements RowCallbackHandler {
+        private long total;
+        private final Map<String, Long> genres = new HashMap<>();
+        private final Map<Integer, Long> decades = new TreeMap<>();
+        private final Map<String, Long> wordCounts = new HashMap<>();
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            String bucket = rs.getString("bucket");
+            long bookCount = rs.getLong("book_count");
+            switch (rs.getString("facet")) {
+                case "total" -> total = bookCount;
+                case "decade" -> decades.put(Integer.parseInt(bucket), bookCount);
+                case "word_count" -> wordCounts.put(bucket, bookCount);
+                case "genre" -> genres.put(bucket, bookCount);
+                default -> { }
+            }
+        }
+
+        private BookFacets toBookFacets() {
+            Map<String, Long> sortedGenres = new LinkedHashMap<>();
+            genres.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .forEach(genre -> sortedGenres.put(genre.getKey(), genre.getValue()));
+            Map<String, Long> bucketedWordCounts = new LinkedHashMap<>();
+            WORD_COUNT_BUCKET_LABELS.forEach(
+                    label -> bucketedWordCounts.put(label, wordCounts.getOrDefault(label, 0L)));
+            return new BookFacets(total, sortedGenres, decades, bucketedWordCounts);
+        }
+    }
+}
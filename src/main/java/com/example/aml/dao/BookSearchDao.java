@@ -0,0 +1,12 @@
+package com.example.aml.dao;
+
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookSearchCursor;
+import com.example.aml.model.Book;
+import com.example.aml.model.BookPage;
+
+public interface BookSearchDao {
+    // Books matching the search terms and query's filters, most relevant first, limit at a time starting after
+    // the cursor (null for the first page). query's sorting and paging are ignored.
+    BookPage<Book> searchBooks(BookQuery query, String terms, BookSearchCursor after, int limit);
+}
@@ -0,0 +1,124 @@
+package com.example.aml.dao;
+
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookQueryCompiler;
+import com.example.aml.dao.query.BookSearchCursor;
+import com.example.aml.dao.query.CompiledBookQuery;
+import com.example.aml.dao.query.SqlDialect;
+import com.example.aml.model.Book;
+import com.example.aml.model.BookPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Ranked search over the search_vector column from V9: websearch_to_tsquery parses the terms (quoted phrases,
+// "or", -excluded words) and the GIN index finds the matches, which are ordered by ts_rank. Pages seek past
+// the previous one on (rank, id) instead of using OFFSET, though every page still ranks all the matches.
+// H2 has no full-text types, so the test profile matches each term as a substring instead and ranks by
+// which columns contain it, weighted like ts_rank's defaults for the A/B/C weights.
+@Repository
+public class BookSearchDataAccessService implements BookSearchDao {
+    private static final String[] H2_RANKED_COLUMNS = {
+            "LOWER(work_title)", "LOWER(primary_author)", "LOWER(CAST(genres AS VARCHAR))"};
+    private static final String[] H2_COLUMN_WEIGHTS = {"1.0", "0.4", "0.2"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookQueryCompiler bookQueryCompiler;
+
+    @Autowired
+    public BookSearchDataAccessService(JdbcTemplate jdbcTemplate, BookQueryCompiler bookQueryCompiler) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookQueryCompiler = bookQueryCompiler;
+    }
+
+    @Override
+    public BookPage<Book> searchBooks(BookQuery query, String terms, BookSearchCursor after, int limit) {
+        CompiledBookQuery filter = bookQueryCompiler.compileFilter(query);
+        List<Object> args = new ArrayList<>();
+        String rank;
+        String from;
+        String match;
+        if (bookQueryCompiler.getDialect() == SqlDialect.H2) {
+            List<String> patterns = Arrays.stream(terms.toLowerCase(Locale.ROOT).split("\\s+"))
+                    .filter(term -> !term.isEmpty())
+                    .map(term -> '%' + escapeLikePattern(term) + '%')
+                    .toList();
+            List<String> rankTerms = new ArrayList<>();
+            List<String> matchTerms = new ArrayList<>();
+            for (int i = 0; i < H2_RANKED_COLUMNS.length; ++i) {
+                for (String pattern : patterns) {
+                    rankTerms.add("CASE WHEN " + H2_RANKED_COLUMNS[i] + " LIKE ? THEN " + H2_COLUMN_WEIGHTS[i] + " ELSE 0 END");
+                    args.add(pattern);
+                }
+            }
+            for (String pattern : patterns) {
+                matchTerms.add("(" + String.join(" LIKE ? OR ", H2_RANKED_COLUMNS) + " LIKE ?)");
+                args.addAll(Collections.nCopies(H2_RANKED_COLUMNS.length, pattern));
+            }
+            rank = "CAST(" + String.join(" + ", rankTerms) + " AS REAL)";
+            from = "book";
+            match = matchTerms.isEmpty() ? "FALSE" : String.join(" AND ", matchTerms);
+        } else {
+            rank = "ts_rank(search_vector, terms.query)";
+            from = "book, websearch_to_tsquery('english', ?) AS terms(query)";
+            match = "search_vector @@ terms.query";
+            args.add(terms);
+        }
+        if (!filter.getSql().isEmpty()) {
+            match += " AND " + filter.getSql();
+            args.addAll(Arrays.asList(filter.getArgs()));
+        }
+        String seek = "";
+        if (after != null) {
+            seek = "WHERE (rank, id) < (CAST(? AS REAL), ?)\n";
+            args.add(after.getRank());
+            args.add(after.getId());
+        }
+        // One extra row tells whether there is a next page
+        args.add(limit + 1);
+
+        List<Book> books = new ArrayList<>(limit);
+        float[] lastRank = new float[1];
+        boolean[] hasNextPage = new boolean[1];
+        jdbcTemplate.query(
+                String.format(
+                        """
+                        SELECT *
+                        FROM (
+                            SELECT
+                            %s, %s AS rank
+                            FROM %s
+                            WHERE %s
+                        ) AS ranked
+                        %sORDER BY rank DESC, id DESC
+                        LIMIT ?
+                        """,
+                        BookQueryCompiler.BOOK_COLUMNS.trim(), rank, from, match, seek),
+                resultSet -> {
+                    if (books.size() == limit) {
+                        hasNextPage[0] = true;
+                        return;
+                    }
+                    books.add(BookDataAccessService.bookRowMapper.mapRow(resultSet, books.size()));
+                    lastRank[0] = resultSet.getFloat("rank");
+                },
+                args.toArray());
+
+        String nextCursor = null;
+        if (hasNextPage[0]) {
+            nextCursor = new BookSearchCursor(lastRank[0], books.get(books.size() - 1).getId()).encode();
+        }
+        return new BookPage<>(books, nextCursor);
+    }
+
+    // Backslash is H2's default LIKE escape character
+    private static String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,14 +1,21 @@
 package com.example.aml.dao;
 
+import com.example.aml.dao.query.BookQuery;
 import com.example.aml.model.AssociatedImage;
 import com.example.aml.model.Book;
+import com.example.aml.model.BookPage;
+import com.example.aml.model.ImageVariant;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Repository("temporaryDAO") // @Component also works -- this tells the program that this exists
 public class MockBookDataAccessService implements BookDao {
@@ -30,6 +37,11 @@ public class MockBookDataAccessService implements BookDao {
         return 1;
     }
 
+    @Override
+    public int[] insertBooks(List<Book> books) {
+        return books.stream().mapToInt(book -> insertBook(book.getId(), book)).toArray();
+    }
+
     @Override
     public int deleteBookById(UUID id) {
         Optional<Book> book = selectBookById(id);
@@ -82,16 +94,34 @@ public class MockBookDataAccessService implements BookDao {
     }
 
     @Override
-    public List<Book> selectBooks(
-            List<String> bookQueryWhereFilters, List<String> bookQueryOtherFilters) {
+    public List<Book> selectBooks(BookQuery query) {
         // not maintained
         return bookDB.stream().filter(
                 book -> book.getPrimaryAuthor().equals("")).toList();
     }
 
     @Override
-    public AssociatedImage getImageForBook(UUID id) {
-        return null;
+    public BookPage<Book> selectBookPage(BookQuery query) {
+        // not maintained
+        return new BookPage<>(selectBooks(query), null);
+    }
+
+    @Override
+    public void streamBooks(BookQuery query, Consumer<Book> consumer) {
+        // not maintained
+        selectBooks(query).forEach(consumer);
+    }
+
+    @Override
+    public Optional<AssociatedImage> getImageForBook(UUID id) {
+        // not maintained
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<AssociatedImage> getPictureById(UUID pictureId) {
+        // not maintained
+        return Optional.empty();
     }
 
     @Override
@@ -100,9 +130,48 @@ public class MockBookDataAccessService implements BookDao {
         return 0;
     }
 
+    @Override
+    public void insertImageVariants(UUID pictureId, List<ImageVariant> variants) {
+        // not maintained
+    }
+
+    @Override
+    public Optional<AssociatedImage> getImageVariantForBook(UUID id, int width) {
+        // not maintained
+        return Optional.empty();
+    }
+
+    @Override
+    public int deleteBooksByIds(List<UUID> ids) {
+        // not maintained
+        return 0;
+    }
+
+    @Override
+    public int insertImages(Map<UUID, byte[]> imagesByBookId) {
+        // not maintained
+        return 0;
+    }
+
+    @Override
+    public List<Book> selectBooksWithoutCover(UUID afterId, int limit) {
+        // not maintained
+        return List.of();
+    }
+
     @Override
     public Optional<Book> selectBookByNameAndAuthor(String workTitle, String primaryAuthor) {
         return bookDB.stream()
                 .findFirst();
     }
+
+    @Override
+    public Set<Map.Entry<String, String>> selectExistingTitleAuthorPairs(
+            List<Map.Entry<String, String>> titleAuthorPairs) {
+        return titleAuthorPairs.stream()
+                .filter(pair -> bookDB.stream().anyMatch(book ->
+                        book.getWorkTitle().equalsIgnoreCase(pair.getKey())
+                                && book.getPrimaryAuthor().equalsIgnoreCase(pair.getValue())))
+                .collect(Collectors.toSet());
+    }
 }
@@ -0,0 +1,60 @@
+package com.example.aml.dao.cache;
+
+import com.example.aml.model.Book;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+// In-process cache of books by id. Caffeine evicts with W-TinyLFU once the size bound is reached,
+// and the TTL bounds how stale an entry can get if a row is changed outside of the DAO.
+@Component
+public class BookCache {
+    private final Cache<UUID, Book> cache;
+    private final Duration ttl;
+
+    @Autowired
+    public BookCache(
+            @Value("${book.cache.maximum-size:10000}") long maximumSize,
+            @Value("${book.cache.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.ttl = ttl;
+    }
+
+    // Missing books aren't cached, so inserting a book never has to invalidate anything.
+    // An invalidate() that races with a load waits for it and then removes the loaded value.
+    public Optional<Book> get(UUID id, Function<UUID, Optional<Book>> loader) {
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    public void invalidate(UUID id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public BookCacheStatistics getStatistics() {
+        CacheStats stats = cache.stats();
+        return new BookCacheStatistics(
+                cache.estimatedSize(),
+                cache.policy().eviction().orElseThrow().getMaximum(),
+                ttl.toSeconds(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount());
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.aml.dao.cache;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class BookCacheStatistics {
+    @JsonProperty("size") private final long size;
+    @JsonProperty("maximum_size") private final long maximumSize;
+    @JsonProperty("ttl_seconds") private final long ttlSeconds;
+    @JsonProperty("hits") private final long hits;
+    @JsonProperty("misses") private final long misses;
+    @JsonProperty("hit_rate") private final double hitRate;
+    @JsonProperty("evictions") private final long evictions;
+}
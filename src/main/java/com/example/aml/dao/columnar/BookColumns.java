@@ -0,0 +1,442 @@
+package com.example.aml.dao.columnar;
+
+import com.example.aml.dao.query.BookCursor;
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookSortColumn;
+import com.example.aml.model.Book;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// An immutable, column-per-field copy of a set of books. Authors and genres are dictionary-encoded, year and
+// word count are plain int columns, and every sortable column has its rows pre-sorted into a permutation, so
+// a sorted page is a walk along that permutation from a binary-searched start.
+// Sort order matches Postgres: NULLs after everything else ascending (so first descending), ties broken
+// by the id compared as unsigned bytes. Strings compare by code point rather than by the database collation.
+final class BookColumns {
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_KEY = Long.MAX_VALUE; // sorts after every real int or timestamp
+    private static final int NO_CODE = -1;
+    private static final int WORDS_PER_SCAN_CHUNK = 1024; // 64K rows
+
+    static final BookColumns EMPTY = new BookColumns(List.of());
+
+    private final int size;
+    private final UUID[] ids;
+    private final String[] titles;
+    private final String[] lowerTitles;
+    private final int[] authorCodes;
+    private final String[] authors; // the author dictionary
+    private final int[] yearPublished;
+    private final int[] wordCount;
+    private final UUID[] pictureIds;
+    private final long[] createdAt; // epoch microseconds
+    private final long[] updatedAt;
+    private final int[][] genreCodes; // per row in the stored order, null when the row has no genres
+    private final String[] genres; // the genre dictionary
+    private final Map<String, Integer> genreCodesByName = new HashMap<>();
+    private final Map<UUID, Integer> rowsById;
+    private final int[] rowsInIdOrder;
+    private final Map<BookSortColumn, int[]> sortedRows = new EnumMap<>(BookSortColumn.class);
+
+    BookColumns(List<Row> rows) {
+        size = rows.size();
+        ids = new UUID[size];
+        titles = new String[size];
+        lowerTitles = new String[size];
+        authorCodes = new int[size];
+        yearPublished = new int[size];
+        wordCount = new int[size];
+        pictureIds = new UUID[size];
+        createdAt = new long[size];
+        updatedAt = new long[size];
+        genreCodes = new int[size][];
+        rowsById = new HashMap<>(size * 2);
+
+        Map<String, Integer> authorCodesByName = new HashMap<>();
+        for (int i = 0; i < size; ++i) {
+            Row row = rows.get(i);
+            ids[i] = row.id;
+            titles[i] = row.workTitle;
+            lowerTitles[i] = row.workTitle == null ? null : row.workTitle.toLowerCase(Locale.ROOT);
+            authorCodes[i] = row.primaryAuthor == null
+                    ? NO_CODE
+                    : authorCodesByName.computeIfAbsent(row.primaryAuthor, author -> authorCodesByName.size());
+            yearPublished[i] = row.yearPublished == null ? NULL_INT : row.yearPublished;
+            wordCount[i] = row.wordCount == null ? NULL_INT : row.wordCount;
+            pictureIds[i] = row.pictureId;
+            createdAt[i] = toMicros(row.createdAt);
+            updatedAt[i] = toMicros(row.updatedAt);
+            if (row.genres != null) {
+                genreCodes[i] = Arrays.stream(row.genres)
+                        .mapToInt(genre -> genre == null
+                                ? NO_CODE
+                                : genreCodesByName.computeIfAbsent(genre, name -> genreCodesByName.size()))
+                        .toArray();
+            }
+            rowsById.put(row.id, i);
+        }
+        authors = decode(authorCodesByName);
+        genres = decode(genreCodesByName);
+
+        rowsInIdOrder = sortRows(null);
+        for (BookSortColumn column : BookSortColumn.values()) {
+            sortedRows.put(column, sortRows(column));
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // The row holding the book, or -1
+    int rowOf(UUID id) {
+        return rowsById.getOrDefault(id, -1);
+    }
+
+    UUID idAt(int row) {
+        return ids[row];
+    }
+
+    // The same values BookDataAccessService's row mapper produces, including the date-only timestamps
+    Book bookAt(int row) {
+        return new Book(
+                ids[row],
+                titles[row],
+                authorCodes[row] == NO_CODE ? null : authors[authorCodes[row]],
+                yearPublished[row] == NULL_INT ? 0 : yearPublished[row],
+                wordCount[row] == NULL_INT ? 0 : wordCount[row],
+                pictureIds[row],
+                toDate(createdAt[row]),
+                toDate(updatedAt[row]),
+                genreCodes[row] == null
+                        ? null
+                        : Arrays.stream(genreCodes[row])
+                                .mapToObj(code -> code == NO_CODE ? null : genres[code])
+                                .toArray(String[]::new));
+    }
+
+    // The row as it was loaded, for building a new copy from this one
+    Row rowAt(int row) {
+        Book book = bookAt(row);
+        return new Row(
+                ids[row],
+                titles[row],
+                book.getPrimaryAuthor(),
+                yearPublished[row] == NULL_INT ? null : yearPublished[row],
+                wordCount[row] == NULL_INT ? null : wordCount[row],
+                pictureIds[row],
+                toTimestamp(createdAt[row]),
+                toTimestamp(updatedAt[row]),
+                book.getGenres());
+    }
+
+    // What a BookCursor carries for the row: the same types the JDBC driver hands back for the column
+    Object sortValueAt(BookSortColumn column, int row) {
+        return switch (column) {
+            case WORK_TITLE -> titles[row];
+            case PRIMARY_AUTHOR -> authorCodes[row] == NO_CODE ? null : authors[authorCodes[row]];
+            case YEAR_PUBLISHED -> yearPublished[row] == NULL_INT ? null : yearPublished[row];
+            case WORD_COUNT -> wordCount[row] == NULL_INT ? null : wordCount[row];
+            case CREATED_AT -> toTimestamp(createdAt[row]);
+            case UPDATED_AT -> toTimestamp(updatedAt[row]);
+        };
+    }
+
+    // Rows in ascending (sort column, id) order, or id order when column is null
+    int[] sortedRows(BookSortColumn column) {
+        return column == null ? rowsInIdOrder : sortedRows.get(column);
+    }
+
+    // The rows passing query's filters and not in excluded (which may be null). Catalogs of at least
+    // parallelThreshold rows are scanned in 64K-row chunks on scanPool.
+    BitSet matchingRows(BookQuery query, BitSet excluded, ForkJoinPool scanPool, int parallelThreshold) {
+        Filter filter = new Filter(query);
+        long[] words = new long[(size + 63) / 64];
+        if (filter.matchesNothing) {
+            return new BitSet();
+        }
+        int chunks = (words.length + WORDS_PER_SCAN_CHUNK - 1) / WORDS_PER_SCAN_CHUNK;
+        if (size < parallelThreshold || chunks < 2) {
+            scan(filter, excluded, words, 0, words.length);
+        } else {
+            scanPool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> scan(
+                    filter,
+                    excluded,
+                    words,
+                    chunk * WORDS_PER_SCAN_CHUNK,
+                    Math.min(words.length, (chunk + 1) * WORDS_PER_SCAN_CHUNK)))).join();
+        }
+        return BitSet.valueOf(words);
+    }
+
+    // Each chunk owns whole words of the result, so the chunks never write to the same long
+    private void scan(Filter filter, BitSet excluded, long[] words, int fromWord, int toWord) {
+        int end = Math.min(size, toWord * 64);
+        for (int row = fromWord * 64; row < end; ++row) {
+            if ((excluded == null || !excluded.get(row)) && filter.matches(row)) {
+                words[row >>> 6] |= 1L << row;
+            }
+        }
+    }
+
+    // Position in sortedRows(query's sort column) of the first row after the cursor in ascending order
+    int seekPosition(BookQuery query, BookCursor cursor) {
+        int[] order = sortedRows(query.getSortBy());
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareToCursor(query.getSortBy(), order[middle], cursor) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Compares a row here with a row of other (possibly this) in ascending (column, id) order
+    int compareRows(BookSortColumn column, int row, BookColumns other, int otherRow) {
+        int byValue = 0;
+        if (column != null) {
+            byValue = switch (column) {
+                case WORK_TITLE, PRIMARY_AUTHOR -> compareNullsLast(
+                        (String) sortValueAt(column, row), (String) other.sortValueAt(column, otherRow));
+                default -> Long.compare(numericKey(column, row), other.numericKey(column, otherRow));
+            };
+        }
+        return byValue != 0 ? byValue : compareIds(ids[row], other.ids[otherRow]);
+    }
+
+    int compareToCursor(BookSortColumn column, int row, BookCursor cursor) {
+        int byValue = 0;
+        if (column != null) {
+            Object value = cursor.getSortValue();
+            byValue = switch (column) {
+                case WORK_TITLE, PRIMARY_AUTHOR -> compareNullsLast((String) sortValueAt(column, row), (String) value);
+                case YEAR_PUBLISHED, WORD_COUNT -> Long.compare(
+                        numericKey(column, row), value == null ? NULL_KEY : ((Number) value).longValue());
+                case CREATED_AT, UPDATED_AT -> Long.compare(numericKey(column, row), toMicros((Timestamp) value));
+            };
+        }
+        return byValue != 0 ? byValue : compareIds(ids[row], cursor.getId());
+    }
+
+    private long numericKey(BookSortColumn column, int row) {
+        return switch (column) {
+            case YEAR_PUBLISHED -> yearPublished[row] == NULL_INT ? NULL_KEY : yearPublished[row];
+            case WORD_COUNT -> wordCount[row] == NULL_INT ? NULL_KEY : wordCount[row];
+            case CREATED_AT -> createdAt[row];
+            case UPDATED_AT -> updatedAt[row];
+            default -> throw new IllegalArgumentException(column + " is not numeric");
+        };
+    }
+
+    private int[] sortRows(BookSortColumn column) {
+        Comparator<Integer> byColumn = (row, otherRow) -> compareRows(column, row, this, otherRow);
+        return IntStream.range(0, size).boxed().sorted(byColumn).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int compareNullsLast(String value, String other) {
+        if (value == null || other == null) {
+            return value == null ? (other == null ? 0 : 1) : -1;
+        }
+        return value.compareTo(other);
+    }
+
+    // UUID.compareTo compares signed halves; Postgres and H2 compare the bytes unsigned
+    private static int compareIds(UUID id, UUID other) {
+        int byHighBits = Long.compareUnsigned(id.getMostSignificantBits(), other.getMostSignificantBits());
+        return byHighBits != 0
+                ? byHighBits
+                : Long.compareUnsigned(id.getLeastSignificantBits(), other.getLeastSignificantBits());
+    }
+
+    private static String[] decode(Map<String, Integer> codesByName) {
+        String[] dictionary = new String[codesByName.size()];
+        codesByName.forEach((name, code) -> dictionary[code] = name);
+        return dictionary;
+    }
+
+    // Microseconds keep the full precision of a Postgres timestamp, so cursors seek exactly like the SQL ones
+    private static long toMicros(Timestamp timestamp) {
+        if (timestamp == null) {
+            return NULL_KEY;
+        }
+        Instant instant = timestamp.toInstant();
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1000;
+    }
+
+    private static Timestamp toTimestamp(long micros) {
+        return micros == NULL_KEY
+                ? null
+                : Timestamp.from(Instant.ofEpochSecond(
+                        Math.floorDiv(micros, 1_000_000), Math.floorMod(micros, 1_000_000) * 1000L));
+    }
+
+    private static Date toDate(long micros) {
+        return micros == NULL_KEY ? null : Date.valueOf(toTimestamp(micros).toLocalDateTime().toLocalDate());
+    }
+
+    // A book as read from the database, with the nullable columns and full timestamps Book doesn't keep
+    static final class Row {
+        private final UUID id;
+        private final String workTitle;
+        private final String primaryAuthor;
+        private final Integer yearPublished;
+        private final Integer wordCount;
+        private final UUID pictureId;
+        private final Timestamp createdAt;
+        private final Timestamp updatedAt;
+        private final String[] genres;
+
+        Row(UUID id, String workTitle, String primaryAuthor, Integer yearPublished, Integer wordCount,
+            UUID pictureId, Timestamp createdAt, Timestamp updatedAt, String[] genres) {
+            this.id = id;
+            this.workTitle = workTitle;
+            this.primaryAuthor = primaryAuthor;
+            this.yearPublished = yearPublished;
+            this.wordCount = wordCount;
+            this.pictureId = pictureId;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+            this.genres = genres;
+        }
+
+        UUID getId() {
+            return id;
+        }
+    }
+
+    // BookQuery's filters resolved against this copy's dictionaries. The author filter is evaluated once per
+    // distinct author instead of once per row, and genres become codes compared as ints.
+    private final class Filter {
+        private final String workTitle;
+        private final boolean[] matchingAuthors;
+        private final int wordCountLowerLimit;
+        private final int wordCountUpperLimit;
+        private final int yearPublishedLowerLimit;
+        private final int yearPublishedUpperLimit;
+        private final boolean wordCountFiltered;
+        private final boolean yearPublishedFiltered;
+        private final int[] genresAny;
+        private final int[] genresAll;
+        private final boolean matchesNothing;
+
+        private Filter(BookQuery query) {
+            workTitle = substringFilter(query.getWorkTitle());
+            String primaryAuthor = substringFilter(query.getPrimaryAuthor());
+            if (primaryAuthor == null) {
+                matchingAuthors = null;
+            } else {
+                matchingAuthors = new boolean[authors.length];
+                for (int code = 0; code < authors.length; ++code) {
+                    matchingAuthors[code] = authors[code].toLowerCase(Locale.ROOT).contains(primaryAuthor);
+                }
+            }
+            wordCountLowerLimit = lowerLimit(query.getWordCountLowerLimit());
+            wordCountUpperLimit = upperLimit(query.getWordCountUpperLimit());
+            yearPublishedLowerLimit = lowerLimit(query.getYearPublishedLowerLimit());
+            yearPublishedUpperLimit = upperLimit(query.getYearPublishedUpperLimit());
+            wordCountFiltered = query.getWordCountLowerLimit() != null || query.getWordCountUpperLimit() != null;
+            yearPublishedFiltered =
+                    query.getYearPublishedLowerLimit() != null || query.getYearPublishedUpperLimit() != null;
+            genresAny = genreCodes(query.getGenresAny());
+            genresAll = genreCodes(query.getGenresAll());
+
+            boolean unknownGenre = genresAll != null && Arrays.stream(genresAll).anyMatch(code -> code == NO_CODE);
+            boolean noKnownGenre = genresAny != null && Arrays.stream(genresAny).allMatch(code -> code == NO_CODE);
+            matchesNothing = unknownGenre || noKnownGenre;
+        }
+
+        private boolean matches(int row) {
+            if (matchingAuthors != null && (authorCodes[row] == NO_CODE || !matchingAuthors[authorCodes[row]])) {
+                return false;
+            }
+            if (workTitle != null && (lowerTitles[row] == null || !lowerTitles[row].contains(workTitle))) {
+                return false;
+            }
+            if (wordCountFiltered && !inRange(wordCount[row], wordCountLowerLimit, wordCountUpperLimit)) {
+                return false;
+            }
+            if (yearPublishedFiltered
+                    && !inRange(yearPublished[row], yearPublishedLowerLimit, yearPublishedUpperLimit)) {
+                return false;
+            }
+            if (genresAny != null && !hasAnyGenre(genreCodes[row])) {
+                return false;
+            }
+            return genresAll == null || hasAllGenres(genreCodes[row]);
+        }
+
+        private boolean hasAnyGenre(int[] codes) {
+            if (codes != null) {
+                for (int requested : genresAny) {
+                    if (requested != NO_CODE && contains(codes, requested)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean hasAllGenres(int[] codes) {
+            if (codes == null) {
+                return false;
+            }
+            for (int requested : genresAll) {
+                if (!contains(codes, requested)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int[] genreCodes(List<String> requested) {
+            if (requested == null || requested.isEmpty()) {
+                return null;
+            }
+            return requested.stream().mapToInt(genre -> genreCodesByName.getOrDefault(genre, NO_CODE)).toArray();
+        }
+
+        private static boolean contains(int[] codes, int code) {
+            for (int candidate : codes) {
+                if (candidate == code) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // NULL satisfies no comparison in SQL
+        private static boolean inRange(int value, int lowerLimit, int upperLimit) {
+            return value != NULL_INT && value >= lowerLimit && value <= upperLimit;
+        }
+
+        // BookQueryCompiler skips blank substring filters and lower-cases the rest
+        private static String substringFilter(String value) {
+            return value == null || value.trim().isEmpty() ? null : value.toLowerCase(Locale.ROOT);
+        }
+
+        private static int lowerLimit(Integer limit) {
+            return limit == null ? Integer.MIN_VALUE : limit;
+        }
+
+        private static int upperLimit(Integer limit) {
+            return limit == null ? Integer.MAX_VALUE : limit;
+        }
+    }
+}
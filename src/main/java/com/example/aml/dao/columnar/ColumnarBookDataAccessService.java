@@ -0,0 +1,491 @@
+package com.example.aml.dao.columnar;
+
+import com.example.aml.dao.BookDao;
+import com.example.aml.dao.query.BookCursor;
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookQueryCompiler;
+import com.example.aml.dao.query.BookSortColumn;
+import com.example.aml.dao.query.SortingOrder;
+import com.example.aml.dao.query.SqlDialect;
+import com.example.aml.model.AssociatedImage;
+import com.example.aml.model.Book;
+import com.example.aml.model.BookPage;
+import com.example.aml.model.ImageVariant;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Serves book listings (selectBooks, selectBookPage, streamBooks) from an in-memory columnar copy of the
+// catalog (see BookColumns) instead of the database, for read-heavy deployments; enabled with
+// book.columnar.enabled. Everything else, and every write, goes to the "postgres" DAO first.
+// The copy is loaded at startup. After each write the touched rows are read back from the database into a
+// small overlay that shadows them; once the overlay passes book.columnar.compaction-threshold rows it is
+// folded into a new copy in the background. The whole catalog is also reloaded every
+// book.columnar.reload-interval to pick up writes made by other instances or directly in SQL.
+@Repository("columnar")
+@Qualifier("catalog")
+@Primary // wins over BookDataAccessService wherever the "catalog" DAO is injected
+@ConditionalOnProperty(name = "book.columnar.enabled", havingValue = "true")
+public class ColumnarBookDataAccessService implements BookDao, DisposableBean {
+    private static final RowMapper<BookColumns.Row> rowMapper = (rs, rowNum) -> {
+        String[] genreList = null;
+        Array genres = rs.getArray("genres");
+        if (genres != null) {
+            Object[] genreArray = (Object[]) genres.getArray();
+            genreList = Arrays.copyOf(genreArray, genreArray.length, String[].class);
+        }
+        return new BookColumns.Row(
+                UUID.fromString(rs.getString("id")),
+                rs.getString("work_title"),
+                rs.getString("primary_author"),
+                rs.getObject("year_published", Integer.class),
+                rs.getObject("word_count", Integer.class),
+                (UUID) rs.getObject("picture_id"),
+                rs.getTimestamp("created_at"),
+                rs.getTimestamp("updated_at"),
+                genreList);
+    };
+
+    private final BookDao bookDao;
+    private final JdbcTemplate jdbcTemplate;
+    private final BookQueryCompiler bookQueryCompiler;
+    private final int compactionThreshold;
+    private final int parallelScanThreshold;
+    private final ForkJoinPool scanPool;
+    private final ScheduledExecutorService rebuildExecutor =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("book-columnar-rebuild-"));
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+
+    // Writers apply their changes under writeLock; readers take whatever catalog is current
+    private final Object writeLock = new Object();
+    private volatile Catalog catalog;
+    private Set<UUID> changedDuringRebuild; // guarded by writeLock, set while a new copy is being built
+
+    @Autowired
+    public ColumnarBookDataAccessService(
+            @Qualifier("postgres") BookDao bookDao,
+            JdbcTemplate jdbcTemplate,
+            BookQueryCompiler bookQueryCompiler,
+            @Value("${book.columnar.reload-interval:10m}") Duration reloadInterval,
+            @Value("${book.columnar.compaction-threshold:10000}") int compactionThreshold,
+            @Value("${book.columnar.parallel-scan-threshold:100000}") int parallelScanThreshold,
+            @Value("${book.columnar.scan-parallelism:0}") int scanParallelism) {
+        this.bookDao = bookDao;
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookQueryCompiler = bookQueryCompiler;
+        this.compactionThreshold = compactionThreshold;
+        this.parallelScanThreshold = parallelScanThreshold;
+        this.scanPool = new ForkJoinPool(
+                scanParallelism > 0 ? scanParallelism : Runtime.getRuntime().availableProcessors());
+
+        List<BookColumns.Row> rows = loadRows();
+        catalog = new Catalog(new BookColumns(rows), new BitSet(), Map.of());
+        Logger.getAnonymousLogger().log(
+                Level.INFO, String.format("Loaded %d books into the columnar catalog", rows.size()));
+        rebuildExecutor.scheduleWithFixedDelay(
+                this::reload, reloadInterval.toMillis(), reloadInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<Book> selectBooks(BookQuery query) {
+        List<Book> books = new ArrayList<>();
+        scan(query, (columns, row) -> {
+            books.add(columns.bookAt(row));
+            return true;
+        });
+        return books;
+    }
+
+    @Override
+    public BookPage<Book> selectBookPage(BookQuery query) {
+        List<Book> books = new ArrayList<>(query.getLimit());
+        Object[] lastSortValue = new Object[1];
+        boolean[] hasNextPage = new boolean[1];
+        scan(query, (columns, row) -> {
+            // One extra row tells whether there is a next page
+            if (books.size() == query.getLimit()) {
+                hasNextPage[0] = true;
+                return false;
+            }
+            books.add(columns.bookAt(row));
+            if (query.getSortBy() != null) {
+                lastSortValue[0] = columns.sortValueAt(query.getSortBy(), row);
+            }
+            return true;
+        });
+
+        String nextCursor = null;
+        if (hasNextPage[0]) {
+            nextCursor = new BookCursor(
+                    query.getSortBy(),
+                    query.getSortingOrder(),
+                    lastSortValue[0],
+                    books.get(books.size() - 1).getId()).encode();
+        }
+        return new BookPage<>(books, nextCursor);
+    }
+
+    @Override
+    public void streamBooks(BookQuery query, Consumer<Book> consumer) {
+        scan(query, (columns, row) -> {
+            consumer.accept(columns.bookAt(row));
+            return true;
+        });
+    }
+
+    @Override
+    public int insertBook(UUID id, Book book) {
+        int inserted = bookDao.insertBook(id, book);
+        if (inserted > 0) {
+            refresh(List.of(id));
+        }
+        return inserted;
+    }
+
+    @Override
+    public int[] insertBooks(List<Book> books) {
+        int[] results = bookDao.insertBooks(books);
+        refresh(books.stream().map(Book::getId).toList());
+        return results;
+    }
+
+    @Override
+    public int deleteBookById(UUID id) {
+        return deleteBooksByIds(List.of(id));
+    }
+
+    @Override
+    public int deleteBooksByIds(List<UUID> ids) {
+        int deleted = bookDao.deleteBooksByIds(ids);
+        if (deleted > 0) {
+            synchronized (writeLock) {
+                apply(List.of(), ids);
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public int updateBookById(UUID id, Book book) {
+        int updated = bookDao.updateBookById(id, book);
+        refresh(List.of(id));
+        return updated;
+    }
+
+    @Override
+    public int updateColumnValue(UUID id, String columnName, String newValue) {
+        int updated = bookDao.updateColumnValue(id, columnName, newValue);
+        refresh(List.of(id));
+        return updated;
+    }
+
+    @Override
+    public int updateColumnValue(UUID id, String columnName, Integer newValue) {
+        int updated = bookDao.updateColumnValue(id, columnName, newValue);
+        refresh(List.of(id));
+        return updated;
+    }
+
+    // Covers only change the picture id the listings carry
+    @Override
+    public int insertImage(UUID bookId, byte[] imageAsByteArray) {
+        int replaced = bookDao.insertImage(bookId, imageAsByteArray);
+        refresh(List.of(bookId));
+        return replaced;
+    }
+
+    @Override
+    public int insertImages(Map<UUID, byte[]> imagesByBookId) {
+        int updated = bookDao.insertImages(imagesByBookId);
+        refresh(imagesByBookId.keySet());
+        return updated;
+    }
+
+    @Override
+    public void insertImageVariants(UUID pictureId, List<ImageVariant> variants) {
+        bookDao.insertImageVariants(pictureId, variants);
+    }
+
+    @Override
+    public Optional<Book> selectBookById(UUID id) {
+        return bookDao.selectBookById(id);
+    }
+
+    @Override
+    public Optional<AssociatedImage> getImageForBook(UUID id) {
+        return bookDao.getImageForBook(id);
+    }
+
+    @Override
+    public Optional<AssociatedImage> getPictureById(UUID pictureId) {
+        return bookDao.getPictureById(pictureId);
+    }
+
+    @Override
+    public Optional<AssociatedImage> getImageVariantForBook(UUID id, int width) {
+        return bookDao.getImageVariantForBook(id, width);
+    }
+
+    // The duplicate checks guard writes, so they always ask the database
+    @Override
+    public Optional<Book> selectBookByNameAndAuthor(String workTitle, String primaryAuthor) {
+        return bookDao.selectBookByNameAndAuthor(workTitle, primaryAuthor);
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> selectExistingTitleAuthorPairs(
+            List<Map.Entry<String, String>> titleAuthorPairs) {
+        return bookDao.selectExistingTitleAuthorPairs(titleAuthorPairs);
+    }
+
+    @Override
+    public List<Book> selectBooksWithoutCover(UUID afterId, int limit) {
+        return bookDao.selectBooksWithoutCover(afterId, limit);
+    }
+
+    @Override
+    public void destroy() {
+        rebuildExecutor.shutdownNow();
+        scanPool.shutdownNow();
+    }
+
+    // Rebuilds the copy from the database
+    void reload() {
+        rebuild(this::loadRows);
+    }
+
+    // Folds the overlay into a new copy without going to the database
+    void compact() {
+        compactionQueued.set(false);
+        rebuild(() -> catalog.liveRows());
+    }
+
+    BookColumns baseColumns() {
+        return catalog.base;
+    }
+
+    // Books written since the copy was built
+    int overlaySize() {
+        return catalog.changes.size();
+    }
+
+    // Hands the matching rows to visitor in query's order until it returns false. The copy and the overlay are
+    // each walked along their permutation for the sort column and merged; rows the overlay replaced or that
+    // were deleted are masked out of the copy.
+    private void scan(BookQuery query, RowVisitor visitor) {
+        BookCursor after = query.isPaged() ? query.getAfter() : null;
+        if (after != null && !after.matches(query)) {
+            throw new IllegalArgumentException("Page token was issued for a different sort order");
+        }
+        Catalog current = catalog;
+        RowWalk base = new RowWalk(current.base, query, after, current.hidden);
+        RowWalk overlay = new RowWalk(current.overlay, query, after, null);
+        int direction = query.getSortBy() != null && query.getSortingOrder() == SortingOrder.DESC ? -1 : 1;
+        while (true) {
+            int baseRow = base.current();
+            int overlayRow = overlay.current();
+            if (baseRow < 0 && overlayRow < 0) {
+                return;
+            }
+            boolean fromBase = overlayRow < 0 || baseRow >= 0
+                    && direction * current.base.compareRows(query.getSortBy(), baseRow, current.overlay, overlayRow) < 0;
+            RowWalk next = fromBase ? base : overlay;
+            if (!visitor.visit(next.columns, next.current())) {
+                return;
+            }
+            next.advance();
+        }
+    }
+
+    // Reads the books back after a write, under the write lock so a slower writer can't apply an older read
+    // over a newer one. Ids that are no longer in the database are dropped.
+    private void refresh(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String[] idArray = ids.stream().map(UUID::toString).toArray(String[]::new);
+        String idCondition = bookQueryCompiler.getDialect() == SqlDialect.H2
+                ? "id = ANY(CAST(? AS UUID ARRAY))"
+                : "id = ANY(?::uuid[])";
+        synchronized (writeLock) {
+            List<BookColumns.Row> rows = jdbcTemplate.query(
+                    "SELECT\n" + BookQueryCompiler.BOOK_COLUMNS + "FROM book\nWHERE " + idCondition,
+                    rowMapper,
+                    (Object) idArray);
+            Set<UUID> missing = new HashSet<>(ids);
+            rows.forEach(row -> missing.remove(row.getId()));
+            apply(rows, missing);
+        }
+    }
+
+    // Must hold writeLock
+    private void apply(List<BookColumns.Row> upserts, Collection<UUID> deleted) {
+        Map<UUID, BookColumns.Row> changes = new HashMap<>(catalog.changes);
+        BitSet hidden = (BitSet) catalog.hidden.clone();
+        for (UUID id : deleted) {
+            changes.remove(id);
+            hide(hidden, catalog.base, id);
+        }
+        for (BookColumns.Row row : upserts) {
+            changes.put(row.getId(), row);
+            hide(hidden, catalog.base, row.getId());
+        }
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.addAll(deleted);
+            upserts.forEach(row -> changedDuringRebuild.add(row.getId()));
+        }
+        catalog = new Catalog(catalog.base, hidden, changes);
+        if (changes.size() > compactionThreshold && compactionQueued.compareAndSet(false, true)) {
+            rebuildExecutor.execute(this::compact);
+        }
+    }
+
+    // Builds a new copy outside the lock; writes made meanwhile are carried over into its overlay, since they
+    // are at least as recent as what the copy was built from
+    private void rebuild(Supplier<List<BookColumns.Row>> rows) {
+        try {
+            synchronized (writeLock) {
+                changedDuringRebuild = new HashSet<>();
+            }
+            BookColumns base = new BookColumns(rows.get());
+            synchronized (writeLock) {
+                Map<UUID, BookColumns.Row> changes = new HashMap<>();
+                BitSet hidden = new BitSet();
+                for (UUID id : changedDuringRebuild) {
+                    BookColumns.Row row = catalog.changes.get(id);
+                    if (row != null) {
+                        changes.put(id, row);
+                    }
+                    hide(hidden, base, id);
+                }
+                catalog = new Catalog(base, hidden, changes);
+                changedDuringRebuild = null;
+            }
+        } catch (RuntimeException e) {
+            synchronized (writeLock) {
+                changedDuringRebuild = null;
+            }
+            Logger.getAnonymousLogger().log(Level.WARNING, "Couldn't rebuild the columnar book catalog", e);
+        }
+    }
+
+    private List<BookColumns.Row> loadRows() {
+        return jdbcTemplate.query("SELECT\n" + BookQueryCompiler.BOOK_COLUMNS + "FROM book", rowMapper);
+    }
+
+    private static void hide(BitSet hidden, BookColumns base, UUID id) {
+        int row = base.rowOf(id);
+        if (row >= 0) {
+            hidden.set(row);
+        }
+    }
+
+    private interface RowVisitor {
+        boolean visit(BookColumns columns, int row);
+    }
+
+    // The copy plus the writes since it was built: rows of base in hidden were replaced or deleted, and
+    // overlay holds the current version of every book written since
+    private static final class Catalog {
+        private final BookColumns base;
+        private final BitSet hidden;
+        private final Map<UUID, BookColumns.Row> changes;
+        private final BookColumns overlay;
+
+        private Catalog(BookColumns base, BitSet hidden, Map<UUID, BookColumns.Row> changes) {
+            this.base = base;
+            this.hidden = hidden;
+            this.changes = changes;
+            this.overlay = changes.isEmpty() ? BookColumns.EMPTY : new BookColumns(List.copyOf(changes.values()));
+        }
+
+        private List<BookColumns.Row> liveRows() {
+            List<BookColumns.Row> rows = new ArrayList<>(base.size() - hidden.cardinality() + changes.size());
+            for (int row = 0; row < base.size(); ++row) {
+                if (!hidden.get(row)) {
+                    rows.add(base.rowAt(row));
+                }
+            }
+            rows.addAll(changes.values());
+            return rows;
+        }
+    }
+
+    // One side of the merge: the matching rows of a BookColumns in the query's order, from the cursor on
+    private final class RowWalk {
+        private final BookColumns columns;
+        private final int[] order;
+        private final BitSet matching;
+        private final int step;
+        private int position;
+
+        private RowWalk(BookColumns columns, BookQuery query, BookCursor after, BitSet hidden) {
+            this.columns = columns;
+            BookSortColumn sortBy = query.getSortBy();
+            order = columns.sortedRows(sortBy);
+            matching = columns.matchingRows(query, hidden, scanPool, parallelScanThreshold);
+            boolean descending = sortBy != null && query.getSortingOrder() == SortingOrder.DESC;
+            step = descending ? -1 : 1;
+            if (after == null) {
+                position = descending ? order.length - 1 : 0;
+            } else {
+                // seekPosition is the first row after the cursor ascending; descending starts just before it,
+                // skipping the cursor's own row
+                position = columns.seekPosition(query, after);
+                if (descending) {
+                    --position;
+                    if (position >= 0 && columns.compareToCursor(sortBy, order[position], after) == 0) {
+                        --position;
+                    }
+                }
+            }
+            skipNonMatching();
+        }
+
+        // The current row, or -1 once the walk is done
+        private int current() {
+            return position >= 0 && position < order.length ? order[position] : -1;
+        }
+
+        private void advance() {
+            position += step;
+            skipNonMatching();
+        }
+
+        private void skipNonMatching() {
+            while (position >= 0 && position < order.length && !matching.get(order[position])) {
+                position += step;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.aml.dao.metrics;
+
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookQueryCompiler;
+import com.example.aml.model.BookPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Times every BookDao, BookFacetsDao and BookSearchDao call (book.dao.calls) and counts the rows the list
+// queries return (book.dao.rows).
+// Both are tagged with the endpoint that made the call and, for BookQuery methods, the query shape from
+// BookQueryCompiler, so slow filter combinations show up per shape. Calls made outside a request
+// (cover lookups, the backfill, streamed exports) are tagged endpoint="none".
+// A DAO call made from inside another one, like the columnar catalog writing through to the postgres BookDao,
+// isn't recorded separately: each call the service makes is counted once, with its full latency.
+@Aspect
+@Component
+public class BookDaoMetricsAspect {
+    static final String CALLS_METRIC = "book.dao.calls";
+    static final String ROWS_METRIC = "book.dao.rows";
+    private static final String NONE = "none";
+    private static final ThreadLocal<Boolean> IN_TIMED_CALL = ThreadLocal.withInitial(() -> false);
+
+    private final MeterRegistry meterRegistry;
+    private final BookQueryCompiler bookQueryCompiler;
+
+    @Autowired
+    public BookDaoMetricsAspect(MeterRegistry meterRegistry, BookQueryCompiler bookQueryCompiler) {
+        this.meterRegistry = meterRegistry;
+        this.bookQueryCompiler = bookQueryCompiler;
+    }
+
+    @Around("execution(* com.example.aml.dao.BookDao.*(..))"
+            + " || execution(* com.example.aml.dao.BookFacetsDao.*(..))"
+            + " || execution(* com.example.aml.dao.BookSearchDao.*(..))")
+    public Object timeBookDaoCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (IN_TIMED_CALL.get()) {
+            return joinPoint.proceed();
+        }
+        IN_TIMED_CALL.set(true);
+        try {
+            return timeOutermostCall(joinPoint);
+        } finally {
+            IN_TIMED_CALL.remove();
+        }
+    }
+
+    private Object timeOutermostCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object[] args = joinPoint.getArgs();
+        String shape = args.length > 0 && args[0] instanceof BookQuery query
+                ? bookQueryCompiler.shapeOf(query)
+                : NONE;
+        Tags tags = Tags.of(
+                "method", joinPoint.getSignature().getName(),
+                "endpoint", currentEndpoint(),
+                "shape", shape);
+
+        // streamBooks hands its rows to a consumer instead of returning them, so count them on the way through
+        LongAdder streamedRows = null;
+        if (args.length == 2 && args[1] instanceof Consumer<?> consumer) {
+            LongAdder rows = new LongAdder();
+            args[1] = countingConsumer(consumer, rows);
+            streamedRows = rows;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            Object result = joinPoint.proceed(args);
+            outcome = "success";
+            long rows = streamedRows != null ? streamedRows.sum() : rowCount(result);
+            if (rows >= 0) {
+                meterRegistry.counter(ROWS_METRIC, tags).increment(rows);
+            }
+            return result;
+        } finally {
+            sample.stop(Timer.builder(CALLS_METRIC)
+                    .tags(tags)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    // -1 for results that aren't lists of books
+    private static long rowCount(Object result) {
+        if (result instanceof List<?> list) {
+            return list.size();
+        }
+        if (result instanceof BookPage<?> page) {
+            return page.getItems().size();
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Consumer<T> countingConsumer(Consumer<?> consumer, LongAdder rows) {
+        Consumer<T> delegate = (Consumer<T>) consumer;
+        return item -> {
+            rows.increment();
+            delegate.accept(item);
+        };
+    }
+
+    // The matched route (e.g. "GET /api/v1/book/{id}") rather than the raw path, so ids don't explode the tag
+    private static String currentEndpoint() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            Object pattern = attributes.getRequest().getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null) {
+                return attributes.getRequest().getMethod() + ' ' + pattern;
+            }
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.aml.dao.query;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+// Position of the last row on a page: the sort column's value plus the id as a tie-breaker.
+// Clients only ever see the encoded form, so the layout can change without breaking them.
+@Getter
+@RequiredArgsConstructor
+public class BookCursor {
+    private static final String VERSION = "v2";
+    private static final String LEGACY_VERSION = "v1"; // no NULL marker, sort values are stored bare
+    private static final String NO_SORT_COLUMN = "-";
+    // The sort value is stored as "=<value>", or as this for NULL
+    private static final String NULL_SORT_VALUE = "-";
+    private static final String SORT_VALUE_PREFIX = "=";
+
+    private final BookSortColumn sortBy; // null when the page is in plain id order
+    private final SortingOrder sortingOrder;
+    private final Object sortValue;
+    private final UUID id;
+
+    public String encode() {
+        String raw = String.join("\n",
+                VERSION,
+                sortBy == null ? NO_SORT_COLUMN : sortBy.getColumnName(),
+                sortingOrder.name(),
+                id.toString(),
+                sortBy == null ? "" : formatSortValue(sortValue));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookCursor decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed page token", e);
+        }
+        String[] parts = raw.split("\n", 5);
+        if (parts.length != 5 || !(VERSION.equals(parts[0]) || LEGACY_VERSION.equals(parts[0]))) {
+            throw new IllegalArgumentException("Malformed page token");
+        }
+
+        BookSortColumn sortBy = null;
+        if (!NO_SORT_COLUMN.equals(parts[1])) {
+            sortBy = BookSortColumn.fromParam(parts[1])
+                    .orElseThrow(() -> new IllegalArgumentException("Malformed page token"));
+        }
+        try {
+            return new BookCursor(
+                    sortBy,
+                    SortingOrder.valueOf(parts[2]),
+                    sortBy == null ? null : parseSortValue(sortBy, parts[0], parts[4]),
+                    UUID.fromString(parts[3]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed page token", e);
+        }
+    }
+
+    public boolean matches(BookQuery query) {
+        return sortBy == query.getSortBy()
+                && (sortBy == null || sortingOrder == query.getSortingOrder());
+    }
+
+    private static String formatSortValue(Object value) {
+        if (value == null) {
+            return NULL_SORT_VALUE;
+        }
+        if (value instanceof Timestamp timestamp) {
+            return SORT_VALUE_PREFIX + timestamp.toInstant();
+        }
+        return SORT_VALUE_PREFIX + value;
+    }
+
+    private static Object parseSortValue(BookSortColumn sortBy, String version, String field) {
+        String value = field;
+        if (VERSION.equals(version)) {
+            if (NULL_SORT_VALUE.equals(field)) {
+                return null;
+            }
+            if (!field.startsWith(SORT_VALUE_PREFIX)) {
+                throw new IllegalArgumentException("Malformed page token");
+            }
+            value = field.substring(SORT_VALUE_PREFIX.length());
+        }
+        return switch (sortBy) {
+            case WORK_TITLE, PRIMARY_AUTHOR -> value;
+            case YEAR_PUBLISHED, WORD_COUNT -> Integer.parseInt(value);
+            case CREATED_AT, UPDATED_AT -> Timestamp.from(Instant.parse(value));
+        };
+    }
+}
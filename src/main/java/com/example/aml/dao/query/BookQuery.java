@@ -0,0 +1,32 @@
+package com.example.aml.dao.query;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+// Filter and sort criteria for a book listing. A null field means "not filtered on".
+@Getter
+@Builder(toBuilder = true)
+public class BookQuery {
+    private final String workTitle;
+    private final String primaryAuthor;
+    private final Integer wordCountLowerLimit;
+    private final Integer wordCountUpperLimit;
+    private final Integer yearPublishedLowerLimit;
+    private final Integer yearPublishedUpperLimit;
+    private final List<String> genresAny; // books with at least one of these genres
+    private final List<String> genresAll; // books with every one of these genres
+    private final BookSortColumn sortBy;
+    @Builder.Default private final SortingOrder sortingOrder = SortingOrder.ASC;
+    private final Integer limit; // set for keyset-paged queries
+    private final BookCursor after;
+
+    public boolean isPaged() {
+        return limit != null;
+    }
+
+    public static BookQuery unfiltered() {
+        return BookQuery.builder().build();
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.aml.dao.query;
+
+import com.example.aml.config.BookConfig;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.example.aml.utility.BookConstants.BOOK_FIELD_PRIMARY_AUTHOR;
+import static com.example.aml.utility.BookConstants.BOOK_FIELD_WORK_TITLE;
+
+// Turns a BookQuery into parameterized SQL. Every value is a bind parameter and every column
+// comes from a fixed set, so the number of distinct statement texts is bounded by the filter
+// combinations. Postgres (and PgJDBC's prepared statement cache) can then reuse a plan per shape.
+@Component
+public class BookQueryCompiler {
+    public static final String BOOK_COLUMNS = """
+            id,
+            work_title,
+            primary_author,
+            year_published,
+            word_count,
+            picture_id,
+            created_at,
+            updated_at,
+            genres
+            """;
+
+    @Getter
+    private final SqlDialect dialect;
+    private final ConcurrentMap<String, QueryShape> shapeCache = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BookQueryCompiler(BookConfig bookConfig) {
+        this(SqlDialect.fromProfile(bookConfig.getActiveProfile()));
+    }
+
+    public BookQueryCompiler(SqlDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    public CompiledBookQuery compile(BookQuery query) {
+        QueryParts parts = collect(query, dialect);
+        QueryShape queryShape = shapeCache.computeIfAbsent(
+                parts.shape, key -> new QueryShape(render(parts.predicates, parts.orderBy)));
+        queryShape.executions.increment();
+
+        return new CompiledBookQuery(parts.shape, queryShape.sql, parts.args.toArray());
+    }
+
+    // Only the filters of query, as a condition for a WHERE clause ("" when nothing is filtered), for
+    // aggregating over the matching books. Sorting and paging are ignored.
+    public CompiledBookQuery compileFilter(BookQuery query) {
+        QueryParts parts = collect(query.toBuilder().sortBy(null).limit(null).after(null).build(), dialect);
+        return new CompiledBookQuery(parts.shape, String.join(" AND ", parts.predicates), parts.args.toArray());
+    }
+
+    // The shape compile would assign, without rendering SQL or counting an execution (used to tag metrics)
+    public String shapeOf(BookQuery query) {
+        return collect(query, dialect).shape;
+    }
+
+    private static QueryParts collect(BookQuery query, SqlDialect dialect) {
+        List<String> shapeKeys = new ArrayList<>();
+        List<String> predicates = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+
+        addSubstringPredicate(shapeKeys, predicates, args, BOOK_FIELD_PRIMARY_AUTHOR, query.getPrimaryAuthor());
+        addSubstringPredicate(shapeKeys, predicates, args, BOOK_FIELD_WORK_TITLE, query.getWorkTitle());
+
+        addRangePredicate(shapeKeys, predicates, args, "word_count", "<=", query.getWordCountUpperLimit());
+        addRangePredicate(shapeKeys, predicates, args, "word_count", ">=", query.getWordCountLowerLimit());
+        addRangePredicate(shapeKeys, predicates, args, "year_published", "<=", query.getYearPublishedUpperLimit());
+        addRangePredicate(shapeKeys, predicates, args, "year_published", ">=", query.getYearPublishedLowerLimit());
+
+        addGenrePredicate(shapeKeys, predicates, args, dialect, "&&", query.getGenresAny());
+        addGenrePredicate(shapeKeys, predicates, args, dialect, "@>", query.getGenresAll());
+
+        if (query.isPaged() && query.getAfter() != null) {
+            addSeekPredicate(shapeKeys, predicates, args, query);
+        }
+
+        String orderBy = orderByClause(query);
+        if (query.isPaged()) {
+            // One extra row tells the caller whether there is a next page
+            args.add(query.getLimit() + 1);
+        }
+        String shape = String.join(",", shapeKeys) + '|' + sortKey(query);
+        return new QueryParts(shape, predicates, args, orderBy);
+    }
+
+    public int getShapeCount() {
+        return shapeCache.size();
+    }
+
+    public List<QueryShapeStatistics> getShapeStatistics() {
+        return shapeCache.entrySet().stream()
+                .map(entry -> new QueryShapeStatistics(
+                        entry.getKey(), entry.getValue().sql, entry.getValue().executions.sum()))
+                .sorted(Comparator.comparingLong(QueryShapeStatistics::getExecutions).reversed())
+                .toList();
+    }
+
+    // lower(col) LIKE '%value%' is the expression the trigram indexes from V2 are built on, so Postgres
+    // can answer it with a bitmap index scan. H2 has no trigram indexes but runs the same predicate.
+    private static void addSubstringPredicate(
+            List<String> shapeKeys, List<String> predicates, List<Object> args, String columnName, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return;
+        }
+        shapeKeys.add(columnName + "~");
+        predicates.add("LOWER(" + columnName + ") LIKE ?");
+        args.add('%' + escapeLikePattern(value.toLowerCase(Locale.ROOT)) + '%');
+    }
+
+    // Backslash is the default LIKE escape character in both Postgres and H2
+    private static String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static void addRangePredicate(
+            List<String> shapeKeys, List<String> predicates, List<Object> args,
+            String columnName, String operator, Integer limit) {
+        if (limit == null) {
+            return;
+        }
+        shapeKeys.add(columnName + operator);
+        predicates.add(columnName + ' ' + operator + " ?");
+        args.add(limit);
+    }
+
+    // The genres travel as one array parameter, so the statement text doesn't depend on how many there are.
+    // On Postgres "&&" (overlaps) and "@>" (contains) are answered by the GIN index from V8. H2 has neither
+    // operator, so it checks each requested genre with ARRAY_CONTAINS; a book without genres matches neither.
+    private static void addGenrePredicate(
+            List<String> shapeKeys, List<String> predicates, List<Object> args,
+            SqlDialect dialect, String operator, List<String> genres) {
+        if (genres == null || genres.isEmpty()) {
+            return;
+        }
+        shapeKeys.add("genres" + operator);
+        if (dialect != SqlDialect.H2) {
+            predicates.add("genres " + operator + " CAST(? AS text[])");
+        } else if (operator.equals("&&")) {
+            predicates.add("""
+                    EXISTS (SELECT 1 FROM UNNEST(CAST(? AS VARCHAR ARRAY)) AS requested(genre) \
+                    WHERE ARRAY_CONTAINS(book.genres, requested.genre))""");
+        } else {
+            predicates.add("""
+                    book.genres IS NOT NULL AND NOT EXISTS (SELECT 1 FROM UNNEST(CAST(? AS VARCHAR ARRAY)) \
+                    AS requested(genre) WHERE NOT ARRAY_CONTAINS(book.genres, requested.genre))""");
+        }
+        args.add(genres.toArray(String[]::new));
+    }
+
+    // Seeks past the previous page with a row-value comparison on (sort column, id) instead of OFFSET,
+    // so a deep page costs the same as the first one.
+    // A row comparison is never true for NULL, so on nullable columns the NULL rows are added explicitly:
+    // they come after every value ascending and before them descending (see orderByClause).
+    private static void addSeekPredicate(
+            List<String> shapeKeys, List<String> predicates, List<Object> args, BookQuery query) {
+        BookCursor cursor = query.getAfter();
+        if (!cursor.matches(query)) {
+            throw new IllegalArgumentException("Page token was issued for a different sort order");
+        }
+        BookSortColumn sortBy = query.getSortBy();
+        if (sortBy == null) {
+            shapeKeys.add("seek");
+            predicates.add("id > ?");
+            args.add(cursor.getId());
+            return;
+        }
+        String column = sortBy.getColumnName();
+        boolean descending = query.getSortingOrder() == SortingOrder.DESC;
+        String operator = descending ? "<" : ">";
+        if (cursor.getSortValue() == null) {
+            // Still among the NULL rows: the rest of them, then (descending) every row with a value
+            shapeKeys.add("seek=null");
+            predicates.add(descending
+                    ? "(" + column + " IS NULL AND id < ? OR " + column + " IS NOT NULL)"
+                    : "(" + column + " IS NULL AND id > ?)");
+            args.add(cursor.getId());
+            return;
+        }
+        shapeKeys.add("seek");
+        String seek = "(" + column + ", id) " + operator + " (?, ?)";
+        predicates.add(sortBy.isNullable() && !descending ? "(" + seek + " OR " + column + " IS NULL)" : seek);
+        args.add(cursor.getSortValue());
+        args.add(cursor.getId());
+    }
+
+    // The part of the shape orderByClause depends on, spelled without SQL so the shape can be used as a metric tag
+    private static String sortKey(BookQuery query) {
+        String paged = query.isPaged() ? ":paged" : "";
+        if (query.getSortBy() == null) {
+            return query.isPaged() ? "id:ASC" + paged : "";
+        }
+        return query.getSortBy().getColumnName() + ':' + query.getSortingOrder().name() + paged;
+    }
+
+    private static String orderByClause(BookQuery query) {
+        if (query.getSortBy() == null) {
+            return query.isPaged() ? "ORDER BY id\nLIMIT ?" : "";
+        }
+        String order = query.getSortingOrder().name();
+        String orderBy = "ORDER BY " + query.getSortBy().getColumnName() + ' ' + order;
+        if (query.getSortBy().isNullable()) {
+            // Postgres' default placement, spelled out so H2 (which puts NULLs first ascending) agrees
+            orderBy += query.getSortingOrder() == SortingOrder.DESC ? " NULLS FIRST" : " NULLS LAST";
+        }
+        return query.isPaged() ? orderBy + ", id " + order + "\nLIMIT ?" : orderBy;
+    }
+
+    private static String render(List<String> predicates, String orderBy) {
+        StringBuilder sql = new StringBuilder("SELECT\n").append(BOOK_COLUMNS).append("FROM book\n");
+        if (!predicates.isEmpty()) {
+            sql.append("WHERE ").append(String.join(" AND ", predicates)).append('\n');
+        }
+        sql.append(orderBy);
+        return sql.toString().trim();
+    }
+
+    private static final class QueryParts {
+        private final String shape;
+        private final List<String> predicates;
+        private final List<Object> args;
+        private final String orderBy;
+
+        private QueryParts(String shape, List<String> predicates, List<Object> args, String orderBy) {
+            this.shape = shape;
+            this.predicates = predicates;
+            this.args = args;
+            this.orderBy = orderBy;
+        }
+    }
+
+    private static final class QueryShape {
+        private final String sql;
+        private final LongAdder executions = new LongAdder();
+
+        private QueryShape(String sql) {
+            this.sql = sql;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.aml.dao.query;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+// Position of the last row on a page of search results: its rank plus the id as a tie-breaker.
+// Like BookCursor, clients only see the encoded form; the version tag keeps the two from being mixed up.
+@Getter
+@RequiredArgsConstructor
+public class BookSearchCursor {
+    private static final String VERSION = "s1";
+
+    private final float rank;
+    private final UUID id;
+
+    public String encode() {
+        String raw = String.join("\n", VERSION, Float.toString(rank), id.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookSearchCursor decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed page token", e);
+        }
+        String[] parts = raw.split("\n", 3);
+        if (parts.length != 3 || !VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("Malformed page token");
+        }
+        try {
+            return new BookSearchCursor(Float.parseFloat(parts[1]), UUID.fromString(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed page token", e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.aml.dao.query;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+// The only columns a client may sort by -- sort_by is never spliced into SQL directly
+@Getter
+public enum BookSortColumn {
+    WORK_TITLE("work_title", false),
+    PRIMARY_AUTHOR("primary_author", false),
+    YEAR_PUBLISHED("year_published", true),
+    WORD_COUNT("word_count", true),
+    CREATED_AT("created_at", false),
+    UPDATED_AT("updated_at", false);
+
+    private final String columnName;
+    private final boolean nullable;
+
+    BookSortColumn(String columnName, boolean nullable) {
+        this.columnName = columnName;
+        this.nullable = nullable;
+    }
+
+    public static Optional<BookSortColumn> fromParam(String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        String trimmed = value.trim();
+        return Arrays.stream(values())
+                .filter(column -> column.columnName.equalsIgnoreCase(trimmed))
+                .findFirst();
+    }
+}
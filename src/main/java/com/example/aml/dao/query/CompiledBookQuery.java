@@ -0,0 +1,12 @@
+package com.example.aml.dao.query;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class CompiledBookQuery {
+    private final String shape;
+    private final String sql;
+    private final Object[] args;
+}
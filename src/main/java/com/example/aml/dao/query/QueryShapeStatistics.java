@@ -0,0 +1,13 @@
+package com.example.aml.dao.query;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class QueryShapeStatistics {
+    @JsonProperty("shape") private final String shape;
+    @JsonProperty("sql") private final String sql;
+    @JsonProperty("executions") private final long executions;
+}
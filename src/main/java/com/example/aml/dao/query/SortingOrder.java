@@ -0,0 +1,16 @@
+package com.example.aml.dao.query;
+
+import java.util.Locale;
+
+public enum SortingOrder {
+    ASC,
+    DESC;
+
+    // Anything other than DESC (including a missing value) falls back to the database default of ASC
+    public static SortingOrder fromParam(String value) {
+        if (value != null && value.trim().toUpperCase(Locale.ROOT).equals("DESC")) {
+            return DESC;
+        }
+        return ASC;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.aml.dao.query;
+
+public enum SqlDialect {
+    POSTGRES,
+    H2; // used by the "test" profile
+
+    public static SqlDialect fromProfile(String activeProfile) {
+        return "test".equals(activeProfile) ? H2 : POSTGRES;
+    }
+}
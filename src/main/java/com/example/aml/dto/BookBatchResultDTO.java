@@ -0,0 +1,27 @@
+package com.example.aml.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.UUID;
+
+// Outcome for one entry of a POST /api/v1/book/batch request, in request order
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@RequiredArgsConstructor(onConstructor=@__(@JsonCreator(mode = JsonCreator.Mode.PROPERTIES)))
+public class BookBatchResultDTO {
+    @JsonProperty("index") private final int index;
+    @JsonProperty("status") private final Status status;
+    @JsonProperty("id") private final UUID id; // only set for INSERTED
+    @JsonProperty("work_title") private final String workTitle;
+    @JsonProperty("primary_author") private final String primaryAuthor;
+
+    public enum Status {
+        INSERTED,
+        DUPLICATE,
+        INVALID
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.aml.mapper;
+
+import com.example.aml.dto.BookDTO;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.aml.utility.BookConstants.BOOK_FIELD_PRIMARY_AUTHOR;
+import static com.example.aml.utility.BookConstants.BOOK_FIELD_WORK_TITLE;
+
+// Reads the books.csv layout used by ManualScripts/csvPostRequests.py:
+// a header row with work_title, primary_author, year_published, word_count and optionally genres (';'-separated)
+@Service
+public class BookCsvMapper {
+    private static final CsvSchema SCHEMA = CsvSchema.emptySchema().withHeader();
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    // Rows that can't be turned into a BookDTO come back as null so their position is kept
+    public List<BookDTO> readBooks(InputStream inputStream) throws IOException {
+        List<BookDTO> books = new ArrayList<>();
+        try (MappingIterator<Map<String, String>> rows =
+                     csvMapper.readerForMapOf(String.class).with(SCHEMA).readValues(inputStream)) {
+            while (rows.hasNextValue()) {
+                books.add(toBookDTO(rows.nextValue()));
+            }
+        }
+        return books;
+    }
+
+    private static BookDTO toBookDTO(Map<String, String> row) {
+        try {
+            return new BookDTO(
+                    null,
+                    row.get(BOOK_FIELD_WORK_TITLE),
+                    row.get(BOOK_FIELD_PRIMARY_AUTHOR),
+                    parseInt(row.get("year_published")),
+                    parseInt(row.get("word_count")),
+                    parseGenres(row.get("genres")));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int parseInt(String value) {
+        return value == null || value.isBlank() ? 0 : Integer.parseInt(value.trim());
+    }
+
+    private static String[] parseGenres(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return Arrays.stream(value.split(";"))
+                .map(String::trim)
+                .filter(genre -> !genre.isEmpty())
+                .toArray(String[]::new);
+    }
+}
@@ -11,4 +11,5 @@ import java.util.UUID;
 public class AssociatedImage {
     private final UUID id;
     private final byte[] picture;
+    private final String contentType;
 }
@@ -0,0 +1,19 @@
+package com.example.aml.model;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class BookCoverLookup {
+    private final String workTitleKey;
+    private final String primaryAuthorKey;
+    private final String coverUrl; // null when the cover API had no cover
+    private final String imageSha256;
+    private final Instant lookedUpAt;
+    private final Instant expiresAt;
+
+    public boolean isFound() {
+        return coverUrl != null;
+    }
+}
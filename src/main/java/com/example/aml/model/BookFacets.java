@@ -0,0 +1,18 @@
+package com.example.aml.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+
+// Book counts for a set of filters: per genre (most common first), per decade of year_published
+// (keyed by its first year) and per word_count bucket (in ascending order, empty buckets included)
+@Getter
+@RequiredArgsConstructor
+public class BookFacets {
+    @JsonProperty("total") private final long total;
+    @JsonProperty("genres") private final Map<String, Long> genres;
+    @JsonProperty("decades") private final Map<Integer, Long> decades;
+    @JsonProperty("word_counts") private final Map<String, Long> wordCounts;
+}
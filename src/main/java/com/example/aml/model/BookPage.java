@@ -0,0 +1,18 @@
+package com.example.aml.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Getter
+@RequiredArgsConstructor
+public class BookPage<T> {
+    private final List<T> items;
+    private final String nextCursor; // null on the last page
+
+    public <R> BookPage<R> map(Function<T, R> mapper) {
+        return new BookPage<>(items.stream().map(mapper).toList(), nextCursor);
+    }
+}
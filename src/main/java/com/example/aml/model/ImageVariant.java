@@ -0,0 +1,11 @@
+package com.example.aml.model;
+
+import lombok.Data;
+
+// A downscaled copy of a picture, stored in picture_variants
+@Data
+public class ImageVariant {
+    private final int width;
+    private final byte[] picture;
+    private final String contentType;
+}
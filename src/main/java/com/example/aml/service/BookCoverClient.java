@@ -0,0 +1,199 @@
+package com.example.aml.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Non-blocking client for the cover API and the image hosts it points at. Connections are pooled per route,
+// and besides the connect/response timeouts every exchange has an overall deadline, so a slow upstream
+// fails the returned future instead of holding a thread.
+// Each call's latency is recorded in book.cover.client, tagged by operation and outcome.
+@Component
+public class BookCoverClient implements DisposableBean {
+    static final String CALLS_METRIC = "book.cover.client";
+    private static final ObjectReader coverLookupReader = new ObjectMapper().readerFor(JsonNode.class);
+
+    private final CloseableHttpAsyncClient httpClient;
+    private final MeterRegistry meterRegistry;
+    private final String bookCoverApiUrl;
+    private final Duration requestTimeout;
+
+    @Autowired
+    public BookCoverClient(
+            @Value("${book-cover-api.url}") String bookCoverApiUrl,
+            @Value("${book-cover-api.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${book-cover-api.response-timeout:5s}") Duration responseTimeout,
+            @Value("${book-cover-api.request-timeout:10s}") Duration requestTimeout,
+            @Value("${book-cover-api.max-connections:50}") int maxConnections,
+            @Value("${book-cover-api.max-connections-per-route:10}") int maxConnectionsPerRoute,
+            MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.bookCoverApiUrl = bookCoverApiUrl;
+        this.requestTimeout = requestTimeout;
+        this.httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnectionsPerRoute)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.of(connectTimeout))
+                                .setSocketTimeout(Timeout.of(responseTimeout))
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        // How long a request may wait for a pooled connection when the route is at its limit
+                        .setConnectionRequestTimeout(Timeout.of(connectTimeout))
+                        .setResponseTimeout(Timeout.of(responseTimeout))
+                        .build())
+                .build();
+        this.httpClient.start();
+    }
+
+    // Completes with the cover URL, or empty when the API has none for the book. Any other failure, e.g. a 429
+    // or 5xx, completes the future exceptionally, so callers don't remember an outage as "no cover".
+    public CompletableFuture<Optional<String>> lookUpCoverUrl(String bookTitle, String authorName) {
+        URI uri = UriComponentsBuilder.fromHttpUrl(bookCoverApiUrl)
+                .queryParam("book_title", bookTitle)
+                .queryParam("author_name", authorName)
+                .encode()
+                .build()
+                .toUri();
+        return timed("lookup", () -> execute(SimpleRequestBuilder.get(uri).build())
+                .thenApply(response -> {
+                    if (response.getCode() == HttpStatus.SC_NOT_FOUND) {
+                        Logger.getAnonymousLogger().log(
+                                Level.INFO,
+                                String.format("Book Cover not found for '%s' by '%s'", bookTitle, authorName));
+                        return Optional.empty();
+                    }
+                    if (response.getCode() >= 300) {
+                        throw new IllegalStateException(String.format(
+                                "Cover lookup for '%s' by '%s' failed: %d", bookTitle, authorName, response.getCode()));
+                    }
+                    return parseCoverUrl(response.getBodyText());
+                }));
+    }
+
+    public CompletableFuture<Optional<byte[]>> downloadImage(String url) {
+        SimpleHttpRequest request;
+        try {
+            request = SimpleRequestBuilder.get(toHttpUri(url)).build();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return timed("download", () -> CompletableFuture.failedFuture(e));
+        }
+        return timed("download", () -> execute(request)
+                .thenApply(response -> {
+                    if (response.getCode() >= 300) {
+                        Logger.getAnonymousLogger().log(
+                                Level.WARNING,
+                                String.format("Couldn't download cover from %s: %d", url, response.getCode()));
+                        return Optional.empty();
+                    }
+                    return Optional.ofNullable(response.getBodyBytes());
+                }));
+    }
+
+    @Override
+    public void destroy() {
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+    private <T> CompletableFuture<Optional<T>> timed(String operation, Supplier<CompletableFuture<Optional<T>>> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return call.get().whenComplete((result, error) -> sample.stop(Timer.builder(CALLS_METRIC)
+                .tag("operation", operation)
+                .tag("outcome", error != null ? "error" : result.isPresent() ? "found" : "not_found")
+                .publishPercentileHistogram()
+                .register(meterRegistry)));
+    }
+
+    private CompletableFuture<SimpleHttpResponse> execute(SimpleHttpRequest request) {
+        CompletableFuture<SimpleHttpResponse> response = new CompletableFuture<>();
+        Future<SimpleHttpResponse> exchange = httpClient.execute(request, new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse result) {
+                response.complete(result);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                response.completeExceptionally(e);
+            }
+
+            @Override
+            public void cancelled() {
+                response.cancel(false);
+            }
+        });
+        // The socket timeouts only bound each read, so a response trickling in could still run long
+        response.orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        exchange.cancel(true);
+                    }
+                });
+        return response;
+    }
+
+    // A URL that can't be downloaded is as good as no cover
+    private static Optional<String> parseCoverUrl(String body) {
+        try {
+            JsonNode urlNode = coverLookupReader.<JsonNode>readValue(body).path("url");
+            if (!urlNode.isTextual()) {
+                return Optional.empty();
+            }
+            toHttpUri(urlNode.asText());
+            return Optional.of(urlNode.asText());
+        } catch (IOException e) {
+            Logger.getAnonymousLogger().log(
+                    Level.SEVERE,
+                    String.format("Unable to parse JSON. Error: %s", e));
+            return Optional.empty();
+        } catch (URISyntaxException e) {
+            Logger.getAnonymousLogger().log(
+                    Level.WARNING,
+                    String.format("Ignoring malformed cover URL. Error: %s", e));
+            return Optional.empty();
+        }
+    }
+
+    // Image URLs come from the cover API's responses, so they're checked before reaching the HTTP client
+    private static URI toHttpUri(String url) throws URISyntaxException {
+        URI uri = new URI(url);
+        if (!("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))
+                || uri.getHost() == null) {
+            throw new URISyntaxException(url, "Not an absolute http(s) URL");
+        }
+        return uri;
+    }
+}
@@ -1,58 +1,94 @@
 package com.example.aml.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.aml.dao.BookCoverLookupDao;
+import com.example.aml.model.BookCoverLookup;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.RestTemplate;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 @Service
 public class BookCoverService {
+    private final BookCoverClient bookCoverClient;
+    private final BookCoverLookupDao bookCoverLookupDao;
+    private final Duration lookupTtl;
+    private final Duration negativeLookupTtl;
 
-    @Value("${book-cover-api.url}")
-    private String bookCoverApiUrl;
-
-    private final RestTemplate restTemplate;
-
-    public BookCoverService(RestTemplateBuilder restTemplateBuilder) {
-        this.restTemplate = restTemplateBuilder.build();
+    public BookCoverService(
+            BookCoverClient bookCoverClient,
+            BookCoverLookupDao bookCoverLookupDao,
+            @Value("${book-cover-api.lookup-cache.ttl:30d}") Duration lookupTtl,
+            @Value("${book-cover-api.lookup-cache.negative-ttl:3d}") Duration negativeLookupTtl) {
+        this.bookCoverClient = bookCoverClient;
+        this.bookCoverLookupDao = bookCoverLookupDao;
+        this.lookupTtl = lookupTtl;
+        this.negativeLookupTtl = negativeLookupTtl;
     }
 
+    // Lookups are remembered in book_cover_lookup: a book known to have no cover costs no calls at all,
+    // and one with a known cover URL skips the lookup API and only downloads the image.
+    // The HTTP calls run on the client's I/O threads; only the lookup cache is read and written here.
     public Optional<byte[]> getBookCoverURL(String bookTitle, String authorName) {
+        String workTitleKey = normalizeKey(bookTitle);
+        String primaryAuthorKey = normalizeKey(authorName);
+        Optional<BookCoverLookup> cachedLookup =
+                bookCoverLookupDao.selectUnexpiredLookup(workTitleKey, primaryAuthorKey, Instant.now());
+        if (cachedLookup.isPresent()) {
+            if (!cachedLookup.get().isFound()) {
+                return Optional.empty();
+            }
+            Optional<byte[]> image = bookCoverClient.downloadImage(cachedLookup.get().getCoverUrl()).join();
+            if (image.isPresent()) {
+                if (!sha256(image.get()).equals(cachedLookup.get().getImageSha256())) {
+                    recordLookup(workTitleKey, primaryAuthorKey, cachedLookup.get().getCoverUrl(), image.get());
+                }
+                return image;
+            }
+            // The cached URL no longer serves an image, so look the cover up again
+        }
+
         if (authorName.isEmpty()) {
             authorName = " ";
         }
-        String apiUrl = bookCoverApiUrl + "?book_title=" + bookTitle + "&author_name=" + authorName;
-        String url = getImageURL(bookTitle, authorName, apiUrl);
-        if (url == null) return Optional.empty();
-        return Optional.ofNullable(restTemplate.getForObject(url, byte[].class));
+        Optional<String> url = bookCoverClient.lookUpCoverUrl(bookTitle, authorName).join();
+        if (url.isEmpty()) {
+            recordLookup(workTitleKey, primaryAuthorKey, null, null);
+            return Optional.empty();
+        }
+        Optional<byte[]> image = bookCoverClient.downloadImage(url.get()).join();
+        // A failed download doesn't mean there's no cover: the URL is kept without a hash, so the next call
+        // only retries the download
+        recordLookup(workTitleKey, primaryAuthorKey, url.get(), image.orElse(null));
+        return image;
+    }
+
+    private void recordLookup(String workTitleKey, String primaryAuthorKey, String coverUrl, byte[] image) {
+        Instant now = Instant.now();
+        bookCoverLookupDao.upsertLookup(new BookCoverLookup(
+                workTitleKey,
+                primaryAuthorKey,
+                coverUrl,
+                image == null ? null : sha256(image),
+                now,
+                now.plus(coverUrl == null ? negativeLookupTtl : lookupTtl)));
+    }
+
+    private static String normalizeKey(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
     }
 
-    private String getImageURL(
-            String bookTitle, String authorName, String apiUrl) {
-        String url = null;
+    private static String sha256(byte[] bytes) {
         try {
-            String result = restTemplate.getForObject(apiUrl, String.class);
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(result);
-            url = jsonNode.get("url").asText();
-        } catch (HttpServerErrorException err) {
-            Logger.getAnonymousLogger().log(
-                    Level.SEVERE,
-                    String.format("Book Cover not found for '%s' by '%s'", bookTitle, authorName));
-        } catch (JsonProcessingException e) {
-            Logger.getAnonymousLogger().log(
-                    Level.SEVERE,
-                    String.format("Unable to parse JSON. Error: %s", e));
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
-        return url;
     }
 }
 
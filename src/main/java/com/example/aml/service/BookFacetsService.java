@@ -0,0 +1,64 @@
+package com.example.aml.service;
+
+import com.example.aml.dao.BookFacetsDao;
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.model.BookFacets;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Facet counts for GET /api/v1/book/facets. Unfiltered counts are read from the book_facets view, which writes
+// mark stale; a background thread refreshes it at most once per book.facets.refresh-interval, so a bulk load
+// costs one refresh instead of one per row. The view starts out stale, since books may have changed while
+// the app was down.
+@Service
+public class BookFacetsService implements DisposableBean {
+    private final BookFacetsDao bookFacetsDao;
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    private final ScheduledExecutorService refreshExecutor =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("book-facets-refresh-"));
+
+    @Autowired
+    public BookFacetsService(
+            BookFacetsDao bookFacetsDao,
+            @Value("${book.facets.refresh-interval:1m}") Duration refreshInterval) {
+        this.bookFacetsDao = bookFacetsDao;
+        refreshExecutor.scheduleWithFixedDelay(
+                this::refreshIfStale, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public BookFacets getFacets(BookQuery query) {
+        return bookFacetsDao.selectBookFacets(query);
+    }
+
+    public void markStale() {
+        stale.set(true);
+    }
+
+    void refreshIfStale() {
+        if (!stale.getAndSet(false)) {
+            return;
+        }
+        try {
+            bookFacetsDao.refreshBookFacets();
+        } catch (RuntimeException e) {
+            stale.set(true); // try again on the next tick
+            Logger.getAnonymousLogger().log(Level.WARNING, "Couldn't refresh book facets", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+}
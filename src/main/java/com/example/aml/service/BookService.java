@@ -1,57 +1,81 @@
 package com.example.aml.service;
 
-import com.example.aml.config.BookConfig;
 import com.example.aml.dao.BookDao;
+import com.example.aml.dao.BookSearchDao;
+import com.example.aml.dao.query.BookCursor;
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookSearchCursor;
+import com.example.aml.dao.query.BookSortColumn;
+import com.example.aml.dao.query.SortingOrder;
+import com.example.aml.dto.BookBatchResultDTO;
 import com.example.aml.dto.BookDTO;
 import com.example.aml.mapper.BookDTOMapper;
 import com.example.aml.model.AssociatedImage;
 import com.example.aml.model.Book;
+import com.example.aml.model.BookFacets;
+import com.example.aml.model.BookPage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.UriUtils;
 
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static com.example.aml.utility.BookConstants.BATCH_INSERT_CHUNK_SIZE;
 import static com.example.aml.utility.BookConstants.BOOK_FIELD_PRIMARY_AUTHOR;
 import static com.example.aml.utility.BookConstants.BOOK_FIELD_WORK_TITLE;
+import static com.example.aml.utility.BookConstants.MAX_PAGE_LIMIT;
+import static com.example.aml.utility.BookConstants.MISSING_IMAGE_ID;
 
 @Service
 public class BookService {
     private final BookDao bookDao;
     private final BookCoverService bookCoverService;
     private final BookDTOMapper bookDTOMapper;
-    private BookConfig bookConfig;
+    private final CoverFetchExecutor coverFetchExecutor;
+    private final CoverVariantService coverVariantService;
+    private final MissingCoverImage missingCoverImage;
+    private final BookFacetsService bookFacetsService;
+    private final BookSearchDao bookSearchDao;
 
     @Autowired // constructor will run automatically with parameters stored in Spring reference area
-    public BookService(@Qualifier("postgres") BookDao bookDao,
+    public BookService(@Qualifier("catalog") BookDao bookDao,
                        BookCoverService bookCoverService,
                        BookDTOMapper bookDTOMapper,
-                       BookConfig bookConfig) {
+                       CoverFetchExecutor coverFetchExecutor,
+                       CoverVariantService coverVariantService,
+                       MissingCoverImage missingCoverImage,
+                       BookFacetsService bookFacetsService,
+                       BookSearchDao bookSearchDao) {
         this.bookDao = bookDao;
         this.bookCoverService = bookCoverService;
         this.bookDTOMapper = bookDTOMapper;
-        this.bookConfig = bookConfig;
+        this.coverFetchExecutor = coverFetchExecutor;
+        this.coverVariantService = coverVariantService;
+        this.missingCoverImage = missingCoverImage;
+        this.bookFacetsService = bookFacetsService;
+        this.bookSearchDao = bookSearchDao;
     }
 
     public int addBook(BookDTO bookDTO) {
         String workTitle = prepareString(bookDTO.getWorkTitle());
         String primaryAuthor = prepareString(bookDTO.getPrimaryAuthor());
 
-        Optional<BookDTO> bookIfExists =
-                selectBookByNameAndAuthor(
-                        Map.of(BOOK_FIELD_WORK_TITLE, workTitle,
-                                BOOK_FIELD_PRIMARY_AUTHOR, primaryAuthor));
-        if (bookIfExists.isPresent()) return 0;
-
         UUID id = UUID.randomUUID();
         Book book = new Book(
                 id,
@@ -64,9 +88,11 @@ public class BookService {
                 new Date(),
                 bookDTO.getGenres()
         );
-        int insertionResult = bookDao.insertBook(id, book);
+        // The insert itself skips duplicates, so there's no separate lookup to race with
+        int insertionResult = facetsChangedBy(bookDao.insertBook(id, book));
+        if (insertionResult == 0) return 0;
 
-        new Thread(() -> {
+        coverFetchExecutor.execute(() -> {
             Optional<byte[]> bookCoverArray = bookCoverService.getBookCoverURL(
                     workTitle,
                     primaryAuthor);
@@ -74,11 +100,107 @@ public class BookService {
             Logger.getAnonymousLogger().log(Level.INFO, String.valueOf(bookCoverArray));
 
             bookCoverArray.ifPresent(bytes -> insertImageForBook(id, bytes));
-        }).start();
+        });
 
         return insertionResult;
     }
 
+    // Bulk ingestion: one set-based duplicate check and one JDBC batch per chunk instead of two round trips per book.
+    // Covers aren't fetched here; a bulk load would otherwise fire one cover lookup per row.
+    public List<BookBatchResultDTO> addBooks(List<BookDTO> bookDTOs) {
+        List<BookBatchResultDTO> results = new ArrayList<>(bookDTOs.size());
+        Set<Map.Entry<String, String>> seenInBatch = new HashSet<>();
+        for (int chunkStart = 0; chunkStart < bookDTOs.size(); chunkStart += BATCH_INSERT_CHUNK_SIZE) {
+            List<BookDTO> chunk = bookDTOs.subList(
+                    chunkStart, Math.min(chunkStart + BATCH_INSERT_CHUNK_SIZE, bookDTOs.size()));
+            results.addAll(addBookChunk(chunk, chunkStart, seenInBatch));
+        }
+        bookFacetsService.markStale();
+        return results;
+    }
+
+    private List<BookBatchResultDTO> addBookChunk(
+            List<BookDTO> chunk, int indexOffset, Set<Map.Entry<String, String>> seenInBatch) {
+        BookBatchResultDTO[] results = new BookBatchResultDTO[chunk.size()];
+        Map<Integer, Book> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); ++i) {
+            BookDTO bookDTO = chunk.get(i);
+            if (bookDTO == null || prepareString(bookDTO.getWorkTitle()).isBlank()) {
+                results[i] = invalidBatchResult(indexOffset + i, bookDTO);
+                continue;
+            }
+            Book book = newBook(bookDTO);
+            if (!seenInBatch.add(titleAuthorKey(book))) {
+                results[i] = batchResult(indexOffset + i, BookBatchResultDTO.Status.DUPLICATE, book);
+                continue;
+            }
+            candidates.put(i, book);
+        }
+
+        Set<Map.Entry<String, String>> existing = bookDao.selectExistingTitleAuthorPairs(
+                candidates.values().stream()
+                        .map(book -> Map.entry(book.getWorkTitle(), book.getPrimaryAuthor()))
+                        .toList());
+        candidates.entrySet().removeIf(candidate -> {
+            Book book = candidate.getValue();
+            if (existing.contains(Map.entry(book.getWorkTitle(), book.getPrimaryAuthor()))) {
+                results[candidate.getKey()] = batchResult(
+                        indexOffset + candidate.getKey(), BookBatchResultDTO.Status.DUPLICATE, book);
+                return true;
+            }
+            return false;
+        });
+
+        int[] insertionResults = bookDao.insertBooks(new ArrayList<>(candidates.values()));
+        int position = 0;
+        for (Map.Entry<Integer, Book> candidate : candidates.entrySet()) {
+            int insertionResult = insertionResults[position++];
+            boolean inserted = insertionResult > 0 || insertionResult == Statement.SUCCESS_NO_INFO;
+            results[candidate.getKey()] = batchResult(
+                    indexOffset + candidate.getKey(),
+                    inserted ? BookBatchResultDTO.Status.INSERTED : BookBatchResultDTO.Status.DUPLICATE,
+                    candidate.getValue());
+        }
+        return Arrays.asList(results);
+    }
+
+    // Books differing only in letter case are the same book to the unique index, so the batch compares them the same way
+    private static Map.Entry<String, String> titleAuthorKey(Book book) {
+        return Map.entry(book.getWorkTitle().toLowerCase(Locale.ROOT), book.getPrimaryAuthor().toLowerCase(Locale.ROOT));
+    }
+
+    private static BookBatchResultDTO batchResult(int index, BookBatchResultDTO.Status status, Book book) {
+        return new BookBatchResultDTO(
+                index,
+                status,
+                status == BookBatchResultDTO.Status.INSERTED ? book.getId() : null,
+                book.getWorkTitle(),
+                book.getPrimaryAuthor());
+    }
+
+    private static BookBatchResultDTO invalidBatchResult(int index, BookDTO bookDTO) {
+        if (bookDTO == null) {
+            return new BookBatchResultDTO(index, BookBatchResultDTO.Status.INVALID, null, null, null);
+        }
+        return new BookBatchResultDTO(
+                index, BookBatchResultDTO.Status.INVALID, null, bookDTO.getWorkTitle(), bookDTO.getPrimaryAuthor());
+    }
+
+    private static Book newBook(BookDTO bookDTO) {
+        Date now = new Date();
+        return new Book(
+                UUID.randomUUID(),
+                prepareString(bookDTO.getWorkTitle()),
+                prepareString(bookDTO.getPrimaryAuthor()),
+                bookDTO.getYearPublished(),
+                bookDTO.getWordCount(),
+                null,
+                now,
+                now,
+                bookDTO.getGenres()
+        );
+    }
+
     public Optional<BookDTO> selectBookById(UUID id) {
         return bookDao.selectBookById(id).map(bookDTOMapper);
     }
@@ -91,29 +213,51 @@ public class BookService {
     }
 
     public List<BookDTO> getBooks(Map<String, String> params) {
-        ArrayList<String> bookQueryWhereFilters = new ArrayList<>();
-        ArrayList<String> bookQueryOtherFilters = new ArrayList<>();
+        return bookDao.selectBooks(toBookQuery(params))
+                .stream().map(bookDTOMapper).toList();
+    }
 
-        addBookQueryStringFilters(params, bookQueryWhereFilters, BOOK_FIELD_PRIMARY_AUTHOR);
-        addBookQueryStringFilters(params, bookQueryWhereFilters, BOOK_FIELD_WORK_TITLE);
+    public boolean isPageRequested(Map<String, String> params) {
+        return params.containsKey("limit") || params.containsKey("next");
+    }
 
-        addBookQueryRangeFilters(params, "word_count", bookQueryWhereFilters, true);
-        addBookQueryRangeFilters(params, "word_count", bookQueryWhereFilters, false);
-        addBookQueryRangeFilters(params, "year_published", bookQueryWhereFilters, true);
-        addBookQueryRangeFilters(params, "year_published", bookQueryWhereFilters, false);
+    // Throws IllegalArgumentException for a malformed limit or page token
+    public BookPage<BookDTO> getBookPage(Map<String, String> params) {
+        BookQuery query = toBookQuery(params).toBuilder()
+                .limit(getPageLimit(params))
+                .after(params.containsKey("next") ? BookCursor.decode(params.get("next")) : null)
+                .build();
+        return bookDao.selectBookPage(query).map(bookDTOMapper);
+    }
 
-        addSortByCondition(params, bookQueryOtherFilters);
+    // Ranked full-text search on ?q=, with the same filters as getBooks and the same limit/next paging.
+    // Throws IllegalArgumentException for a missing q, a malformed limit or page token.
+    public BookPage<BookDTO> searchBooks(Map<String, String> params) {
+        String terms = getStringFilter(params, "q");
+        if (terms == null) {
+            throw new IllegalArgumentException("q is required");
+        }
+        return bookSearchDao.searchBooks(
+                toBookQuery(params),
+                terms,
+                params.containsKey("next") ? BookSearchCursor.decode(params.get("next")) : null,
+                getPageLimit(params)).map(bookDTOMapper);
+    }
 
-        return bookDao.selectBooks(bookQueryWhereFilters, bookQueryOtherFilters)
-                .stream().map(bookDTOMapper).toList();
+    public void streamBooks(Map<String, String> params, Consumer<BookDTO> consumer) {
+        bookDao.streamBooks(toBookQuery(params), book -> consumer.accept(bookDTOMapper.apply(book)));
     }
 
     public int deleteBookById(UUID id) {
-        return bookDao.deleteBookById(id);
+        return facetsChangedBy(bookDao.deleteBookById(id));
+    }
+
+    public int deleteBooksByIds(List<UUID> ids) {
+        return facetsChangedBy(bookDao.deleteBooksByIds(ids.stream().distinct().toList()));
     }
 
     public int updateBookById(UUID id, BookDTO bookDTO) {
-        return bookDao.updateBookById(
+        return facetsChangedBy(bookDao.updateBookById(
                 id,
                 new Book(
                         id,
@@ -125,76 +269,151 @@ public class BookService {
                         null,
                         new Date(),
                         bookDTO.getGenres()
-                ));
+                )));
     }
 
     public int updateColumnValue(UUID id, String columnName, String newValue) {
-        return bookDao.updateColumnValue(id, columnName, prepareString(newValue));
+        return facetsChangedBy(bookDao.updateColumnValue(id, columnName, prepareString(newValue)));
     }
 
     public int updateColumnValue(UUID id, String columnName, Integer newValue) {
-        return bookDao.updateColumnValue(id, columnName, newValue);
+        return facetsChangedBy(bookDao.updateColumnValue(id, columnName, newValue));
+    }
+
+    // Accepts the same filters as getBooks; sorting and paging params are ignored
+    public BookFacets getBookFacets(Map<String, String> params) {
+        return bookFacetsService.getFacets(toBookQuery(params));
+    }
+
+    // Unfiltered facet counts are served from a view that has to be refreshed once books change
+    private int facetsChangedBy(int changedRows) {
+        if (changedRows > 0) {
+            bookFacetsService.markStale();
+        }
+        return changedRows;
     }
 
     public int insertImageForBook(UUID id, byte[] imageAsByteArray) {
-        return bookDao.insertImage(id, imageAsByteArray);
+        int result = bookDao.insertImage(id, imageAsByteArray);
+        if (result == 1) {
+            coverVariantService.generateVariants(id);
+        }
+        return result;
     }
 
-    public AssociatedImage getImageForBook(UUID id) {
+    // Empty when the book has no cover; see getMissingCoverImage for what to show instead
+    public Optional<AssociatedImage> getImageForBook(UUID id) {
         return bookDao.getImageForBook(id);
     }
 
-    private void addBookQueryStringFilters(
-            Map<String, String> params, ArrayList<String> bookQueryFilters, String columnName) {
+    // Held in memory, so serving it doesn't touch the database
+    public Optional<AssociatedImage> getMissingCoverImage() {
+        return missingCoverImage.get();
+    }
+
+    public boolean isCoverSize(int width) {
+        return coverVariantService.isSupportedWidth(width);
+    }
+
+    // Empty until the variant has been generated, or when the cover is already narrower than the width
+    public Optional<AssociatedImage> getImageVariantForBook(UUID id, int width) {
+        return bookDao.getImageVariantForBook(id, width);
+    }
+
+    // Empty when the book doesn't exist. Books without a cover are served the placeholder picture.
+    // selectBookById is cached, so answering a cover revalidation usually doesn't reach the database.
+    public Optional<UUID> getPictureIdForBook(UUID id) {
+        return bookDao.selectBookById(id)
+                .map(book -> Objects.requireNonNullElse(book.getPicture(), UUID.fromString(MISSING_IMAGE_ID)));
+    }
+
+    // Package-private for the JMH benchmarks in src/jmh
+    static BookQuery toBookQuery(Map<String, String> params) {
+        return BookQuery.builder()
+                .primaryAuthor(getStringFilter(params, BOOK_FIELD_PRIMARY_AUTHOR))
+                .workTitle(getStringFilter(params, BOOK_FIELD_WORK_TITLE))
+                .wordCountUpperLimit(getRangeLimit(params, "word_count", true))
+                .wordCountLowerLimit(getRangeLimit(params, "word_count", false))
+                .yearPublishedUpperLimit(getRangeLimit(params, "year_published", true))
+                .yearPublishedLowerLimit(getRangeLimit(params, "year_published", false))
+                .genresAny(getGenreFilter(params, "genres_any"))
+                .genresAll(getGenreFilter(params, "genre", "genres_all"))
+                .sortBy(getSortColumn(params))
+                .sortingOrder(SortingOrder.fromParam(params.get("sorting_order"))) // ASC or DESC
+                .build();
+    }
+
+    private static String getStringFilter(Map<String, String> params, String columnName) {
         if (params.containsKey(columnName)) {
             String columnValue = prepareString(params.get(columnName));
             if (!columnValue.trim().equals("")) {
-                if (isProfileActive("test")) {
-                    bookQueryFilters.add(String.format(
-                            "POSITION('%s' IN LOWER(%s)) > 0",
-                            columnValue.toLowerCase(), columnName));
-                } else {
-                    bookQueryFilters.add(String.format("strpos(%s::citext, '%s'::citext) > 0", columnName, columnValue));
-                }
+                return columnValue;
             }
         }
+        return null;
+    }
+
+    // Comma-separated genre names, matched exactly; genre=a is the same as genres_all=a
+    private static List<String> getGenreFilter(Map<String, String> params, String... keyNames) {
+        List<String> genres = Arrays.stream(keyNames)
+                .map(params::get)
+                .filter(Objects::nonNull)
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(genre -> prepareString(genre).trim())
+                .filter(genre -> !genre.isEmpty())
+                .distinct()
+                .toList();
+        return genres.isEmpty() ? null : genres;
     }
 
-    private static void addBookQueryRangeFilters(
-            Map<String, String> params, String columnName, ArrayList<String> bookQueryFilters, boolean upper) {
+    private static Integer getRangeLimit(
+            Map<String, String> params, String columnName, boolean upper) {
         String keyName = columnName + (upper? "_upper_" : "_lower_") + "limit";
         if (params.containsKey(keyName)) {
             String limitAsString = params.get(keyName);
             if (!limitAsString.trim().equals("")) {
                 try {
-                    Integer limit = Integer.parseInt(limitAsString);
-                    bookQueryFilters.add(
-                            String.format("%s %s %d", columnName, (upper? "<=" : ">="), limit));
+                    return Integer.parseInt(limitAsString);
                 } catch (NumberFormatException err) {
                     Logger.getAnonymousLogger().log(
                             Level.SEVERE, err.getMessage());
                 }
             }
         }
+        return null;
     }
 
-    private static void addSortByCondition(
-            Map<String, String> params, ArrayList<String> bookQueryOtherFilters) {
-        if (params.containsKey("sort_by")) {
-            String columnName = params.get("sort_by");
-            if (!columnName.trim().equals("")) {
-                String order = Objects.requireNonNullElse(params.get("sorting_order"), ""); // ASC or DESC
-                bookQueryOtherFilters.add(
-                        String.format("ORDER BY %s %s", columnName, order));
-            }
+    private static int getPageLimit(Map<String, String> params) {
+        String limitAsString = params.get("limit");
+        if (limitAsString == null || limitAsString.trim().equals("")) {
+            return MAX_PAGE_LIMIT;
+        }
+        int limit;
+        try {
+            limit = Integer.parseInt(limitAsString.trim());
+        } catch (NumberFormatException err) {
+            throw new IllegalArgumentException("limit must be a number", err);
         }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return Math.min(limit, MAX_PAGE_LIMIT);
     }
 
-    private static String prepareString(String s) {
-        return s == null ? "" : UriUtils.decode(s.replace('\'', '’'), "UTF-8");
+    private static BookSortColumn getSortColumn(Map<String, String> params) {
+        String columnName = params.get("sort_by");
+        if (columnName == null || columnName.trim().equals("")) {
+            return null;
+        }
+        Optional<BookSortColumn> sortColumn = BookSortColumn.fromParam(columnName);
+        if (sortColumn.isEmpty()) {
+            Logger.getAnonymousLogger().log(
+                    Level.WARNING, String.format("Ignoring unsupported sort_by column '%s'", columnName));
+        }
+        return sortColumn.orElse(null);
     }
 
-    private boolean isProfileActive(String profile) {
-        return Objects.equals(profile, bookConfig.getActiveProfile());
+    static String prepareString(String s) {
+        return s == null ? "" : UriUtils.decode(s.replace('\'', '’'), "UTF-8");
     }
 }
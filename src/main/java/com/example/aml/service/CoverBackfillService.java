@@ -0,0 +1,194 @@
+package com.example.aml.service;
+
+import com.example.aml.dao.BookDao;
+import com.example.aml.model.Book;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Finds books without a cover, looks their covers up and attaches them, one keyset page at a time.
+// Lookups run in parallel up to the configured concurrency and are paced by a rate limit on the cover API.
+// The job remembers the last book it finished, so a stopped run can be resumed where it left off.
+@Service
+public class CoverBackfillService implements DisposableBean {
+    private final BookDao bookDao;
+    private final BookDao catalogDao;
+    private final BookCoverService bookCoverService;
+    private final CoverVariantService coverVariantService;
+    private final int batchSize;
+    private final RateLimiter rateLimiter;
+    private final ExecutorService jobExecutor =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("cover-backfill-"));
+    private final ExecutorService lookupExecutor;
+
+    private CoverBackfillStatus.State state = CoverBackfillStatus.State.IDLE;
+    private volatile boolean stopRequested;
+    private volatile UUID lastBookId;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private final LongAdder booksScanned = new LongAdder();
+    private final LongAdder coversAdded = new LongAdder();
+    private final LongAdder coversNotFound = new LongAdder();
+    private final LongAdder lookupsFailed = new LongAdder();
+
+    @Autowired
+    public CoverBackfillService(
+            @Qualifier("postgres") BookDao bookDao,
+            @Qualifier("catalog") BookDao catalogDao,
+            BookCoverService bookCoverService,
+            CoverVariantService coverVariantService,
+            @Value("${book.cover-backfill.batch-size:100}") int batchSize,
+            @Value("${book.cover-backfill.concurrency:4}") int concurrency,
+            @Value("${book.cover-backfill.requests-per-second:5}") double requestsPerSecond) {
+        this.bookDao = bookDao;
+        this.catalogDao = catalogDao;
+        this.bookCoverService = bookCoverService;
+        this.coverVariantService = coverVariantService;
+        this.batchSize = batchSize;
+        this.rateLimiter = new RateLimiter(requestsPerSecond);
+        this.lookupExecutor = Executors.newFixedThreadPool(
+                concurrency, new CustomizableThreadFactory("cover-backfill-lookup-"));
+    }
+
+    // With resume, continues after the last book the previous run finished instead of starting from the beginning
+    public synchronized CoverBackfillStatus start(boolean resume) {
+        if (state == CoverBackfillStatus.State.RUNNING || state == CoverBackfillStatus.State.STOPPING) {
+            return getStatus();
+        }
+        if (!resume) {
+            lastBookId = null;
+            booksScanned.reset();
+            coversAdded.reset();
+            coversNotFound.reset();
+            lookupsFailed.reset();
+        }
+        stopRequested = false;
+        startedAt = Instant.now();
+        finishedAt = null;
+        state = CoverBackfillStatus.State.RUNNING;
+        jobExecutor.execute(this::run);
+        return getStatus();
+    }
+
+    // Lets lookups already in flight finish and write their batch, then stops
+    public synchronized CoverBackfillStatus stop() {
+        if (state == CoverBackfillStatus.State.RUNNING) {
+            stopRequested = true;
+            state = CoverBackfillStatus.State.STOPPING;
+        }
+        return getStatus();
+    }
+
+    public synchronized CoverBackfillStatus getStatus() {
+        return new CoverBackfillStatus(
+                state,
+                booksScanned.sum(),
+                coversAdded.sum(),
+                coversNotFound.sum(),
+                lookupsFailed.sum(),
+                lastBookId,
+                startedAt,
+                finishedAt);
+    }
+
+    @Override
+    public void destroy() {
+        stopRequested = true;
+        jobExecutor.shutdownNow();
+        lookupExecutor.shutdownNow();
+    }
+
+    private void run() {
+        CoverBackfillStatus.State finalState = CoverBackfillStatus.State.COMPLETED;
+        try {
+            while (!stopRequested) {
+                List<Book> books = bookDao.selectBooksWithoutCover(lastBookId, batchSize);
+                if (books.isEmpty()) {
+                    break;
+                }
+                backfillBatch(books);
+            }
+            if (stopRequested) {
+                finalState = CoverBackfillStatus.State.STOPPED;
+            }
+        } catch (RuntimeException e) {
+            Logger.getAnonymousLogger().log(Level.SEVERE, "Cover backfill failed", e);
+            finalState = CoverBackfillStatus.State.FAILED;
+        }
+        synchronized (this) {
+            state = finalState;
+            finishedAt = Instant.now();
+        }
+    }
+
+    // After a stop request the remaining lookups of the batch are skipped; lastBookId only moves past
+    // the books looked up before the first skipped one, so a resumed run picks the rest up.
+    private void backfillBatch(List<Book> books) {
+        List<CompletableFuture<Optional<byte[]>>> lookups = books.stream()
+                .map(book -> CompletableFuture.supplyAsync(() -> lookUpCover(book), lookupExecutor))
+                .toList();
+
+        Map<UUID, byte[]> covers = new LinkedHashMap<>();
+        UUID lastLookedUp = null;
+        boolean skipped = false;
+        for (int i = 0; i < books.size(); ++i) {
+            Book book = books.get(i);
+            Optional<byte[]> cover = lookups.get(i).join();
+            if (cover == null) {
+                skipped = true;
+                continue;
+            }
+            cover.ifPresent(bytes -> covers.put(book.getId(), bytes));
+            if (!skipped) {
+                lastLookedUp = book.getId();
+                booksScanned.increment();
+            }
+        }
+        // Scanning goes to the database, but covers are written through the catalog so its listings pick them up
+        coversAdded.add(catalogDao.insertImages(covers));
+        covers.keySet().forEach(coverVariantService::generateVariants);
+        if (lastLookedUp != null) {
+            lastBookId = lastLookedUp;
+        }
+    }
+
+    // null when the lookup was skipped because of a stop request
+    private Optional<byte[]> lookUpCover(Book book) {
+        if (stopRequested) {
+            return null;
+        }
+        try {
+            rateLimiter.acquire();
+            Optional<byte[]> cover = bookCoverService.getBookCoverURL(book.getWorkTitle(), book.getPrimaryAuthor());
+            if (cover.isEmpty()) {
+                coversNotFound.increment();
+            }
+            return cover;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (RuntimeException e) {
+            lookupsFailed.increment();
+            Logger.getAnonymousLogger().log(
+                    Level.WARNING,
+                    String.format("Cover lookup failed for '%s' by '%s'", book.getWorkTitle(), book.getPrimaryAuthor()));
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.aml.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Getter
+@RequiredArgsConstructor
+public class CoverBackfillStatus {
+    public enum State { IDLE, RUNNING, STOPPING, STOPPED, COMPLETED, FAILED }
+
+    @JsonProperty("state") private final State state;
+    @JsonProperty("books_scanned") private final long booksScanned;
+    @JsonProperty("covers_added") private final long coversAdded;
+    @JsonProperty("covers_not_found") private final long coversNotFound;
+    @JsonProperty("lookups_failed") private final long lookupsFailed;
+    @JsonProperty("last_book_id") private final UUID lastBookId;
+    @JsonProperty("started_at") private final Instant startedAt;
+    @JsonProperty("finished_at") private final Instant finishedAt;
+}
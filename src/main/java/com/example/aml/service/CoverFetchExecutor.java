@@ -0,0 +1,145 @@
+package com.example.aml.service;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Runs cover lookups for new books on a fixed pool with a bounded queue. Covers are best effort, so when the
+// queue is full a lookup is dropped and counted instead of blocking the request thread or growing without limit.
+// Not exposed as an Executor bean, so it doesn't displace Spring's applicationTaskExecutor.
+// With spring.threads.virtual.enabled (Java 21+) every lookup gets its own virtual thread instead, and the HTTP
+// client's connection pool and Hikari bound the real concurrency; pool-size + queue-capacity still caps how many
+// lookups may be in flight before new ones are dropped.
+@Component
+public class CoverFetchExecutor implements DisposableBean {
+    private final ThreadPoolTaskExecutor executor;
+    private final SimpleAsyncTaskExecutor virtualThreadExecutor;
+    private final Semaphore virtualThreadPermits;
+    private final int maxVirtualThreads;
+    private final int queueCapacity;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+    @Autowired
+    public CoverFetchExecutor(
+            @Value("${book.cover-fetch.pool-size:4}") int poolSize,
+            @Value("${book.cover-fetch.queue-capacity:1000}") int queueCapacity,
+            @Value("${book.cover-fetch.shutdown-timeout:30s}") Duration shutdownTimeout,
+            Environment environment) {
+        this(poolSize, queueCapacity, shutdownTimeout, Threading.VIRTUAL.isActive(environment));
+    }
+
+    public CoverFetchExecutor(int poolSize, int queueCapacity, Duration shutdownTimeout, boolean virtualThreads) {
+        this.queueCapacity = queueCapacity;
+        this.maxVirtualThreads = poolSize + queueCapacity;
+        if (virtualThreads) {
+            this.executor = null;
+            this.virtualThreadExecutor = new SimpleAsyncTaskExecutor("cover-fetch-");
+            this.virtualThreadPermits = new Semaphore(maxVirtualThreads);
+            virtualThreadExecutor.setVirtualThreads(true);
+            virtualThreadExecutor.setTaskDecorator(this::timed);
+            virtualThreadExecutor.setTaskTerminationTimeout(shutdownTimeout.toMillis());
+            return;
+        }
+        this.executor = new ThreadPoolTaskExecutor();
+        this.virtualThreadExecutor = null;
+        this.virtualThreadPermits = null;
+        executor.setThreadNamePrefix("cover-fetch-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setTaskDecorator(this::timed);
+        executor.setRejectedExecutionHandler(this::reject);
+        // Lookups already queued get to finish (up to the timeout) when the app shuts down
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationMillis(shutdownTimeout.toMillis());
+        executor.initialize();
+    }
+
+    public void execute(Runnable task) {
+        if (virtualThreadExecutor == null) {
+            executor.execute(task);
+            return;
+        }
+        if (!virtualThreadPermits.tryAcquire()) {
+            rejected.increment();
+            Logger.getAnonymousLogger().log(Level.WARNING, "Too many cover lookups in flight, dropping lookup");
+            return;
+        }
+        virtualThreadExecutor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                virtualThreadPermits.release();
+            }
+        });
+    }
+
+    // Virtual threads aren't pooled or queued, so in that mode every lookup in flight counts as active
+    public CoverFetchStatistics getStatistics() {
+        long completedTasks = completed.sum() + failed.sum();
+        boolean virtualThreads = virtualThreadExecutor != null;
+        return new CoverFetchStatistics(
+                virtualThreads ? 0 : executor.getPoolSize(),
+                virtualThreads ? maxVirtualThreads - virtualThreadPermits.availablePermits() : executor.getActiveCount(),
+                virtualThreads ? 0 : executor.getQueueSize(),
+                queueCapacity,
+                completed.sum(),
+                failed.sum(),
+                rejected.sum(),
+                completedTasks == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.sum() / completedTasks),
+                TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get()));
+    }
+
+    @Override
+    public void destroy() {
+        if (virtualThreadExecutor == null) {
+            executor.shutdown();
+        } else {
+            virtualThreadExecutor.close();
+        }
+    }
+
+    // Latency runs from submission to completion, so it includes the time spent waiting in the queue
+    private Runnable timed(Runnable task) {
+        long submittedAt = System.nanoTime();
+        return () -> {
+            try {
+                task.run();
+                completed.increment();
+            } catch (RuntimeException e) {
+                failed.increment();
+                Logger.getAnonymousLogger().log(Level.WARNING, "Cover lookup failed", e);
+            } finally {
+                long latency = System.nanoTime() - submittedAt;
+                totalLatencyNanos.add(latency);
+                maxLatencyNanos.accumulate(latency);
+            }
+        };
+    }
+
+    private void reject(Runnable task, ThreadPoolExecutor threadPoolExecutor) {
+        rejected.increment();
+        Logger.getAnonymousLogger().log(
+                Level.WARNING,
+                String.format("Cover lookup queue is full (%d waiting), dropping lookup", threadPoolExecutor.getQueue().size()));
+    }
+}
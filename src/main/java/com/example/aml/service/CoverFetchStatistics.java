@@ -0,0 +1,19 @@
+package com.example.aml.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class CoverFetchStatistics {
+    @JsonProperty("pool_size") private final int poolSize;
+    @JsonProperty("active_tasks") private final int activeTasks;
+    @JsonProperty("queue_depth") private final int queueDepth;
+    @JsonProperty("queue_capacity") private final int queueCapacity;
+    @JsonProperty("completed") private final long completed;
+    @JsonProperty("failed") private final long failed;
+    @JsonProperty("rejected") private final long rejected;
+    @JsonProperty("average_latency_ms") private final long averageLatencyMillis;
+    @JsonProperty("max_latency_ms") private final long maxLatencyMillis;
+}
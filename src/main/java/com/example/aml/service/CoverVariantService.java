@@ -0,0 +1,149 @@
+package com.example.aml.service;
+
+import com.example.aml.dao.BookDao;
+import com.example.aml.model.AssociatedImage;
+import com.example.aml.model.ImageVariant;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Generates downscaled copies of a book's cover in the widths from book.cover-variants.widths, so list views can
+// load small images. Resizing is CPU-bound, so it runs on its own small pool of platform threads (also in
+// virtual-thread mode); when the queue is full the job is dropped and the full-size cover is served instead.
+@Service
+public class CoverVariantService implements DisposableBean {
+    private final BookDao bookDao;
+    private final List<Integer> widths;
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    @Autowired
+    public CoverVariantService(
+            @Qualifier("postgres") BookDao bookDao,
+            @Value("${book.cover-variants.widths:64,128,320}") List<Integer> widths,
+            @Value("${book.cover-variants.pool-size:2}") int poolSize,
+            @Value("${book.cover-variants.queue-capacity:1000}") int queueCapacity) {
+        this.bookDao = bookDao;
+        this.widths = List.copyOf(widths);
+        executor.setThreadNamePrefix("cover-variants-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(this::reject);
+        executor.initialize();
+    }
+
+    public boolean isSupportedWidth(int width) {
+        return widths.contains(width);
+    }
+
+    // Resizes whatever picture the book has when the job runs, so a cover replaced in the meantime is still covered
+    public void generateVariants(UUID bookId) {
+        executor.execute(() -> {
+            try {
+                Optional<AssociatedImage> image = bookDao.getImageForBook(bookId);
+                if (image.isEmpty()) {
+                    return;
+                }
+                List<ImageVariant> variants = resize(image.get().getPicture());
+                if (!variants.isEmpty()) {
+                    bookDao.insertImageVariants(image.get().getId(), variants);
+                }
+            } catch (DataIntegrityViolationException e) {
+                // The picture was replaced or deleted while we were resizing it
+                Logger.getAnonymousLogger().log(
+                        Level.INFO, String.format("Picture for book %s is gone, skipping its variants", bookId));
+            } catch (RuntimeException e) {
+                Logger.getAnonymousLogger().log(
+                        Level.WARNING, String.format("Couldn't generate cover variants for book %s", bookId), e);
+            }
+        });
+    }
+
+    // One variant per configured width narrower than the original; wider ones would only be upscaled copies.
+    // Empty for formats ImageIO can't read (e.g. WebP), which are then always served at full size.
+    List<ImageVariant> resize(byte[] original) {
+        BufferedImage source;
+        try {
+            source = ImageIO.read(new ByteArrayInputStream(original));
+        } catch (IOException e) {
+            source = null;
+        }
+        if (source == null) {
+            return List.of();
+        }
+
+        boolean hasAlpha = source.getColorModel().hasAlpha();
+        List<ImageVariant> variants = new ArrayList<>();
+        for (int width : widths) {
+            if (width >= source.getWidth()) {
+                continue;
+            }
+            int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+            BufferedImage scaled = scale(source, width, height, hasAlpha);
+            variants.add(new ImageVariant(
+                    width, encode(scaled, hasAlpha ? "png" : "jpeg"), hasAlpha ? "image/png" : "image/jpeg"));
+        }
+        return variants;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    // Halves the image until it's within 2x of the target before the last step; a single bilinear step from
+    // a much larger image skips most source pixels and looks jagged
+    private static BufferedImage scale(BufferedImage source, int width, int height, boolean hasAlpha) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage next = new BufferedImage(
+                    currentWidth, currentHeight, hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            graphics.dispose();
+            current = next;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, format, outputStream);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't encode cover variant as " + format, e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private void reject(Runnable task, ThreadPoolExecutor threadPoolExecutor) {
+        Logger.getAnonymousLogger().log(
+                Level.WARNING,
+                String.format("Cover variant queue is full (%d waiting), dropping job", threadPoolExecutor.getQueue().size()));
+    }
+}
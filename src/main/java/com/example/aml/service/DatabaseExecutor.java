@@ -0,0 +1,89 @@
+package com.example.aml.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Runs the JDBC work of the /api/v1/async/book endpoints off the servlet threads. There are as many threads
+// as Hikari has connections (more would only queue inside the pool), split into two lanes: list, search and
+// facet queries on one, lookups by id and writes on the other. A burst of slow listings then fills its own
+// lane and queue without holding Tomcat's threads or delaying lookups.
+// Each task gets book.async.request-timeout from submission; the future then fails with a TimeoutException,
+// and a task that hasn't started by then is skipped. A full queue fails it with a TaskRejectedException.
+// Not exposed as an Executor bean, so it doesn't displace Spring's applicationTaskExecutor.
+@Component
+public class DatabaseExecutor implements DisposableBean {
+    private final ThreadPoolTaskExecutor queryExecutor;
+    private final ThreadPoolTaskExecutor lookupExecutor;
+    private final Duration requestTimeout;
+
+    @Autowired
+    public DatabaseExecutor(
+            HikariDataSource dataSource,
+            @Value("${book.async.pool-size:0}") int poolSize,
+            @Value("${book.async.lookup-threads:0}") int lookupThreads,
+            @Value("${book.async.queue-capacity:500}") int queueCapacity,
+            @Value("${book.async.request-timeout:10s}") Duration requestTimeout) {
+        this(poolSize > 0 ? poolSize : dataSource.getMaximumPoolSize(), lookupThreads, queueCapacity, requestTimeout);
+    }
+
+    // lookupThreads <= 0 reserves a quarter of the pool (at least one thread) for lookups
+    public DatabaseExecutor(int poolSize, int lookupThreads, int queueCapacity, Duration requestTimeout) {
+        int lookups = lookupThreads > 0 ? lookupThreads : Math.max(1, poolSize / 4);
+        this.lookupExecutor = newExecutor("db-lookup-", lookups, queueCapacity);
+        this.queryExecutor = newExecutor("db-query-", Math.max(1, poolSize - lookups), queueCapacity);
+        this.requestTimeout = requestTimeout;
+    }
+
+    public <T> CompletableFuture<T> query(Supplier<T> task) {
+        return submit(queryExecutor, task);
+    }
+
+    public <T> CompletableFuture<T> lookup(Supplier<T> task) {
+        return submit(lookupExecutor, task);
+    }
+
+    @Override
+    public void destroy() {
+        queryExecutor.shutdown();
+        lookupExecutor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(ThreadPoolTaskExecutor executor, Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    return; // timed out while queued, nobody is waiting for it any more
+                }
+                try {
+                    future.complete(task.get());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            future.completeExceptionally(e);
+        }
+        return future.orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static ThreadPoolTaskExecutor newExecutor(String threadNamePrefix, int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+        return executor;
+    }
+}
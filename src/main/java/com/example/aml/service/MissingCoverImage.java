@@ -0,0 +1,59 @@
+package com.example.aml.service;
+
+import com.example.aml.dao.BookDao;
+import com.example.aml.model.AssociatedImage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.example.aml.utility.BookConstants.MISSING_IMAGE_ID;
+
+// The placeholder shown for books without a cover (the MISSING_IMAGE_ID row in pictures).
+// It's read from the database on first use and then served from memory. While that row is missing, books
+// without a cover get a 404 instead; the miss is remembered for book.cover.missing-retry-interval, after which
+// the row is looked up again, so a placeholder added later shows up without a restart.
+@Component
+public class MissingCoverImage {
+    private final BookDao bookDao;
+    private final long missRetryNanos;
+    private volatile Optional<AssociatedImage> image;
+    private volatile long missExpiresAt;
+
+    @Autowired
+    public MissingCoverImage(
+            @Qualifier("postgres") BookDao bookDao,
+            @Value("${book.cover.missing-retry-interval:1m}") Duration missRetryInterval) {
+        this.bookDao = bookDao;
+        this.missRetryNanos = missRetryInterval.toNanos();
+    }
+
+    public Optional<AssociatedImage> get() {
+        Optional<AssociatedImage> loaded = image;
+        if (!isFresh(loaded)) {
+            synchronized (this) {
+                loaded = image;
+                if (!isFresh(loaded)) {
+                    loaded = bookDao.getPictureById(UUID.fromString(MISSING_IMAGE_ID));
+                    if (loaded.isEmpty()) {
+                        Logger.getAnonymousLogger().log(
+                                Level.WARNING, String.format("Placeholder picture %s not found", MISSING_IMAGE_ID));
+                        missExpiresAt = System.nanoTime() + missRetryNanos;
+                    }
+                    image = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private boolean isFresh(Optional<AssociatedImage> loaded) {
+        return loaded != null && (loaded.isPresent() || System.nanoTime() - missExpiresAt < 0);
+    }
+}
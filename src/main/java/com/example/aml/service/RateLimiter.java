@@ -0,0 +1,31 @@
+package com.example.aml.service;
+
+import java.util.concurrent.TimeUnit;
+
+// Spaces calls evenly at a fixed rate. Each caller reserves the next free slot and sleeps until it comes up,
+// so a burst of callers is spread out instead of all going through at once.
+class RateLimiter {
+    private final long intervalNanos;
+    private long nextFreeSlot = System.nanoTime();
+
+    RateLimiter(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+    }
+
+    void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        long slot = Math.max(now, nextFreeSlot);
+        nextFreeSlot = slot + intervalNanos;
+        return slot - now;
+    }
+}
@@ -9,4 +9,9 @@ public final class BookConstants {
 
     public static final String BOOK_FIELD_WORK_TITLE = "work_title";
     public static final String BOOK_FIELD_PRIMARY_AUTHOR = "primary_author";
+
+    public static final int MAX_PAGE_LIMIT = 1000;
+    public static final int BATCH_INSERT_CHUNK_SIZE = 1000;
+    public static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+    public static final String COVER_MISSING_HEADER = "X-Cover-Missing";
 }
@@ -0,0 +1,38 @@
+package com.example.aml.utility;
+
+public final class ImageContentTypes {
+    private ImageContentTypes() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    // Sniffs the formats the cover API hands back from their magic numbers
+    public static String detect(byte[] image) {
+        if (startsWith(image, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(image, 0, 0x89, 'P', 'N', 'G')) {
+            return "image/png";
+        }
+        if (startsWith(image, 0, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(image, 0, 'R', 'I', 'F', 'F') && startsWith(image, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        return DEFAULT_CONTENT_TYPE;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int... prefix) {
+        if (bytes == null || bytes.length < offset + prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; ++i) {
+            if ((bytes[offset + i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
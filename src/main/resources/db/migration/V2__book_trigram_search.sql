@@ -0,0 +1,8 @@
+create extension if not exists pg_trgm;
+
+-- Serve the lower(column) LIKE '%value%' search predicates built by BookQueryCompiler
+create index if not exists book_work_title_trgm_idx
+    on book using gin (lower(work_title) gin_trgm_ops);
+
+create index if not exists book_primary_author_trgm_idx
+    on book using gin (lower(primary_author) gin_trgm_ops);
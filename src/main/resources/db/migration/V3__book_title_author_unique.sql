@@ -0,0 +1,23 @@
+-- Books differing only in letter case count as the same book. Keep the oldest row of any such pair
+-- so the unique index below can be built, and delete the covers of the dropped rows with them.
+-- A picture another remaining book still points at, or the missing-cover placeholder, is kept.
+with deleted_book as (
+    delete from book b
+    using book older
+    where lower(older.work_title) = lower(b.work_title)
+      and lower(older.primary_author) = lower(b.primary_author)
+      and (older.created_at, older.id) < (b.created_at, b.id)
+    returning b.id, b.picture_id
+)
+delete from pictures p
+where p.id in (select picture_id from deleted_book)
+  and p.id <> '018f4078-a5d6-75b7-8848-bfdc3a7775e4'
+  and not exists (
+      select 1
+      from book kept
+      where kept.picture_id = p.id
+        and kept.id not in (select id from deleted_book));
+
+-- Lets inserts use ON CONFLICT DO NOTHING instead of a separate existence check
+create unique index if not exists book_title_author_uidx
+    on book (lower(work_title), lower(primary_author));
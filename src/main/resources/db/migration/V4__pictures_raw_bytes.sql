@@ -0,0 +1,38 @@
+alter table pictures add column if not exists content_type varchar(100);
+alter table pictures add column if not exists byte_length int;
+
+-- Pictures used to be stored as Base64 text. Decode them in batches of 1000 rows, committing after each batch
+-- so the table is never locked as a whole. byte_length doubles as the "already converted" marker, so an
+-- interrupted run picks up where it stopped.
+do $$
+declare
+    converted int;
+begin
+    loop
+        with batch as (
+            select id, decode(convert_from(picture, 'UTF8'), 'base64') as raw
+            from pictures
+            where byte_length is null
+              and picture is not null
+            limit 1000
+        )
+        update pictures p
+        set picture      = batch.raw,
+            byte_length  = length(batch.raw),
+            content_type = case
+                when substring(batch.raw from 1 for 3) = '\xffd8ff'::bytea then 'image/jpeg'
+                when substring(batch.raw from 1 for 4) = '\x89504e47'::bytea then 'image/png'
+                when substring(batch.raw from 1 for 4) = '\x47494638'::bytea then 'image/gif'
+                when substring(batch.raw from 1 for 4) = '\x52494646'::bytea
+                    and substring(batch.raw from 9 for 4) = '\x57454250'::bytea then 'image/webp'
+                else 'application/octet-stream'
+            end
+        from batch
+        where p.id = batch.id;
+
+        get diagnostics converted = row_count;
+        exit when converted = 0;
+        commit;
+    end loop;
+end
+$$;
@@ -0,0 +1,12 @@
+-- Results of cover API lookups, keyed by lower-cased, trimmed title and author.
+-- A row with a null cover_url records that the API had no cover for the book.
+create table if not exists book_cover_lookup
+(
+    work_title_key     text      not null,
+    primary_author_key text      not null,
+    cover_url          text,
+    image_sha256       varchar(64),
+    looked_up_at       timestamp not null,
+    expires_at         timestamp not null,
+    constraint book_cover_lookup_pk primary key (work_title_key, primary_author_key)
+);
@@ -0,0 +1,11 @@
+-- Downscaled copies of a picture, one row per width, so list views don't have to load full-size covers.
+-- They go away with their picture.
+create table if not exists picture_variants
+(
+    picture_id   uuid         not null references pictures on delete cascade,
+    width        int          not null,
+    picture      bytea        not null,
+    content_type varchar(100) not null,
+    byte_length  int          not null,
+    constraint picture_variants_pk primary key (picture_id, width)
+);
@@ -0,0 +1,40 @@
+-- Unfiltered counts behind GET /api/v1/book/facets: the total, books per decade of year_published,
+-- per word_count bucket and per genre, one row per (facet, bucket).
+-- The buckets must match BookFacetsDataAccessService. The unique index is what lets
+-- BookFacetsService refresh the view concurrently, without blocking readers.
+create materialized view if not exists book_facets as
+with matching as (
+    select id,
+           genres,
+           year_published / 10 * 10 as decade,
+           case
+               when word_count >= 200000 then '200000+'
+               when word_count >= 100000 then '100000-199999'
+               when word_count >= 50000 then '50000-99999'
+               when word_count >= 20000 then '20000-49999'
+               else '0-19999'
+           end as word_count_bucket,
+           word_count
+    from book
+)
+select 'total' as facet, '' as bucket, count(*) as book_count
+from matching
+union all
+select 'decade', cast(decade as varchar), count(*)
+from matching
+where decade is not null
+group by decade
+union all
+select 'word_count', word_count_bucket, count(*)
+from matching
+where word_count is not null
+group by word_count_bucket
+union all
+select 'genre', genre, count(distinct id)
+from matching
+cross join lateral unnest(genres) as g(genre)
+where genre is not null
+group by genre;
+
+create unique index if not exists book_facets_facet_bucket_uidx
+    on book_facets (facet, bucket);
@@ -0,0 +1,3 @@
+-- Serves the genres && ? / genres @> ? filters built by BookQueryCompiler
+create index if not exists book_genres_gin_idx
+    on book using gin (genres);
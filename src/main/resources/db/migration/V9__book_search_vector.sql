@@ -0,0 +1,16 @@
+-- Full-text search for GET /api/v1/book/search: the title weighs most, then the author, then the genres.
+-- array_to_string is only STABLE, which a generated column doesn't accept, hence the IMMUTABLE wrapper.
+create or replace function book_genres_text(genres text[]) returns text
+    language sql immutable parallel safe
+as $$ select coalesce(array_to_string(genres, ' '), '') $$;
+
+-- Adding a stored column rewrites the table once, while holding an exclusive lock on it
+alter table book add column if not exists search_vector tsvector
+    generated always as (
+        setweight(to_tsvector('english', coalesce(work_title, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(primary_author, '')), 'B') ||
+        setweight(to_tsvector('english', book_genres_text(genres)), 'C')
+    ) stored;
+
+create index if not exists book_search_vector_gin_idx
+    on book using gin (search_vector);
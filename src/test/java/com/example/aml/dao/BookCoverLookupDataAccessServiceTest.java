@@ -0,0 +1,70 @@
+package com.example.aml.dao;
+
+import com.example.aml.dao.query.SqlDialect;
+import com.example.aml.model.BookCoverLookup;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Unit tests for {@link BookCoverLookupDataAccessService} */
+@JdbcTest
+@Sql(
+        scripts = {"testing-schema-setup.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(
+        scripts = {"testing-schema-cleanup.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class BookCoverLookupDataAccessServiceTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    private final BookCoverLookupDataAccessService bookCoverLookupDao;
+
+    @Autowired
+    public BookCoverLookupDataAccessServiceTest(@Autowired JdbcTemplate jdbcTemplate) {
+        bookCoverLookupDao = new BookCoverLookupDataAccessService(jdbcTemplate, SqlDialect.H2);
+    }
+
+    @Test
+    void upsertLookupReplacesEarlierResult() {
+        // give
+        bookCoverLookupDao.upsertLookup(new BookCoverLookup(
+                "emma", "jane austen", null, null, NOW, NOW.plus(Duration.ofDays(3))));
+
+        // when
+        int result = bookCoverLookupDao.upsertLookup(new BookCoverLookup(
+                "emma", "jane austen", "http://covers.example/emma.jpg", "ab12", NOW, NOW.plus(Duration.ofDays(30))));
+        Optional<BookCoverLookup> lookup = bookCoverLookupDao.selectUnexpiredLookup("emma", "jane austen", NOW);
+
+        // then
+        assertThat(result).isEqualTo(1);
+        assertThat(lookup).hasValueSatisfying(found -> {
+            assertThat(found.isFound()).isTrue();
+            assertThat(found.getCoverUrl()).isEqualTo("http://covers.example/emma.jpg");
+            assertThat(found.getImageSha256()).isEqualTo("ab12");
+            assertThat(found.getExpiresAt()).isEqualTo(NOW.plus(Duration.ofDays(30)));
+        });
+    }
+
+    @Test
+    void selectUnexpiredLookupIgnoresExpiredRows() {
+        // give
+        bookCoverLookupDao.upsertLookup(new BookCoverLookup(
+                "emma", "jane austen", null, null, NOW.minus(Duration.ofDays(4)), NOW.minus(Duration.ofDays(1))));
+
+        // when
+        Optional<BookCoverLookup> lookup = bookCoverLookupDao.selectUnexpiredLookup("emma", "jane austen", NOW);
+
+        // then
+        assertThat(lookup).isEmpty();
+    }
+}
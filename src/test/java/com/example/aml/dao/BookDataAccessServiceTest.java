@@ -1,18 +1,39 @@
 package com.example.aml.dao;
 
+import com.example.aml.dao.cache.BookCache;
+import com.example.aml.dao.cache.BookCacheStatistics;
+import com.example.aml.dao.query.BookCursor;
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookQueryCompiler;
+import com.example.aml.dao.query.BookSortColumn;
+import com.example.aml.dao.query.SortingOrder;
+import com.example.aml.dao.query.SqlDialect;
+import com.example.aml.model.AssociatedImage;
 import com.example.aml.model.Book;
+import com.example.aml.model.BookPage;
+import com.example.aml.model.ImageVariant;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.example.aml.testUtils.BookTestConstants.PRIDE_AND_PREJUDICE;
 import static com.example.aml.testUtils.BookTestConstants.SENSE_AND_SENSIBILITY;
@@ -29,15 +50,205 @@ import static org.assertj.core.api.Assertions.assertThat;
 class BookDataAccessServiceTest {
 
     private final BookDataAccessService bookDao;
+    private final JdbcTemplate jdbcTemplate;
+    private final BookCache bookCache = new BookCache(100, Duration.ofMinutes(10));
 
     @Autowired
     public BookDataAccessServiceTest(
-            @Autowired JdbcTemplate jdbcTemplate
+            @Autowired JdbcTemplate jdbcTemplate,
+            @Autowired TransactionTemplate transactionTemplate
     ) {
-        bookDao = new BookDataAccessService(jdbcTemplate);
+        this.jdbcTemplate = jdbcTemplate;
+        bookDao = new BookDataAccessService(
+                jdbcTemplate, new BookQueryCompiler(SqlDialect.H2), transactionTemplate, bookCache);
     }
 
-    // TO-DO: Add tests for image-related operations
+    // Image tests
+    @Test
+    void insertImageStoresRawBytes() {
+        // give
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 1, 2, 3};
+
+        // when
+        int result = bookDao.insertImage(PRIDE_AND_PREJUDICE.getId(), png);
+        AssociatedImage image = bookDao.getImageForBook(PRIDE_AND_PREJUDICE.getId()).orElseThrow();
+        Map<String, Object> storedPicture = jdbcTemplate.queryForMap(
+                "SELECT picture, content_type, byte_length FROM pictures WHERE id = ?", image.getId());
+
+        // then
+        assertThat(result).isEqualTo(1);
+        assertThat(image.getPicture()).isEqualTo(png);
+        assertThat(image.getContentType()).isEqualTo("image/png");
+        assertThat((byte[]) storedPicture.get("picture")).isEqualTo(png);
+        assertThat(storedPicture.get("byte_length")).isEqualTo(png.length);
+        assertThat(bookDao.selectBookById(PRIDE_AND_PREJUDICE.getId()))
+                .hasValueSatisfying(book -> assertThat(book.getPicture()).isEqualTo(image.getId()));
+    }
+
+    @Test
+    void insertImageReplacesAndDeletesThePreviousPicture() {
+        // give
+        bookDao.insertImage(PRIDE_AND_PREJUDICE.getId(), new byte[]{1});
+        UUID oldPictureId = bookDao.getImageForBook(PRIDE_AND_PREJUDICE.getId()).orElseThrow().getId();
+
+        // when
+        int result = bookDao.insertImage(PRIDE_AND_PREJUDICE.getId(), new byte[]{2});
+
+        // then
+        assertThat(result).isEqualTo(1);
+        assertThat(bookDao.getImageForBook(PRIDE_AND_PREJUDICE.getId()))
+                .hasValueSatisfying(image -> assertThat(image.getPicture()).containsExactly(2));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pictures WHERE id = ?", Integer.class, oldPictureId)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pictures", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void insertImageForMissingBookWritesNothing() {
+        // when
+        int result = bookDao.insertImage(UUID.randomUUID(), new byte[]{1});
+
+        // then
+        assertThat(result).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pictures", Integer.class)).isZero();
+    }
+
+    @Test
+    void getImageForBookWithoutCoverIsEmpty() {
+        // when
+        Optional<AssociatedImage> image = bookDao.getImageForBook(PRIDE_AND_PREJUDICE.getId());
+        Optional<AssociatedImage> missingBookImage = bookDao.getImageForBook(UUID.randomUUID());
+
+        // then
+        assertThat(image).isEmpty();
+        assertThat(missingBookImage).isEmpty();
+    }
+
+    @Test
+    void getPictureByIdReadsThePictureRow() {
+        // give
+        bookDao.insertImage(PRIDE_AND_PREJUDICE.getId(), new byte[]{7});
+        UUID pictureId = bookDao.getImageForBook(PRIDE_AND_PREJUDICE.getId()).orElseThrow().getId();
+
+        // when
+        Optional<AssociatedImage> picture = bookDao.getPictureById(pictureId);
+
+        // then
+        assertThat(picture).hasValueSatisfying(image -> assertThat(image.getPicture()).containsExactly(7));
+        assertThat(bookDao.getPictureById(UUID.randomUUID())).isEmpty();
+    }
+
+    @Test
+    void insertImageVariantsAreServedPerWidthAndKeepTheFirstCopy() {
+        // give
+        bookDao.insertImage(PRIDE_AND_PREJUDICE.getId(), new byte[]{1});
+        UUID pictureId = bookDao.getImageForBook(PRIDE_AND_PREJUDICE.getId()).orElseThrow().getId();
+        bookDao.insertImageVariants(pictureId, List.of(
+                new ImageVariant(64, new byte[]{6, 4}, "image/jpeg"),
+                new ImageVariant(128, new byte[]{1, 2, 8}, "image/jpeg")));
+
+        // when
+        bookDao.insertImageVariants(pictureId, List.of(new ImageVariant(64, new byte[]{9}, "image/png")));
+        Optional<AssociatedImage> small = bookDao.getImageVariantForBook(PRIDE_AND_PREJUDICE.getId(), 64);
+        Optional<AssociatedImage> missing = bookDao.getImageVariantForBook(PRIDE_AND_PREJUDICE.getId(), 320);
+
+        // then
+        assertThat(small).hasValueSatisfying(image -> {
+            assertThat(image.getId()).isEqualTo(pictureId);
+            assertThat(image.getPicture()).containsExactly(6, 4);
+            assertThat(image.getContentType()).isEqualTo("image/jpeg");
+        });
+        assertThat(missing).isEmpty();
+    }
+
+    @Test
+    void replacingAPictureDropsItsVariants() {
+        // give
+        bookDao.insertImage(PRIDE_AND_PREJUDICE.getId(), new byte[]{1});
+        UUID pictureId = bookDao.getImageForBook(PRIDE_AND_PREJUDICE.getId()).orElseThrow().getId();
+        bookDao.insertImageVariants(pictureId, List.of(new ImageVariant(64, new byte[]{6, 4}, "image/jpeg")));
+
+        // when
+        bookDao.insertImage(PRIDE_AND_PREJUDICE.getId(), new byte[]{2});
+
+        // then
+        assertThat(bookDao.getImageVariantForBook(PRIDE_AND_PREJUDICE.getId(), 64)).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM picture_variants", Integer.class)).isZero();
+    }
+
+    // Runs outside the test transaction so every upload commits on its own connection
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void concurrentInsertImageForSameBookNeverLeaksPictures() throws Exception {
+        // give
+        int uploads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(uploads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < uploads; ++i) {
+            byte[] image = {(byte) i};
+            results.add(executor.submit(() -> {
+                start.await();
+                return bookDao.insertImage(PRIDE_AND_PREJUDICE.getId(), image);
+            }));
+        }
+
+        // when
+        start.countDown();
+        List<Integer> replaced = new ArrayList<>();
+        for (Future<Integer> result : results) {
+            replaced.add(result.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // then
+        assertThat(replaced).containsOnly(1);
+        UUID currentPictureId = jdbcTemplate.queryForObject(
+                "SELECT picture_id FROM book WHERE id = ?", UUID.class, PRIDE_AND_PREJUDICE.getId());
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM pictures", UUID.class))
+                .containsExactly(currentPictureId);
+    }
+
+    @Test
+    void insertImagesAttachesCoversOnlyToBooksWithoutOne() {
+        // give
+        byte[] existingCover = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0};
+        byte[] backfilledCover = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 1};
+        bookDao.insertImage(PRIDE_AND_PREJUDICE.getId(), existingCover);
+        UUID otherBookId = bookDao.selectBooksWithoutCover(null, 1).get(0).getId();
+        Map<UUID, byte[]> covers = new LinkedHashMap<>();
+        covers.put(PRIDE_AND_PREJUDICE.getId(), backfilledCover);
+        covers.put(otherBookId, backfilledCover);
+
+        // when
+        int result = bookDao.insertImages(covers);
+
+        // then
+        assertThat(result).isEqualTo(1);
+        assertThat(bookDao.getImageForBook(PRIDE_AND_PREJUDICE.getId()))
+                .hasValueSatisfying(image -> assertThat(image.getPicture()).isEqualTo(existingCover));
+        assertThat(bookDao.getImageForBook(otherBookId))
+                .hasValueSatisfying(image -> assertThat(image.getPicture()).isEqualTo(backfilledCover));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pictures", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void selectBooksWithoutCoverPagesById() {
+        // give
+        bookDao.insertImage(PRIDE_AND_PREJUDICE.getId(), new byte[]{1});
+
+        // when
+        List<Book> firstPage = bookDao.selectBooksWithoutCover(null, 3);
+        List<Book> secondPage = bookDao.selectBooksWithoutCover(firstPage.get(2).getId(), 3);
+
+        // then
+        assertThat(firstPage).hasSize(3);
+        assertThat(secondPage).hasSize(1);
+        assertThat(firstPage).extracting(Book::getId)
+                .doesNotContain(PRIDE_AND_PREJUDICE.getId())
+                .doesNotContainAnyElementsOf(secondPage.stream().map(Book::getId).toList());
+        assertThat(secondPage.get(0).getId()).isNotEqualTo(PRIDE_AND_PREJUDICE.getId());
+    }
 
     // GET REQUEST tests
     @Test
@@ -59,6 +270,44 @@ class BookDataAccessServiceTest {
         assertThat(bookThatShouldBePresent.get().getUpdatedAt()).isEqualTo(PRIDE_AND_PREJUDICE.getUpdatedAt());
     }
 
+    @Test
+    void selectBookByIdIsServedFromCache() {
+        // give
+        bookDao.selectBookById(PRIDE_AND_PREJUDICE.getId());
+
+        // when
+        Optional<Book> cachedBook = bookDao.selectBookById(PRIDE_AND_PREJUDICE.getId());
+        bookDao.selectBookById(UUID.randomUUID());
+        BookCacheStatistics statistics = bookCache.getStatistics();
+
+        // then
+        assertThat(cachedBook).hasValue(PRIDE_AND_PREJUDICE);
+        assertThat(statistics.getHits()).isEqualTo(1);
+        assertThat(statistics.getMisses()).isEqualTo(2);
+        assertThat(statistics.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void selectBookByIdSeesColumnUpdatesAndDeletes() {
+        // give
+        bookDao.selectBookById(PRIDE_AND_PREJUDICE.getId());
+
+        // when
+        bookDao.updateColumnValue(PRIDE_AND_PREJUDICE.getId(), "work_title", "Pride & Prejudice");
+        Optional<Book> bookAfterStringUpdate = bookDao.selectBookById(PRIDE_AND_PREJUDICE.getId());
+        bookDao.updateColumnValue(PRIDE_AND_PREJUDICE.getId(), "word_count", 100000);
+        Optional<Book> bookAfterIntUpdate = bookDao.selectBookById(PRIDE_AND_PREJUDICE.getId());
+        bookDao.deleteBookById(PRIDE_AND_PREJUDICE.getId());
+        Optional<Book> bookAfterDelete = bookDao.selectBookById(PRIDE_AND_PREJUDICE.getId());
+
+        // then
+        assertThat(bookAfterStringUpdate).hasValueSatisfying(
+                book -> assertThat(book.getWorkTitle()).isEqualTo("Pride & Prejudice"));
+        assertThat(bookAfterIntUpdate).hasValueSatisfying(
+                book -> assertThat(book.getWordCount()).isEqualTo(100000));
+        assertThat(bookAfterDelete).isEmpty();
+    }
+
     @Test
     void selectBookByNameAndAuthorTest() {
         // give
@@ -90,9 +339,7 @@ class BookDataAccessServiceTest {
     void selectBooksTestNoFilters() {
         // give
         // when
-        List<Book> bookThatShouldBePresent = bookDao.selectBooks(
-                new ArrayList<>(), new ArrayList<>()
-        );
+        List<Book> bookThatShouldBePresent = bookDao.selectBooks(BookQuery.unfiltered());
 
         // then
         assertThat(bookThatShouldBePresent).hasSize(5);
@@ -110,26 +357,82 @@ class BookDataAccessServiceTest {
         // give
         // when
         List<Book> bookThatShouldBePresent = bookDao.selectBooks(
-                Arrays.asList(
-                        String.format("LOCATE('%s', LOWER(%s)) > 0", "a", "work_title"),
-                        String.format("LOCATE('%s', LOWER(%s)) > 0", "o", "primary_author")
-                ), new ArrayList<>());
+                BookQuery.builder()
+                        .workTitle("A")
+                        .primaryAuthor("o")
+                        .build());
 
         // then
         assertThat(bookThatShouldBePresent).hasSize(1);
         assertThat(bookThatShouldBePresent.get(0).getWorkTitle()).isEqualTo("Paradise Lost");
     }
 
+    @Test
+    void selectBooksSearchValueIsBoundNotSpliced() {
+        // give
+        // when
+        List<Book> bookThatShouldBePresent = bookDao.selectBooks(
+                BookQuery.builder()
+                        .workTitle("x' OR '1'='1")
+                        .build());
+
+        // then
+        assertThat(bookThatShouldBePresent).isEmpty();
+    }
+
+    @Test
+    void selectBooksSearchValueWildcardsMatchLiterally() {
+        // give
+        // when
+        List<Book> booksMatchingPercent = bookDao.selectBooks(
+                BookQuery.builder()
+                        .workTitle("%")
+                        .build());
+        List<Book> booksMatchingUnderscore = bookDao.selectBooks(
+                BookQuery.builder()
+                        .primaryAuthor("_")
+                        .build());
+
+        // then
+        assertThat(booksMatchingPercent).isEmpty();
+        assertThat(booksMatchingUnderscore).isEmpty();
+    }
+
+    @Test
+    void selectBooksGenreFilters() {
+        // give
+        jdbcTemplate.update(
+                "UPDATE book SET genres = ARRAY['Romance', 'Classic'] WHERE id = ?", PRIDE_AND_PREJUDICE.getId());
+        jdbcTemplate.update("UPDATE book SET genres = ARRAY['Classic', 'Poetry'] WHERE work_title = 'Paradise Lost'");
+        jdbcTemplate.update("UPDATE book SET genres = ARRAY['Philosophy'] WHERE work_title = 'Meditations'");
+
+        // when
+        List<Book> anyOf = bookDao.selectBooks(
+                BookQuery.builder().genresAny(List.of("Romance", "Philosophy")).build());
+        List<Book> allOf = bookDao.selectBooks(
+                BookQuery.builder().genresAll(List.of("Classic", "Poetry")).build());
+        List<Book> both = bookDao.selectBooks(
+                BookQuery.builder().genresAny(List.of("Poetry", "Romance")).genresAll(List.of("Romance")).build());
+        List<Book> unknown = bookDao.selectBooks(
+                BookQuery.builder().genresAll(List.of("Horror")).build());
+
+        // then
+        assertThat(anyOf).extracting(Book::getWorkTitle)
+                .containsExactlyInAnyOrder("Pride and Prejudice", "Meditations");
+        assertThat(allOf).extracting(Book::getWorkTitle).containsExactly("Paradise Lost");
+        assertThat(both).extracting(Book::getWorkTitle).containsExactly("Pride and Prejudice");
+        assertThat(unknown).isEmpty();
+    }
+
     @Test
     void selectBooksWordCountRange() {
         // give
         // when
         List<Book> bookThatShouldBePresent = bookDao.selectBooks(
-                Arrays.asList(
-                        String.format("%s %s %d", "word_count",  " >= ", 50000),
-                        String.format("%s %s %d", "word_count",  " <= ", 125000)
-                ),
-                new ArrayList<>());
+                BookQuery.builder()
+                        .wordCountLowerLimit(50000)
+                        .wordCountUpperLimit(125000)
+                        .build());
 
         // then
         assertThat(bookThatShouldBePresent).hasSize(2);
@@ -142,11 +445,10 @@ class BookDataAccessServiceTest {
         // give
         // when
         List<Book> bookThatShouldBePresent = bookDao.selectBooks(
-                Arrays.asList(
-                        String.format("%s %s %d", "year_published",  " >= ", 1800),
-                        String.format("%s %s %d", "year_published",  " <= ", 1900)
-                ),
-                new ArrayList<>());
+                BookQuery.builder()
+                        .yearPublishedLowerLimit(1800)
+                        .yearPublishedUpperLimit(1900)
+                        .build());
 
         // then
         assertThat(bookThatShouldBePresent).hasSize(2);
@@ -159,20 +461,20 @@ class BookDataAccessServiceTest {
         // give
         // when
         List<Book> bookThatShouldBePresent = bookDao.selectBooks(
-                new ArrayList<>(),
-                Collections.singletonList(
-                        String.format("ORDER BY %s %s", "year_published", "ASC")
-                ));
+                BookQuery.builder()
+                        .sortBy(BookSortColumn.YEAR_PUBLISHED)
+                        .sortingOrder(SortingOrder.ASC)
+                        .build());
 
         // then
         assertThat(bookThatShouldBePresent.get(0).getWorkTitle()).isEqualTo("Meditations");
         assertThat(bookThatShouldBePresent.get(4).getWorkTitle()).isEqualTo("The Old Man and the Sea");
 
         bookThatShouldBePresent = bookDao.selectBooks(
-                new ArrayList<>(),
-                Collections.singletonList(
-                        String.format("ORDER BY %s %s", "year_published", "DESC")
-                ));
+                BookQuery.builder()
+                        .sortBy(BookSortColumn.YEAR_PUBLISHED)
+                        .sortingOrder(SortingOrder.DESC)
+                        .build());
 
         // then
         assertThat(bookThatShouldBePresent.get(4).getWorkTitle()).isEqualTo("Meditations");
@@ -184,22 +486,167 @@ class BookDataAccessServiceTest {
         // give
         // when
         List<Book> bookThatShouldBePresent = bookDao.selectBooks(
-                Arrays.asList(
-                        String.format("%s %s %d", "word_count",  " <= ", 50000),
-                        String.format("%s %s %d", "word_count",  " >= ", 125000)),
-                new ArrayList<>());
+                BookQuery.builder()
+                        .wordCountUpperLimit(50000)
+                        .wordCountLowerLimit(125000)
+                        .build());
 
         // then
         assertThat(bookThatShouldBePresent).isEmpty();
     }
 
+    @Test
+    void selectBookPageFollowsCursorToTheEnd() {
+        // give
+        BookQuery firstPageQuery = BookQuery.builder()
+                .sortBy(BookSortColumn.YEAR_PUBLISHED)
+                .sortingOrder(SortingOrder.DESC)
+                .limit(2)
+                .build();
+
+        // when
+        BookPage<Book> firstPage = bookDao.selectBookPage(firstPageQuery);
+        BookPage<Book> secondPage = bookDao.selectBookPage(
+                firstPageQuery.toBuilder().after(BookCursor.decode(firstPage.getNextCursor())).build());
+        BookPage<Book> thirdPage = bookDao.selectBookPage(
+                firstPageQuery.toBuilder().after(BookCursor.decode(secondPage.getNextCursor())).build());
+
+        // then
+        assertThat(firstPage.getItems()).extracting(Book::getWorkTitle)
+                .containsExactly("The Old Man and the Sea", "The Adventures of Huckleberry Finn");
+        assertThat(secondPage.getItems()).extracting(Book::getWorkTitle)
+                .containsExactly("Pride and Prejudice", "Paradise Lost");
+        assertThat(thirdPage.getItems()).extracting(Book::getWorkTitle)
+                .containsExactly("Meditations");
+        assertThat(thirdPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    void selectBookPageBreaksTiesById() {
+        // give: every test book has the same created_at
+        BookQuery query = BookQuery.builder()
+                .sortBy(BookSortColumn.CREATED_AT)
+                .limit(2)
+                .build();
+
+        // when
+        List<Book> seen = new ArrayList<>();
+        BookPage<Book> page = bookDao.selectBookPage(query);
+        seen.addAll(page.getItems());
+        while (page.getNextCursor() != null) {
+            page = bookDao.selectBookPage(
+                    query.toBuilder().after(BookCursor.decode(page.getNextCursor())).build());
+            seen.addAll(page.getItems());
+        }
+
+        // then
+        assertThat(seen).hasSize(5).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void selectBookPageSeeksAcrossNullSortValues() {
+        // give
+        jdbcTemplate.update(
+                "UPDATE book SET year_published = NULL WHERE work_title IN ('Meditations', 'Paradise Lost')");
+        BookQuery ascending = BookQuery.builder()
+                .sortBy(BookSortColumn.YEAR_PUBLISHED)
+                .limit(2)
+                .build();
+        BookQuery descending = ascending.toBuilder().sortingOrder(SortingOrder.DESC).build();
+
+        // when
+        List<List<String>> ascendingPages = pageTitles(ascending);
+        List<List<String>> descendingPages = pageTitles(descending);
+
+        // then: NULLs last ascending and first descending, like Postgres, with ties in id order
+        assertThat(ascendingPages).containsExactly(
+                List.of("Pride and Prejudice", "The Adventures of Huckleberry Finn"),
+                List.of("The Old Man and the Sea", "Paradise Lost"),
+                List.of("Meditations"));
+        assertThat(descendingPages).containsExactly(
+                List.of("Meditations", "Paradise Lost"),
+                List.of("The Old Man and the Sea", "The Adventures of Huckleberry Finn"),
+                List.of("Pride and Prejudice"));
+    }
+
+    @Test
+    void selectBookPageReturnsTheSameBooksAsTheUnpagedListWithNulls() {
+        // give
+        jdbcTemplate.update("UPDATE book SET word_count = NULL WHERE work_title = 'Meditations'");
+        BookQuery query = BookQuery.builder()
+                .sortBy(BookSortColumn.WORD_COUNT)
+                .build();
+
+        // when
+        List<String> unpaged = bookDao.selectBooks(query).stream().map(Book::getWorkTitle).toList();
+        List<String> paged = pageTitles(query.toBuilder().limit(1).build()).stream()
+                .flatMap(List::stream)
+                .toList();
+
+        // then
+        assertThat(unpaged).hasSize(5).endsWith("Meditations");
+        assertThat(paged).isEqualTo(unpaged);
+    }
+
+    private List<List<String>> pageTitles(BookQuery query) {
+        List<List<String>> pages = new ArrayList<>();
+        BookPage<Book> page = bookDao.selectBookPage(query);
+        pages.add(page.getItems().stream().map(Book::getWorkTitle).toList());
+        while (page.getNextCursor() != null) {
+            page = bookDao.selectBookPage(query.toBuilder().after(BookCursor.decode(page.getNextCursor())).build());
+            pages.add(page.getItems().stream().map(Book::getWorkTitle).toList());
+        }
+        return pages;
+    }
+
+    @Test
+    void selectBookPageWithFilters() {
+        // give
+        BookQuery query = BookQuery.builder()
+                .yearPublishedLowerLimit(1800)
+                .limit(1)
+                .build();
+
+        // when
+        BookPage<Book> firstPage = bookDao.selectBookPage(query);
+        BookPage<Book> secondPage = bookDao.selectBookPage(
+                query.toBuilder().after(BookCursor.decode(firstPage.getNextCursor())).build());
+        BookPage<Book> thirdPage = bookDao.selectBookPage(
+                query.toBuilder().after(BookCursor.decode(secondPage.getNextCursor())).build());
+
+        // then
+        assertThat(firstPage.getItems()).hasSize(1);
+        assertThat(secondPage.getItems()).hasSize(1);
+        assertThat(thirdPage.getItems()).hasSize(1);
+        assertThat(thirdPage.getNextCursor()).isNull();
+        assertThat(List.of(firstPage.getItems().get(0), secondPage.getItems().get(0), thirdPage.getItems().get(0)))
+                .extracting(Book::getWorkTitle)
+                .containsExactlyInAnyOrder("Pride and Prejudice", "The Adventures of Huckleberry Finn", "The Old Man and the Sea");
+    }
+
+    @Test
+    void streamBooksVisitsEveryMatchingRow() {
+        // give
+        List<Book> streamed = new ArrayList<>();
+
+        // when
+        bookDao.streamBooks(
+                BookQuery.builder()
+                        .yearPublishedLowerLimit(1800)
+                        .sortBy(BookSortColumn.YEAR_PUBLISHED)
+                        .build(),
+                streamed::add);
+
+        // then
+        assertThat(streamed).extracting(Book::getWorkTitle)
+                .containsExactly("Pride and Prejudice", "The Adventures of Huckleberry Finn", "The Old Man and the Sea");
+    }
+
     // DELETE Request Tests
     @Test
     void deleteBookByIdTest() {
         List<Book> bookListBeforeDeleting =
-                bookDao.selectBooks(
-                        new ArrayList<>(),
-                        new ArrayList<>());
+                bookDao.selectBooks(BookQuery.unfiltered());
         Optional<Book> bookThatShouldBePresent =
                 bookDao.selectBookByNameAndAuthor(
                         PRIDE_AND_PREJUDICE.getWorkTitle(),
@@ -207,9 +654,7 @@ class BookDataAccessServiceTest {
         int result = bookDao.deleteBookById(
                 PRIDE_AND_PREJUDICE.getId());
         List<Book> bookListAfterDeleting =
-                bookDao.selectBooks(
-                        new ArrayList<>(),
-                        new ArrayList<>());
+                bookDao.selectBooks(BookQuery.unfiltered());
         Optional<Book> bookThatShouldNotBePresent =
                 bookDao.selectBookByNameAndAuthor(
                         PRIDE_AND_PREJUDICE.getWorkTitle(),
@@ -225,15 +670,11 @@ class BookDataAccessServiceTest {
     @Test
     void deleteBookByIdBookDoesntExistTest() {
         List<Book> bookListBeforeDeleting =
-                bookDao.selectBooks(
-                        new ArrayList<>(),
-                        new ArrayList<>());
+                bookDao.selectBooks(BookQuery.unfiltered());
         int result = bookDao.deleteBookById(
                 SENSE_AND_SENSIBILITY.getId());
         List<Book> bookListAfterDeleting =
-                bookDao.selectBooks(
-                        new ArrayList<>(),
-                        new ArrayList<>());
+                bookDao.selectBooks(BookQuery.unfiltered());
         Optional<Book> bookThatShouldNotBePresent =
                 bookDao.selectBookByNameAndAuthor(
                         SENSE_AND_SENSIBILITY.getWorkTitle(),
@@ -245,20 +686,34 @@ class BookDataAccessServiceTest {
         assertThat(bookThatShouldNotBePresent).isNotPresent();
     }
 
+    @Test
+    void deleteBooksByIdsDeletesBooksAndTheirPictures() {
+        // give
+        bookDao.insertImage(PRIDE_AND_PREJUDICE.getId(), new byte[]{1});
+        UUID otherBookId = bookDao.selectBooksWithoutCover(null, 1).get(0).getId();
+
+        // when
+        int result = bookDao.deleteBooksByIds(
+                List.of(PRIDE_AND_PREJUDICE.getId(), otherBookId, SENSE_AND_SENSIBILITY.getId()));
+
+        // then
+        assertThat(result).isEqualTo(2);
+        assertThat(bookDao.selectBooks(BookQuery.unfiltered())).hasSize(3);
+        assertThat(bookDao.selectBookById(PRIDE_AND_PREJUDICE.getId())).isEmpty();
+        assertThat(bookDao.selectBookById(otherBookId)).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pictures", Integer.class)).isZero();
+    }
+
     // CREATE Request Tests
     @Test
     void insertBookTest() {
         List<Book> bookListBeforeAdding =
-                bookDao.selectBooks(
-                        new ArrayList<>(),
-                        new ArrayList<>());
+                bookDao.selectBooks(BookQuery.unfiltered());
         bookDao.insertBook(
                 SENSE_AND_SENSIBILITY.getId(),
                 SENSE_AND_SENSIBILITY);
         List<Book> bookListAfterAdding =
-                bookDao.selectBooks(
-                        new ArrayList<>(),
-                        new ArrayList<>());
+                bookDao.selectBooks(BookQuery.unfiltered());
 
         assertThat(bookListBeforeAdding).hasSize(5);
         assertThat(bookListAfterAdding).hasSize(6);
@@ -271,6 +726,81 @@ class BookDataAccessServiceTest {
         assertThat(bookListAfterAdding.get(5).getUpdatedAt()).isEqualTo(SENSE_AND_SENSIBILITY.getUpdatedAt());
     }
 
+    @Test
+    void insertBookSkipsExistingTitleAndAuthorIgnoringCase() {
+        // give
+        Book shoutedDuplicate = new Book(
+                UUID.randomUUID(),
+                PRIDE_AND_PREJUDICE.getWorkTitle().toUpperCase(),
+                PRIDE_AND_PREJUDICE.getPrimaryAuthor().toLowerCase(),
+                1813, 1, null,
+                PRIDE_AND_PREJUDICE.getCreatedAt(), PRIDE_AND_PREJUDICE.getUpdatedAt(), null);
+
+        // when
+        int result = bookDao.insertBook(shoutedDuplicate.getId(), shoutedDuplicate);
+
+        // then
+        assertThat(result).isZero();
+        assertThat(bookDao.selectBooks(BookQuery.unfiltered())).hasSize(5);
+        assertThat(bookDao.selectBookById(shoutedDuplicate.getId())).isEmpty();
+    }
+
+    @Test
+    void insertBooksTest() {
+        // give
+        Book emma = new Book(
+                UUID.randomUUID(), "Emma", "Jane Austen", 1815, 160996, null,
+                SENSE_AND_SENSIBILITY.getCreatedAt(), SENSE_AND_SENSIBILITY.getUpdatedAt(), new String[]{"Romance"});
+
+        // when
+        int[] result = bookDao.insertBooks(List.of(SENSE_AND_SENSIBILITY, emma));
+        List<Book> bookListAfterAdding = bookDao.selectBooks(BookQuery.unfiltered());
+
+        // then
+        assertThat(result).containsExactly(1, 1);
+        assertThat(bookListAfterAdding).hasSize(7);
+        assertThat(bookDao.selectBookById(emma.getId()))
+                .isPresent()
+                .hasValueSatisfying(book -> assertThat(book.getGenres()).containsExactly("Romance"));
+    }
+
+    @Test
+    void insertBooksSkipsDuplicatesWithinTheBatch() {
+        // give
+        Book emma = new Book(
+                UUID.randomUUID(), "Emma", "Jane Austen", 1815, 160996, null,
+                SENSE_AND_SENSIBILITY.getCreatedAt(), SENSE_AND_SENSIBILITY.getUpdatedAt(), null);
+        Book emmaAgain = new Book(
+                UUID.randomUUID(), "EMMA", "Jane Austen", 1815, 160996, null,
+                SENSE_AND_SENSIBILITY.getCreatedAt(), SENSE_AND_SENSIBILITY.getUpdatedAt(), null);
+
+        // when
+        int[] result = bookDao.insertBooks(List.of(emma, emmaAgain));
+
+        // then
+        assertThat(result).containsExactly(1, 0);
+        assertThat(bookDao.selectBooks(BookQuery.unfiltered())).hasSize(6);
+    }
+
+    @Test
+    void selectExistingTitleAuthorPairsTest() {
+        // give
+        List<Map.Entry<String, String>> candidates = List.of(
+                Map.entry(PRIDE_AND_PREJUDICE.getWorkTitle(), PRIDE_AND_PREJUDICE.getPrimaryAuthor()),
+                Map.entry(SENSE_AND_SENSIBILITY.getWorkTitle(), SENSE_AND_SENSIBILITY.getPrimaryAuthor()),
+                Map.entry("Paradise Lost", "Jane Austen"),
+                Map.entry(PRIDE_AND_PREJUDICE.getWorkTitle().toUpperCase(), PRIDE_AND_PREJUDICE.getPrimaryAuthor()));
+
+        // when
+        Set<Map.Entry<String, String>> existing = bookDao.selectExistingTitleAuthorPairs(candidates);
+
+        // then
+        assertThat(existing).containsExactlyInAnyOrder(
+                Map.entry(PRIDE_AND_PREJUDICE.getWorkTitle(), PRIDE_AND_PREJUDICE.getPrimaryAuthor()),
+                Map.entry(PRIDE_AND_PREJUDICE.getWorkTitle().toUpperCase(), PRIDE_AND_PREJUDICE.getPrimaryAuthor()));
+        assertThat(bookDao.selectExistingTitleAuthorPairs(List.of())).isEmpty();
+    }
+
     // MODIFY Request Tests
     @Test
     void modifyBookTest() {
@@ -0,0 +1,75 @@
+package com.example.aml.dao;
+
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookQueryCompiler;
+import com.example.aml.dao.query.SqlDialect;
+import com.example.aml.model.BookFacets;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import static com.example.aml.testUtils.BookTestConstants.PRIDE_AND_PREJUDICE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/** Unit tests for {@link BookFacetsDataAccessService} */
+@JdbcTest
+@Sql(
+        scripts = {"testing-schema-setup.sql", "testing-data.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(
+        scripts = {"testing-schema-cleanup.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class BookFacetsDataAccessServiceTest {
+
+    private final BookFacetsDataAccessService bookFacetsDao;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BookFacetsDataAccessServiceTest(@Autowired JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        bookFacetsDao = new BookFacetsDataAccessService(jdbcTemplate, new BookQueryCompiler(SqlDialect.H2));
+    }
+
+    @Test
+    void selectBookFacetsCountsEveryBook() {
+        // give
+        jdbcTemplate.update(
+                "UPDATE book SET genres = ARRAY['Romance', 'Classic', 'Romance'] WHERE id = ?",
+                PRIDE_AND_PREJUDICE.getId());
+        jdbcTemplate.update("UPDATE book SET genres = ARRAY['Classic'] WHERE work_title = 'Paradise Lost'");
+
+        // when
+        BookFacets facets = bookFacetsDao.selectBookFacets(BookQuery.unfiltered());
+
+        // then
+        assertThat(facets.getTotal()).isEqualTo(5);
+        assertThat(facets.getGenres()).containsExactly(entry("Classic", 2L), entry("Romance", 1L));
+        assertThat(facets.getDecades()).containsExactly(
+                entry(170, 1L), entry(1660, 1L), entry(1810, 1L), entry(1840, 1L), entry(1950, 1L));
+        assertThat(facets.getWordCounts()).containsExactly(
+                entry("0-19999", 1L),
+                entry("20000-49999", 1L),
+                entry("50000-99999", 1L),
+                entry("100000-199999", 1L),
+                entry("200000+", 1L));
+    }
+
+    @Test
+    void selectBookFacetsAppliesTheListFilters() {
+        // give
+        jdbcTemplate.update("UPDATE book SET genres = ARRAY['Classic'] WHERE work_title = 'Paradise Lost'");
+        BookQuery query = BookQuery.builder().yearPublishedLowerLimit(1700).wordCountUpperLimit(200000).build();
+
+        // when
+        BookFacets facets = bookFacetsDao.selectBookFacets(query);
+
+        // then
+        assertThat(facets.getTotal()).isEqualTo(3);
+        assertThat(facets.getGenres()).isEmpty();
+        assertThat(facets.getDecades()).containsOnlyKeys(1810, 1840, 1950);
+        assertThat(facets.getWordCounts()).containsEntry("0-19999", 0L).containsEntry("200000+", 0L);
+    }
+}
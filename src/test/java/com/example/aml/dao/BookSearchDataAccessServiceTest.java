@@ -0,0 +1,98 @@
+package com.example.aml.dao;
+
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookQueryCompiler;
+import com.example.aml.dao.query.BookSearchCursor;
+import com.example.aml.dao.query.SqlDialect;
+import com.example.aml.model.Book;
+import com.example.aml.model.BookPage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Unit tests for {@link BookSearchDataAccessService} */
+@JdbcTest
+@Sql(
+        scripts = {"testing-schema-setup.sql", "testing-data.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(
+        scripts = {"testing-schema-cleanup.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class BookSearchDataAccessServiceTest {
+
+    private final BookSearchDataAccessService bookSearchDao;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BookSearchDataAccessServiceTest(@Autowired JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        bookSearchDao = new BookSearchDataAccessService(jdbcTemplate, new BookQueryCompiler(SqlDialect.H2));
+    }
+
+    @Test
+    void searchBooksRanksTitleMatchesAboveGenreMatches() {
+        // give
+        jdbcTemplate.update("UPDATE book SET genres = ARRAY['Paradise'] WHERE work_title = 'Meditations'");
+
+        // when
+        BookPage<Book> page = bookSearchDao.searchBooks(BookQuery.unfiltered(), "paradise", null, 10);
+
+        // then
+        assertThat(page.getItems()).extracting(Book::getWorkTitle).containsExactly("Paradise Lost", "Meditations");
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void searchBooksMatchesEveryTermAcrossTitleAndAuthor() {
+        // when
+        BookPage<Book> page = bookSearchDao.searchBooks(BookQuery.unfiltered(), "Twain  finn", null, 10);
+
+        // then
+        assertThat(page.getItems()).extracting(Book::getWorkTitle)
+                .containsExactly("The Adventures of Huckleberry Finn");
+    }
+
+    @Test
+    void searchBooksAppliesFilters() {
+        // give
+        jdbcTemplate.update("UPDATE book SET genres = ARRAY['Paradise'] WHERE work_title = 'Meditations'");
+        BookQuery query = BookQuery.builder().yearPublishedLowerLimit(1000).build();
+
+        // when
+        BookPage<Book> page = bookSearchDao.searchBooks(query, "paradise", null, 10);
+
+        // then
+        assertThat(page.getItems()).extracting(Book::getWorkTitle).containsExactly("Paradise Lost");
+    }
+
+    @Test
+    void searchBooksFollowsCursorToTheEnd() {
+        // when
+        List<Book> seen = new ArrayList<>();
+        BookPage<Book> page = bookSearchDao.searchBooks(BookQuery.unfiltered(), "a", null, 2);
+        seen.addAll(page.getItems());
+        while (page.getNextCursor() != null) {
+            page = bookSearchDao.searchBooks(
+                    BookQuery.unfiltered(), "a", BookSearchCursor.decode(page.getNextCursor()), 2);
+            seen.addAll(page.getItems());
+        }
+
+        // then
+        assertThat(seen).hasSize(5).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void searchCursorRejectsListCursors() {
+        // when / then
+        assertThatThrownBy(() -> BookSearchCursor.decode("djEKLQpBU0MKMWYzYWNjOWUtYTk2YS00N2RiLWFlZTEtOTNkODcxNWI5NzllCg"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
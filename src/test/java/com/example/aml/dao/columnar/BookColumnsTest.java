@@ -0,0 +1,79 @@
+package com.example.aml.dao.columnar;
+
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookSortColumn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Unit tests for {@link BookColumns} */
+class BookColumnsTest {
+
+    private final ForkJoinPool scanPool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        scanPool.shutdownNow();
+    }
+
+    @Test
+    void parallelScanMatchesSequentialScan() {
+        // give: enough rows for several 64K-row chunks
+        BookColumns columns = new BookColumns(IntStream.range(0, 200_000)
+                .mapToObj(i -> new BookColumns.Row(
+                        UUID.randomUUID(),
+                        "Work Title " + i,
+                        "Primary Author " + i % 500,
+                        i % 7 == 0 ? null : 1500 + i % 500,
+                        1000 + i,
+                        null,
+                        new Timestamp(1_600_000_000_000L + i),
+                        new Timestamp(1_600_000_000_000L + i),
+                        i % 3 == 0 ? new String[]{"Fiction", "Classic"} : new String[]{"Poetry"}))
+                .toList());
+        BookQuery query = BookQuery.builder()
+                .primaryAuthor("author 4")
+                .yearPublishedLowerLimit(1700)
+                .genresAny(List.of("Classic"))
+                .build();
+        BitSet excluded = new BitSet();
+        excluded.set(100_000, 100_100);
+
+        // when
+        BitSet sequential = columns.matchingRows(query, excluded, scanPool, Integer.MAX_VALUE);
+        BitSet parallel = columns.matchingRows(query, excluded, scanPool, 0);
+
+        // then
+        assertThat(sequential.cardinality()).isPositive();
+        assertThat(parallel).isEqualTo(sequential);
+        assertThat(sequential.get(100_050)).isFalse();
+    }
+
+    @Test
+    void sortedRowsPutNullsLast() {
+        // give
+        BookColumns columns = new BookColumns(List.of(
+                row("B", 1900), row("A", null), row("C", 1800)));
+
+        // when
+        int[] byYear = columns.sortedRows(BookSortColumn.YEAR_PUBLISHED);
+
+        // then
+        assertThat(IntStream.of(byYear).mapToObj(row -> columns.bookAt(row).getWorkTitle()))
+                .containsExactly("C", "B", "A");
+    }
+
+    private static BookColumns.Row row(String workTitle, Integer yearPublished) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return new BookColumns.Row(
+                UUID.randomUUID(), workTitle, "Author", yearPublished, 1000, null, now, now, null);
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.aml.dao.columnar;
+
+import com.example.aml.dao.BookDataAccessService;
+import com.example.aml.dao.cache.BookCache;
+import com.example.aml.dao.query.BookCursor;
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookQueryCompiler;
+import com.example.aml.dao.query.BookSortColumn;
+import com.example.aml.dao.query.SortingOrder;
+import com.example.aml.dao.query.SqlDialect;
+import com.example.aml.model.Book;
+import com.example.aml.model.BookPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.aml.testUtils.BookTestConstants.PRIDE_AND_PREJUDICE;
+import static com.example.aml.testUtils.BookTestConstants.SENSE_AND_SENSIBILITY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Unit tests for {@link ColumnarBookDataAccessService} */
+@JdbcTest
+@Sql(
+        scripts = {"/com/example/aml/dao/testing-schema-setup.sql", "/com/example/aml/dao/testing-data.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(
+        scripts = {"/com/example/aml/dao/testing-schema-cleanup.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+class ColumnarBookDataAccessServiceTest {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookQueryCompiler bookQueryCompiler = new BookQueryCompiler(SqlDialect.H2);
+    private final BookDataAccessService databaseDao;
+    private ColumnarBookDataAccessService columnarDao;
+
+    @Autowired
+    public ColumnarBookDataAccessServiceTest(
+            @Autowired JdbcTemplate jdbcTemplate,
+            @Autowired TransactionTemplate transactionTemplate
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        databaseDao = new BookDataAccessService(
+                jdbcTemplate, bookQueryCompiler, transactionTemplate, new BookCache(100, Duration.ofMinutes(10)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (columnarDao != null) {
+            columnarDao.destroy();
+        }
+    }
+
+    @Test
+    void selectBooksMatchesTheDatabase() {
+        // give
+        jdbcTemplate.update(
+                "UPDATE book SET genres = ARRAY['Romance', 'Classic'] WHERE id = ?", PRIDE_AND_PREJUDICE.getId());
+        jdbcTemplate.update("UPDATE book SET genres = ARRAY['Classic'] WHERE work_title = 'Paradise Lost'");
+        loadColumnarDao(1000);
+        List<BookQuery> queries = new ArrayList<>();
+        for (BookSortColumn sortBy : List.of(
+                BookSortColumn.WORK_TITLE, BookSortColumn.PRIMARY_AUTHOR,
+                BookSortColumn.YEAR_PUBLISHED, BookSortColumn.WORD_COUNT)) {
+            for (SortingOrder sortingOrder : SortingOrder.values()) {
+                queries.add(BookQuery.builder().sortBy(sortBy).sortingOrder(sortingOrder).build());
+            }
+        }
+        queries.add(BookQuery.builder().primaryAuthor("AUS").build());
+        queries.add(BookQuery.builder().workTitle("the ").sortBy(BookSortColumn.WORK_TITLE).build());
+        queries.add(BookQuery.builder().wordCountLowerLimit(45000).wordCountUpperLimit(122189).build());
+        queries.add(BookQuery.builder().yearPublishedUpperLimit(1900).sortBy(BookSortColumn.YEAR_PUBLISHED).build());
+        queries.add(BookQuery.builder().genresAny(List.of("Romance", "Classic", "Horror")).build());
+        queries.add(BookQuery.builder().genresAll(List.of("Romance", "Classic")).build());
+        queries.add(BookQuery.builder().genresAll(List.of("Classic", "Horror")).build());
+        queries.add(BookQuery.builder().primaryAuthor("a").wordCountLowerLimit(1).build());
+
+        for (BookQuery query : queries) {
+            // when
+            List<Book> expected = databaseDao.selectBooks(query);
+            List<Book> actual = columnarDao.selectBooks(query);
+
+            // then
+            if (query.getSortBy() == null) {
+                assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+            } else {
+                assertThat(actual).containsExactlyElementsOf(expected);
+            }
+        }
+    }
+
+    @Test
+    void selectBookPageSeeksLikeTheDatabase() {
+        // give: every test book has the same created_at, so the pages are in id order
+        loadColumnarDao(1000);
+        for (SortingOrder sortingOrder : SortingOrder.values()) {
+            BookQuery query = BookQuery.builder()
+                    .sortBy(BookSortColumn.CREATED_AT)
+                    .sortingOrder(sortingOrder)
+                    .limit(2)
+                    .build();
+
+            // when
+            List<Book> expected = readAllPages(query, true);
+            List<Book> actual = readAllPages(query, false);
+
+            // then
+            assertThat(actual).hasSize(5).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void selectBookPageAcceptsCursorsFromTheDatabase() {
+        // give
+        loadColumnarDao(1000);
+        BookQuery query = BookQuery.builder()
+                .sortBy(BookSortColumn.WORD_COUNT)
+                .sortingOrder(SortingOrder.DESC)
+                .limit(2)
+                .build();
+        BookPage<Book> firstPage = databaseDao.selectBookPage(query);
+
+        // when
+        BookPage<Book> secondPage = columnarDao.selectBookPage(
+                query.toBuilder().after(BookCursor.decode(firstPage.getNextCursor())).build());
+
+        // then
+        assertThat(secondPage.getItems()).extracting(Book::getWorkTitle)
+                .containsExactly("The Adventures of Huckleberry Finn", "The Old Man and the Sea");
+        assertThat(secondPage.getNextCursor()).isNotNull();
+    }
+
+    @Test
+    void selectBookPageRejectsCursorForADifferentSortOrder() {
+        // give
+        loadColumnarDao(1000);
+        BookCursor cursor = new BookCursor(BookSortColumn.WORK_TITLE, SortingOrder.ASC, "A", UUID.randomUUID());
+
+        // when / then
+        assertThatThrownBy(() -> columnarDao.selectBookPage(BookQuery.builder()
+                .sortBy(BookSortColumn.YEAR_PUBLISHED)
+                .limit(2)
+                .after(cursor)
+                .build()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void writesAreVisibleBeforeAndAfterCompaction() {
+        // give
+        loadColumnarDao(1000);
+        BookQuery byYear = BookQuery.builder().sortBy(BookSortColumn.YEAR_PUBLISHED).build();
+
+        // when
+        columnarDao.insertBook(SENSE_AND_SENSIBILITY.getId(), SENSE_AND_SENSIBILITY);
+        columnarDao.updateColumnValue(PRIDE_AND_PREJUDICE.getId(), "year_published", 1700);
+        columnarDao.deleteBooksByIds(List.of(
+                jdbcTemplate.queryForObject("SELECT id FROM book WHERE work_title = 'Meditations'", UUID.class)));
+        List<Book> beforeCompaction = columnarDao.selectBooks(byYear);
+        columnarDao.compact();
+        List<Book> afterCompaction = columnarDao.selectBooks(byYear);
+
+        // then
+        assertThat(beforeCompaction).extracting(Book::getWorkTitle).containsExactly(
+                "Paradise Lost",
+                "Pride and Prejudice",
+                "Sense and Sensibility",
+                "The Adventures of Huckleberry Finn",
+                "The Old Man and the Sea");
+        assertThat(beforeCompaction).containsExactlyElementsOf(databaseDao.selectBooks(byYear));
+        assertThat(afterCompaction).containsExactlyElementsOf(beforeCompaction);
+    }
+
+    @Test
+    void compactionFoldsTheOverlayIntoTheCopy() {
+        // give
+        loadColumnarDao(1000);
+        columnarDao.insertBook(SENSE_AND_SENSIBILITY.getId(), SENSE_AND_SENSIBILITY);
+        int overlayBeforeCompaction = columnarDao.overlaySize();
+        int baseRowBeforeCompaction = columnarDao.baseColumns().rowOf(SENSE_AND_SENSIBILITY.getId());
+
+        // when
+        columnarDao.compact();
+
+        // then
+        assertThat(overlayBeforeCompaction).isEqualTo(1);
+        assertThat(baseRowBeforeCompaction).isNegative();
+        assertThat(columnarDao.overlaySize()).isZero();
+        assertThat(columnarDao.baseColumns().size()).isEqualTo(6);
+        assertThat(columnarDao.baseColumns().rowOf(SENSE_AND_SENSIBILITY.getId())).isNotNegative();
+        assertThat(columnarDao.selectBooks(BookQuery.builder().primaryAuthor("austen").build()))
+                .extracting(Book::getWorkTitle)
+                .containsExactlyInAnyOrder("Pride and Prejudice", "Sense and Sensibility");
+    }
+
+    @Test
+    void writesPastTheThresholdQueueACompaction() throws InterruptedException {
+        // give
+        loadColumnarDao(0);
+
+        // when
+        columnarDao.insertBook(SENSE_AND_SENSIBILITY.getId(), SENSE_AND_SENSIBILITY);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (columnarDao.overlaySize() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10); // the compaction runs on the rebuild thread
+        }
+
+        // then
+        assertThat(columnarDao.overlaySize()).isZero();
+        assertThat(columnarDao.baseColumns().rowOf(SENSE_AND_SENSIBILITY.getId())).isNotNegative();
+    }
+
+    @Test
+    void reloadPicksUpChangesMadeOutsideTheDao() {
+        // give
+        loadColumnarDao(1000);
+        jdbcTemplate.update("DELETE FROM book WHERE work_title = 'Paradise Lost'");
+
+        // when
+        int booksBeforeReload = columnarDao.selectBooks(BookQuery.unfiltered()).size();
+        columnarDao.reload();
+        int booksAfterReload = columnarDao.selectBooks(BookQuery.unfiltered()).size();
+
+        // then
+        assertThat(booksBeforeReload).isEqualTo(5);
+        assertThat(booksAfterReload).isEqualTo(4);
+    }
+
+    private void loadColumnarDao(int compactionThreshold) {
+        columnarDao = new ColumnarBookDataAccessService(
+                databaseDao, jdbcTemplate, bookQueryCompiler, Duration.ofHours(1), compactionThreshold, 100000, 2);
+    }
+
+    private List<Book> readAllPages(BookQuery query, boolean fromDatabase) {
+        List<Book> seen = new ArrayList<>();
+        BookPage<Book> page = fromDatabase ? databaseDao.selectBookPage(query) : columnarDao.selectBookPage(query);
+        seen.addAll(page.getItems());
+        while (page.getNextCursor() != null) {
+            BookQuery nextQuery = query.toBuilder().after(BookCursor.decode(page.getNextCursor())).build();
+            page = fromDatabase ? databaseDao.selectBookPage(nextQuery) : columnarDao.selectBookPage(nextQuery);
+            seen.addAll(page.getItems());
+        }
+        return seen;
+    }
+}
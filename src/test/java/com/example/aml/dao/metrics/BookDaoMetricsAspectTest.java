@@ -0,0 +1,58 @@
+package com.example.aml.dao.metrics;
+
+import com.example.aml.dao.BookDao;
+import com.example.aml.dao.query.BookQueryCompiler;
+import com.example.aml.dao.query.SqlDialect;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/** Unit tests for {@link BookDaoMetricsAspect} */
+class BookDaoMetricsAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BookDaoMetricsAspect aspect;
+
+    @BeforeEach
+    void setUp() {
+        aspect = new BookDaoMetricsAspect(meterRegistry, new BookQueryCompiler(SqlDialect.H2));
+    }
+
+    @Test
+    void callsForwardedToAnotherDaoAreRecordedOnce() {
+        // give: an outer DAO writing through to an inner one, like the columnar catalog and postgres
+        UUID id = UUID.randomUUID();
+        BookDao inner = mock(BookDao.class);
+        when(inner.deleteBookById(id)).thenReturn(1);
+        BookDao innerProxy = advised(inner);
+        BookDao outer = mock(BookDao.class);
+        when(outer.deleteBookById(id)).thenAnswer(invocation -> innerProxy.deleteBookById(id));
+        BookDao outerProxy = advised(outer);
+
+        // when
+        int deleted = outerProxy.deleteBookById(id);
+        innerProxy.deleteBookById(id);
+
+        // then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(meterRegistry.get(BookDaoMetricsAspect.CALLS_METRIC)
+                .tag("method", "deleteBookById")
+                .timer()
+                .count())
+                .isEqualTo(2);
+    }
+
+    private BookDao advised(BookDao target) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.addInterface(BookDao.class);
+        proxyFactory.addAspect(aspect);
+        return proxyFactory.getProxy();
+    }
+}
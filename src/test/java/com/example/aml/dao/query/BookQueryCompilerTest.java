@@ -0,0 +1,334 @@
+package com.example.aml.dao.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Unit tests for {@link BookQueryCompiler} */
+class BookQueryCompilerTest {
+
+    @Test
+    void compileUnfilteredQuery() {
+        // give
+        BookQueryCompiler compiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+
+        // when
+        CompiledBookQuery compiledQuery = compiler.compile(BookQuery.unfiltered());
+
+        // then
+        assertThat(compiledQuery.getSql()).startsWith("SELECT").endsWith("FROM book");
+        assertThat(compiledQuery.getArgs()).isEmpty();
+    }
+
+    @Test
+    void compileBindsEveryFilterValue() {
+        // give
+        BookQueryCompiler compiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+        BookQuery query = BookQuery.builder()
+                .workTitle("War and Peace")
+                .primaryAuthor("Tolstoy")
+                .wordCountUpperLimit(600000)
+                .yearPublishedLowerLimit(1800)
+                .sortBy(BookSortColumn.YEAR_PUBLISHED)
+                .sortingOrder(SortingOrder.DESC)
+                .build();
+
+        // when
+        CompiledBookQuery compiledQuery = compiler.compile(query);
+
+        // then
+        assertThat(compiledQuery.getSql())
+                .doesNotContain("War and Peace")
+                .doesNotContain("Tolstoy")
+                .doesNotContain("600000")
+                .contains("LOWER(primary_author) LIKE ? AND LOWER(work_title) LIKE ?")
+                .contains("word_count <= ? AND year_published >= ?")
+                .endsWith("ORDER BY year_published DESC NULLS FIRST");
+        assertThat(compiledQuery.getArgs()).containsExactly("%tolstoy%", "%war and peace%", 600000, 1800);
+    }
+
+    @Test
+    void shapeOfMatchesCompileWithoutCountingAnExecution() {
+        // give
+        BookQueryCompiler compiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+        BookQuery query = BookQuery.builder()
+                .primaryAuthor("Tolstoy")
+                .sortBy(BookSortColumn.YEAR_PUBLISHED)
+                .sortingOrder(SortingOrder.DESC)
+                .build();
+
+        // when
+        String shape = compiler.shapeOf(query);
+
+        // then
+        assertThat(compiler.getShapeCount()).isZero();
+        assertThat(shape).isEqualTo(compiler.compile(query).getShape());
+    }
+
+    @Test
+    void shapeNamesFiltersAndSortWithoutSql() {
+        // give
+        BookQueryCompiler compiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+        BookQuery query = BookQuery.builder()
+                .wordCountUpperLimit(100000)
+                .sortBy(BookSortColumn.WORD_COUNT)
+                .sortingOrder(SortingOrder.DESC)
+                .limit(10)
+                .build();
+
+        // when
+        String shape = compiler.shapeOf(query);
+
+        // then
+        assertThat(shape).isEqualTo("word_count<=|word_count:DESC:paged");
+        assertThat(compiler.shapeOf(BookQuery.builder().limit(10).build())).isEqualTo("|id:ASC:paged");
+    }
+
+    @Test
+    void compileFilterKeepsOnlyTheFilterPredicates() {
+        // give
+        BookQueryCompiler compiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+        BookQuery query = BookQuery.builder()
+                .primaryAuthor("Tolstoy")
+                .yearPublishedLowerLimit(1800)
+                .sortBy(BookSortColumn.YEAR_PUBLISHED)
+                .limit(10)
+                .build();
+
+        // when
+        CompiledBookQuery filter = compiler.compileFilter(query);
+        CompiledBookQuery unfiltered = compiler.compileFilter(BookQuery.unfiltered());
+
+        // then
+        assertThat(filter.getSql()).isEqualTo("LOWER(primary_author) LIKE ? AND year_published >= ?");
+        assertThat(filter.getArgs()).containsExactly("%tolstoy%", 1800);
+        assertThat(unfiltered.getSql()).isEmpty();
+        assertThat(unfiltered.getArgs()).isEmpty();
+        assertThat(compiler.getShapeCount()).isZero();
+    }
+
+    @Test
+    void compileGenreFiltersUseArrayOperatorsOnPostgres() {
+        // give
+        BookQueryCompiler compiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+        BookQuery twoGenres = BookQuery.builder()
+                .genresAny(List.of("Romance", "Poetry"))
+                .genresAll(List.of("Classic"))
+                .build();
+        BookQuery threeGenres = twoGenres.toBuilder().genresAny(List.of("Romance", "Poetry", "Drama")).build();
+
+        // when
+        CompiledBookQuery compiledTwo = compiler.compile(twoGenres);
+        CompiledBookQuery compiledThree = compiler.compile(threeGenres);
+
+        // then
+        assertThat(compiledTwo.getSql())
+                .contains("genres && CAST(? AS text[])")
+                .contains("genres @> CAST(? AS text[])");
+        assertThat(compiledTwo.getArgs()[0]).isEqualTo(new String[]{"Romance", "Poetry"});
+        assertThat(compiledTwo.getArgs()[1]).isEqualTo(new String[]{"Classic"});
+        assertThat(compiledThree.getSql()).isEqualTo(compiledTwo.getSql());
+        assertThat(compiler.getShapeCount()).isEqualTo(1);
+    }
+
+    @Test
+    void compileUsesSameSubstringPredicateForH2() {
+        // give
+        BookQueryCompiler postgresCompiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+        BookQueryCompiler h2Compiler = new BookQueryCompiler(SqlDialect.H2);
+        BookQuery query = BookQuery.builder().workTitle("Paradise").build();
+
+        // when
+        CompiledBookQuery postgresQuery = postgresCompiler.compile(query);
+        CompiledBookQuery h2Query = h2Compiler.compile(query);
+
+        // then
+        assertThat(h2Query.getSql()).isEqualTo(postgresQuery.getSql()).contains("LOWER(work_title) LIKE ?");
+        assertThat(h2Query.getArgs()).containsExactly("%paradise%");
+    }
+
+    @Test
+    void compileEscapesLikeWildcardsInSearchValues() {
+        // give
+        BookQueryCompiler compiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+
+        // when
+        CompiledBookQuery compiledQuery = compiler.compile(
+                BookQuery.builder().workTitle("100%_Pure\\").build());
+
+        // then
+        assertThat(compiledQuery.getArgs()).containsExactly("%100\\%\\_pure\\\\%");
+    }
+
+    @Test
+    void sameFilterCombinationReusesOneShape() {
+        // give
+        BookQueryCompiler compiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+
+        // when
+        CompiledBookQuery first = compiler.compile(
+                BookQuery.builder().workTitle("Emma").wordCountLowerLimit(1000).build());
+        CompiledBookQuery second = compiler.compile(
+                BookQuery.builder().workTitle("Ulysses").wordCountLowerLimit(250000).build());
+        CompiledBookQuery third = compiler.compile(
+                BookQuery.builder().workTitle("Ulysses").build());
+
+        // then
+        assertThat(second.getShape()).isEqualTo(first.getShape());
+        assertThat(second.getSql()).isSameAs(first.getSql());
+        assertThat(third.getShape()).isNotEqualTo(first.getShape());
+        assertThat(compiler.getShapeCount()).isEqualTo(2);
+        assertThat(compiler.getShapeStatistics().get(0).getExecutions()).isEqualTo(2);
+    }
+
+    @Test
+    void compilePagedQuerySeeksPastCursor() {
+        // give
+        BookQueryCompiler compiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+        UUID lastId = UUID.randomUUID();
+        BookQuery query = BookQuery.builder()
+                .sortBy(BookSortColumn.WORD_COUNT)
+                .sortingOrder(SortingOrder.DESC)
+                .limit(50)
+                .after(new BookCursor(BookSortColumn.WORD_COUNT, SortingOrder.DESC, 12000, lastId))
+                .build();
+
+        // when
+        CompiledBookQuery compiledQuery = compiler.compile(query);
+
+        // then
+        assertThat(compiledQuery.getSql())
+                .contains("WHERE (word_count, id) < (?, ?)")
+                .endsWith("ORDER BY word_count DESC NULLS FIRST, id DESC\nLIMIT ?")
+                .doesNotContain("OFFSET");
+        assertThat(compiledQuery.getArgs()).containsExactly(12000, lastId, 51);
+    }
+
+    @Test
+    void compilePagedQueryKeepsNullRowsAfterTheCursor() {
+        // give
+        BookQueryCompiler compiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+        UUID lastId = UUID.randomUUID();
+        BookQuery query = BookQuery.builder()
+                .sortBy(BookSortColumn.YEAR_PUBLISHED)
+                .limit(50)
+                .after(new BookCursor(BookSortColumn.YEAR_PUBLISHED, SortingOrder.ASC, 1813, lastId))
+                .build();
+
+        // when
+        CompiledBookQuery compiledQuery = compiler.compile(query);
+        CompiledBookQuery afterNull = compiler.compile(query.toBuilder()
+                .after(new BookCursor(BookSortColumn.YEAR_PUBLISHED, SortingOrder.ASC, null, lastId))
+                .build());
+
+        // then
+        assertThat(compiledQuery.getSql())
+                .contains("WHERE ((year_published, id) > (?, ?) OR year_published IS NULL)")
+                .endsWith("ORDER BY year_published ASC NULLS LAST, id ASC\nLIMIT ?");
+        assertThat(compiledQuery.getArgs()).containsExactly(1813, lastId, 51);
+        assertThat(afterNull.getSql()).contains("WHERE (year_published IS NULL AND id > ?)");
+        assertThat(afterNull.getArgs()).containsExactly(lastId, 51);
+        assertThat(afterNull.getShape()).isNotEqualTo(compiledQuery.getShape());
+    }
+
+    @Test
+    void compileDescendingPagedQueryLeavesTheNullRowsAfterANullCursor() {
+        // give
+        BookQueryCompiler compiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+        UUID lastId = UUID.randomUUID();
+        BookQuery query = BookQuery.builder()
+                .sortBy(BookSortColumn.WORD_COUNT)
+                .sortingOrder(SortingOrder.DESC)
+                .limit(50)
+                .after(new BookCursor(BookSortColumn.WORD_COUNT, SortingOrder.DESC, null, lastId))
+                .build();
+
+        // when
+        CompiledBookQuery compiledQuery = compiler.compile(query);
+
+        // then
+        assertThat(compiledQuery.getSql())
+                .contains("WHERE (word_count IS NULL AND id < ? OR word_count IS NOT NULL)");
+        assertThat(compiledQuery.getArgs()).containsExactly(lastId, 51);
+    }
+
+    @Test
+    void compilePagedQueryRejectsCursorFromAnotherSort() {
+        // give
+        BookQueryCompiler compiler = new BookQueryCompiler(SqlDialect.POSTGRES);
+        BookQuery query = BookQuery.builder()
+                .sortBy(BookSortColumn.WORK_TITLE)
+                .limit(10)
+                .after(new BookCursor(BookSortColumn.WORD_COUNT, SortingOrder.ASC, 12000, UUID.randomUUID()))
+                .build();
+
+        // then
+        assertThatThrownBy(() -> compiler.compile(query)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cursorRoundTrips() {
+        // give
+        BookCursor cursor = new BookCursor(
+                BookSortColumn.UPDATED_AT, SortingOrder.DESC,
+                Timestamp.valueOf("2021-01-01 10:15:30.123456"), UUID.randomUUID());
+
+        // when
+        BookCursor decoded = BookCursor.decode(cursor.encode());
+
+        // then
+        assertThat(decoded.getSortBy()).isEqualTo(BookSortColumn.UPDATED_AT);
+        assertThat(decoded.getSortingOrder()).isEqualTo(SortingOrder.DESC);
+        assertThat(decoded.getSortValue()).isEqualTo(cursor.getSortValue());
+        assertThat(decoded.getId()).isEqualTo(cursor.getId());
+        assertThatThrownBy(() -> BookCursor.decode("not-a-token")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cursorRoundTripsNullSortValues() {
+        // give
+        BookCursor cursor = new BookCursor(BookSortColumn.YEAR_PUBLISHED, SortingOrder.ASC, null, UUID.randomUUID());
+        BookCursor titleCursor = new BookCursor(BookSortColumn.WORK_TITLE, SortingOrder.ASC, "null", UUID.randomUUID());
+
+        // when
+        BookCursor decoded = BookCursor.decode(cursor.encode());
+        BookCursor decodedTitle = BookCursor.decode(titleCursor.encode());
+
+        // then
+        assertThat(decoded.getSortValue()).isNull();
+        assertThat(decoded.getId()).isEqualTo(cursor.getId());
+        assertThat(decodedTitle.getSortValue()).isEqualTo("null");
+    }
+
+    @Test
+    void cursorStillDecodesV1Tokens() {
+        // give
+        UUID id = UUID.randomUUID();
+        String v1Token = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                String.join("\n", "v1", "word_count", "ASC", id.toString(), "12000")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        // when
+        BookCursor decoded = BookCursor.decode(v1Token);
+
+        // then
+        assertThat(decoded.getSortValue()).isEqualTo(12000);
+        assertThat(decoded.getId()).isEqualTo(id);
+    }
+
+    @Test
+    void sortColumnsAreWhitelisted() {
+        assertThat(BookSortColumn.fromParam("Year_Published")).contains(BookSortColumn.YEAR_PUBLISHED);
+        assertThat(BookSortColumn.fromParam("year_published; DROP TABLE book")).isEmpty();
+        assertThat(SortingOrder.fromParam("desc")).isEqualTo(SortingOrder.DESC);
+        assertThat(SortingOrder.fromParam("sideways")).isEqualTo(SortingOrder.ASC);
+        assertThat(SortingOrder.fromParam(null)).isEqualTo(SortingOrder.ASC);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.aml.integration;
+
+import com.example.aml.dao.cache.BookCache;
+import com.example.aml.dto.BookDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+
+import static com.example.aml.testUtils.BookTestConstants.PRIDE_AND_PREJUDICE_DTO;
+import static com.example.aml.testUtils.BookTestConstants.SENSE_AND_SENSIBILITY_DTO;
+import static com.example.aml.utility.BookConstants.NEXT_PAGE_TOKEN_HEADER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Sql(
+        scripts = {"/com/example/aml/dao/testing-schema-setup.sql", "/com/example/aml/dao/testing-data.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(
+        scripts = {"/com/example/aml/dao/testing-schema-cleanup.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class AsyncBookControllerTest {
+    @LocalServerPort
+    private int localServerPort;
+
+    private String baseUrl;
+
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @BeforeEach
+    void setUp() {
+        // The tables are rebuilt under the running app before every test
+        bookCache.invalidateAll();
+        restTemplate = new RestTemplate();
+        baseUrl = "http://localhost" + ":" + localServerPort + "/api/v1/async/book";
+    }
+
+    @Test
+    void getBookByIdTestBookExists() {
+        // when
+        ResponseEntity<BookDTO> bookDTOResponseEntity =
+                restTemplate.getForEntity(baseUrl + '/' + PRIDE_AND_PREJUDICE_DTO.getId(), BookDTO.class);
+
+        // then
+        assertThat(bookDTOResponseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(bookDTOResponseEntity.getBody().getWorkTitle()).isEqualTo(PRIDE_AND_PREJUDICE_DTO.getWorkTitle());
+    }
+
+    @Test
+    void getBookByIdTestBookDoesNotExist() {
+        // when
+        HttpStatusCode statusCode = null;
+        try {
+            restTemplate.getForEntity(baseUrl + '/' + SENSE_AND_SENSIBILITY_DTO.getId(), BookDTO.class);
+        } catch (HttpClientErrorException exception) {
+            statusCode = exception.getStatusCode();
+        }
+
+        // then
+        assertThat(statusCode).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void getBooksTestPaged() {
+        // give
+        String firstPageUrl = UriComponentsBuilder
+                .fromHttpUrl(baseUrl)
+                .queryParam("sort_by", "word_count")
+                .queryParam("limit", "3")
+                .encode().toUriString();
+
+        // when
+        ResponseEntity<List<BookDTO>> firstPage =
+                restTemplate.exchange(
+                        firstPageUrl,
+                        HttpMethod.GET,
+                        null,
+                        new ParameterizedTypeReference<List<BookDTO>>() {});
+        String nextPageToken = firstPage.getHeaders().getFirst(NEXT_PAGE_TOKEN_HEADER);
+        String secondPageUrl = UriComponentsBuilder
+                .fromHttpUrl(baseUrl)
+                .queryParam("sort_by", "word_count")
+                .queryParam("limit", "3")
+                .queryParam("next", nextPageToken)
+                .encode().toUriString();
+        ResponseEntity<List<BookDTO>> secondPage =
+                restTemplate.exchange(
+                        secondPageUrl,
+                        HttpMethod.GET,
+                        null,
+                        new ParameterizedTypeReference<List<BookDTO>>() {});
+
+        // then
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(firstPage.getBody()).hasSize(3);
+        assertThat(firstPage.getBody().get(0).getWorkTitle()).isEqualTo("Meditations");
+        assertThat(secondPage.getBody()).hasSize(2);
+        assertThat(secondPage.getBody().get(1).getWorkTitle()).isEqualTo("Paradise Lost");
+        assertThat(secondPage.getHeaders().getFirst(NEXT_PAGE_TOKEN_HEADER)).isNull();
+    }
+
+    @Test
+    void getBooksTestPagedBadToken() {
+        // give
+        String urlTemplate = UriComponentsBuilder
+                .fromHttpUrl(baseUrl)
+                .queryParam("limit", "3")
+                .queryParam("next", "not-a-real-token")
+                .encode().toUriString();
+
+        // when
+        HttpStatusCode statusCode = null;
+        try {
+            restTemplate.getForEntity(urlTemplate, String.class);
+        } catch (HttpClientErrorException exception) {
+            statusCode = exception.getStatusCode();
+        }
+
+        // then
+        assertThat(statusCode).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void addBookTestNewBookCanBeListed() {
+        // when
+        Integer response = restTemplate.postForObject(baseUrl, SENSE_AND_SENSIBILITY_DTO, Integer.class);
+        ResponseEntity<List<BookDTO>> books =
+                restTemplate.exchange(
+                        baseUrl,
+                        HttpMethod.GET,
+                        null,
+                        new ParameterizedTypeReference<List<BookDTO>>() {});
+
+        // then
+        assertThat(response).isNotZero();
+        assertThat(books.getBody()).extracting(BookDTO::getWorkTitle)
+                .contains(SENSE_AND_SENSIBILITY_DTO.getWorkTitle());
+    }
+}
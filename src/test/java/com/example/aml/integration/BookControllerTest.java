@@ -1,5 +1,7 @@
 package com.example.aml.integration;
 
+import com.example.aml.dao.cache.BookCache;
+import com.example.aml.dto.BookBatchResultDTO;
 import com.example.aml.dto.BookDTO;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +14,7 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
@@ -21,13 +24,20 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.imageio.ImageIO;
 import javax.sql.DataSource;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static com.example.aml.testUtils.BookTestConstants.PRIDE_AND_PREJUDICE_DTO;
+import static com.example.aml.utility.BookConstants.COVER_MISSING_HEADER;
+import static com.example.aml.utility.BookConstants.NEXT_PAGE_TOKEN_HEADER;
 import static com.example.aml.testUtils.BookTestConstants.SENSE_AND_SENSIBILITY_DTO;
 import static com.example.aml.testUtils.BookTestConstants.bookDTOtoJson;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -53,8 +63,13 @@ class BookControllerTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private BookCache bookCache;
+
     @BeforeEach
     void setUp() {
+        // The tables are rebuilt under the running app before every test
+        bookCache.invalidateAll();
         restTemplate = new RestTemplate();
         baseUrl =  "http://localhost" + ":" + localServerPort + "/api/v1/book";
     }
@@ -453,6 +468,308 @@ class BookControllerTest {
         assertThat(bookDTOResponseEntity.getBody()).isNotNull();
     }
 
+    @Test
+    void getBooksTestPaged() {
+        // give
+        String firstPageUrl = UriComponentsBuilder
+                .fromHttpUrl(baseUrl)
+                .queryParam("sort_by", "word_count")
+                .queryParam("limit", "3")
+                .encode().toUriString();
+
+        // when
+        ResponseEntity<List<BookDTO>> firstPage =
+                restTemplate.exchange(
+                        firstPageUrl,
+                        HttpMethod.GET,
+                        null,
+                        new ParameterizedTypeReference<List<BookDTO>>() {});
+        String nextPageToken = firstPage.getHeaders().getFirst(NEXT_PAGE_TOKEN_HEADER);
+        String secondPageUrl = UriComponentsBuilder
+                .fromHttpUrl(baseUrl)
+                .queryParam("sort_by", "word_count")
+                .queryParam("limit", "3")
+                .queryParam("next", nextPageToken)
+                .encode().toUriString();
+        ResponseEntity<List<BookDTO>> secondPage =
+                restTemplate.exchange(
+                        secondPageUrl,
+                        HttpMethod.GET,
+                        null,
+                        new ParameterizedTypeReference<List<BookDTO>>() {});
+
+        // then
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(firstPage.getBody()).hasSize(3);
+        assertThat(firstPage.getBody().get(0).getWorkTitle()).isEqualTo("Meditations");
+        assertThat(nextPageToken).isNotBlank();
+        assertThat(secondPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(secondPage.getBody()).hasSize(2);
+        assertThat(secondPage.getBody().get(1).getWorkTitle()).isEqualTo("Paradise Lost");
+        assertThat(secondPage.getHeaders().getFirst(NEXT_PAGE_TOKEN_HEADER)).isNull();
+    }
+
+    @Test
+    void searchBooksTestRanksMatches() {
+        // give
+        String firstPageUrl = UriComponentsBuilder
+                .fromHttpUrl(baseUrl + "/search")
+                .queryParam("q", "the")
+                .queryParam("limit", "1")
+                .encode().toUriString();
+
+        // when
+        ResponseEntity<List<BookDTO>> firstPage =
+                restTemplate.exchange(
+                        firstPageUrl,
+                        HttpMethod.GET,
+                        null,
+                        new ParameterizedTypeReference<List<BookDTO>>() {});
+        String nextPageToken = firstPage.getHeaders().getFirst(NEXT_PAGE_TOKEN_HEADER);
+        String secondPageUrl = UriComponentsBuilder
+                .fromHttpUrl(baseUrl + "/search")
+                .queryParam("q", "the")
+                .queryParam("limit", "1")
+                .queryParam("next", nextPageToken)
+                .encode().toUriString();
+        ResponseEntity<List<BookDTO>> secondPage =
+                restTemplate.exchange(
+                        secondPageUrl,
+                        HttpMethod.GET,
+                        null,
+                        new ParameterizedTypeReference<List<BookDTO>>() {});
+
+        // then
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(nextPageToken).isNotBlank();
+        assertThat(List.of(firstPage.getBody().get(0), secondPage.getBody().get(0)))
+                .extracting(BookDTO::getWorkTitle)
+                .containsExactlyInAnyOrder("The Adventures of Huckleberry Finn", "The Old Man and the Sea");
+        assertThat(secondPage.getHeaders().getFirst(NEXT_PAGE_TOKEN_HEADER)).isNull();
+    }
+
+    @Test
+    void searchBooksTestWithoutTerms() {
+        // when
+        HttpStatusCode statusCode = null;
+        try {
+            restTemplate.getForEntity(baseUrl + "/search", String.class);
+        } catch (HttpClientErrorException exception) {
+            statusCode = exception.getStatusCode();
+        }
+
+        // then
+        assertThat(statusCode).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getBooksTestPagedBadToken() {
+        // give
+        String urlTemplate = UriComponentsBuilder
+                .fromHttpUrl(baseUrl)
+                .queryParam("limit", "3")
+                .queryParam("next", "not-a-real-token")
+                .encode().toUriString();
+
+        // when
+        HttpStatus status = null;
+        try {
+            restTemplate.getForEntity(urlTemplate, String.class);
+        } catch (HttpClientErrorException exception) {
+            status = (HttpStatus) exception.getStatusCode();
+        }
+
+        // then
+        assertThat(status).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getBooksTestNdjsonStream() {
+        // give
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        String urlTemplate = UriComponentsBuilder
+                .fromHttpUrl(baseUrl)
+                .queryParam("sort_by", "year_published")
+                .encode().toUriString();
+
+        // when
+        ResponseEntity<String> response =
+                restTemplate.exchange(
+                        urlTemplate,
+                        HttpMethod.GET,
+                        new HttpEntity<>(headers),
+                        String.class);
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(5);
+        assertThat(lines[0]).startsWith("{").contains("\"work_title\":\"Meditations\"");
+        assertThat(lines[4]).contains("\"work_title\":\"The Old Man and the Sea\"");
+    }
+
+    @Test
+    void getBooksTestStreamParam() {
+        // give
+        String urlTemplate = UriComponentsBuilder
+                .fromHttpUrl(baseUrl)
+                .queryParam("stream", "true")
+                .queryParam("primary_author", "j")
+                .encode().toUriString();
+
+        // when
+        ResponseEntity<String> response = restTemplate.getForEntity(urlTemplate, String.class);
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().split("\n")).hasSize(2);
+    }
+
+    @Test
+    void getBooksTestAnyAcceptStillReturnsJsonArray() {
+        // give
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.ALL));
+
+        // when
+        ResponseEntity<String> response =
+                restTemplate.exchange(baseUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(response.getBody()).startsWith("[");
+    }
+
+    @Test
+    void getCoverTestServesBytesAndHonorsETag() {
+        // give
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 4, 2};
+        restTemplate.put(
+                baseUrl + "/image/" + PRIDE_AND_PREJUDICE_DTO.getId(),
+                Map.of("picture", png));
+        String coverUrl = baseUrl + '/' + PRIDE_AND_PREJUDICE_DTO.getId() + "/cover";
+
+        // when
+        ResponseEntity<byte[]> response = restTemplate.getForEntity(coverUrl, byte[].class);
+        HttpHeaders conditionalHeaders = new HttpHeaders();
+        conditionalHeaders.setIfNoneMatch(response.getHeaders().getETag());
+        ResponseEntity<byte[]> revalidation = restTemplate.exchange(
+                coverUrl, HttpMethod.GET, new HttpEntity<>(conditionalHeaders), byte[].class);
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.IMAGE_PNG);
+        assertThat(response.getHeaders().getCacheControl()).contains("max-age=");
+        assertThat(response.getHeaders().getETag()).startsWith("\"");
+        assertThat(response.getBody()).isEqualTo(png);
+        assertThat(revalidation.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(revalidation.getBody()).isNull();
+        assertThat(revalidation.getHeaders().getETag()).isEqualTo(response.getHeaders().getETag());
+        assertThat(revalidation.getHeaders().getCacheControl()).isEqualTo(response.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void getCoverTestServesGeneratedVariantForSize() throws Exception {
+        // give
+        BufferedImage original = new BufferedImage(400, 600, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(original, "png", png);
+        restTemplate.put(
+                baseUrl + "/image/" + PRIDE_AND_PREJUDICE_DTO.getId(),
+                Map.of("picture", png.toByteArray()));
+        String coverUrl = baseUrl + '/' + PRIDE_AND_PREJUDICE_DTO.getId() + "/cover?size=64";
+
+        // when
+        ResponseEntity<byte[]> response = restTemplate.getForEntity(coverUrl, byte[].class);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!response.getHeaders().getETag().endsWith("-64\"") && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            response = restTemplate.getForEntity(coverUrl, byte[].class);
+        }
+
+        // then
+        BufferedImage variant = ImageIO.read(new ByteArrayInputStream(response.getBody()));
+        assertThat(response.getHeaders().getETag()).endsWith("-64\"");
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.IMAGE_JPEG);
+        assertThat(response.getHeaders().getCacheControl()).contains("max-age=");
+        assertThat(variant.getWidth()).isEqualTo(64);
+        assertThat(variant.getHeight()).isEqualTo(96);
+    }
+
+    @Test
+    void getCoverTestUnsupportedSize() {
+        // when
+        HttpStatusCode statusCode = null;
+        try {
+            restTemplate.getForEntity(
+                    baseUrl + '/' + PRIDE_AND_PREJUDICE_DTO.getId() + "/cover?size=999", byte[].class);
+        } catch (HttpClientErrorException exception) {
+            statusCode = exception.getStatusCode();
+        }
+
+        // then
+        assertThat(statusCode).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getBookFacetsTestAppliesFilters() throws Exception {
+        // give
+        String urlTemplate = UriComponentsBuilder.fromHttpUrl(baseUrl + "/facets")
+                .queryParam("year_published_upper_limit", 1850)
+                .encode()
+                .toUriString();
+
+        // when
+        ResponseEntity<String> response = restTemplate.getForEntity(urlTemplate, String.class);
+
+        // then
+        JSONObject facets = new JSONObject(response.getBody());
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(facets.getLong("total")).isEqualTo(4);
+        assertThat(facets.getJSONObject("decades").getLong("1810")).isEqualTo(1);
+        assertThat(facets.getJSONObject("decades").has("1950")).isFalse();
+        assertThat(facets.getJSONObject("word_counts").getLong("100000-199999")).isEqualTo(1);
+    }
+
+    // The test schema has no placeholder picture, so a book without a cover is a 404 marked as such
+    @Test
+    void getCoverTestBookWithoutCover() {
+        // when
+        HttpClientErrorException exception = null;
+        try {
+            restTemplate.getForEntity(
+                    baseUrl + '/' + PRIDE_AND_PREJUDICE_DTO.getId() + "/cover", byte[].class);
+        } catch (HttpClientErrorException e) {
+            exception = e;
+        }
+
+        // then
+        assertThat(exception).isNotNull();
+        assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(exception.getResponseHeaders().getFirst(COVER_MISSING_HEADER)).isEqualTo("true");
+        assertThat(exception.getResponseHeaders().getCacheControl()).contains("max-age=3600");
+    }
+
+    @Test
+    void getCoverTestBookDoesNotExist() {
+        // give
+
+        // when
+        HttpStatusCode statusCode = null;
+        try {
+            restTemplate.getForEntity(
+                    baseUrl + '/' + SENSE_AND_SENSIBILITY_DTO.getId() + "/cover", byte[].class);
+        } catch (HttpClientErrorException exception) {
+            statusCode = exception.getStatusCode();
+        }
+
+        // then
+        assertThat(statusCode).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
     // DELETE tests
     @Test
     void deleteBookTestBookExists() {
@@ -499,6 +816,24 @@ class BookControllerTest {
         // then
     }
 
+    @Test
+    void deleteBooksTestDeletesOnlyExistingBooks() {
+        // give
+        restTemplate.setRequestFactory(new HttpComponentsClientHttpRequestFactory());
+        HttpEntity<List<String>> request = new HttpEntity<>(List.of(
+                PRIDE_AND_PREJUDICE_DTO.getId().toString(),
+                SENSE_AND_SENSIBILITY_DTO.getId().toString()));
+
+        // when
+        ResponseEntity<Integer> response = restTemplate.exchange(baseUrl, HttpMethod.DELETE, request, Integer.class);
+        Integer remainingBooks = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM book", Integer.class);
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(1);
+        assertThat(remainingBooks).isEqualTo(4);
+    }
+
     // POST tests
     @Test
     void addBookTestNewBook() {
@@ -551,6 +886,65 @@ class BookControllerTest {
         assertThat(response).isZero();
     }
 
+    @Test
+    void addBooksBatchTestJson() {
+        // give
+        List<BookDTO> books = List.of(SENSE_AND_SENSIBILITY_DTO, PRIDE_AND_PREJUDICE_DTO, SENSE_AND_SENSIBILITY_DTO);
+
+        // when
+        ResponseEntity<List<BookBatchResultDTO>> response =
+                restTemplate.exchange(
+                        baseUrl + "/batch",
+                        HttpMethod.POST,
+                        new HttpEntity<>(books),
+                        new ParameterizedTypeReference<List<BookBatchResultDTO>>() {});
+        ResponseEntity<List<BookDTO>> bookList =
+                restTemplate.exchange(
+                        baseUrl,
+                        HttpMethod.GET,
+                        null,
+                        new ParameterizedTypeReference<List<BookDTO>>() {});
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(BookBatchResultDTO::getStatus).containsExactly(
+                BookBatchResultDTO.Status.INSERTED,
+                BookBatchResultDTO.Status.DUPLICATE,
+                BookBatchResultDTO.Status.DUPLICATE);
+        assertThat(bookList.getBody()).hasSize(6);
+    }
+
+    @Test
+    void addBooksBatchTestCsv() {
+        // give
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+        String csv = """
+                work_title,primary_author,year_published,word_count,genres
+                Emma,Jane Austen,1815,160996,Romance;Satire
+                "War and Peace, Volume 1",Leo Tolstoy,1869,587287,
+                Bad Row,Nobody,not-a-year,1
+                Meditations,Marcus Aurelius,175,17641,
+                """;
+
+        // when
+        ResponseEntity<List<BookBatchResultDTO>> response =
+                restTemplate.exchange(
+                        baseUrl + "/batch",
+                        HttpMethod.POST,
+                        new HttpEntity<>(csv, headers),
+                        new ParameterizedTypeReference<List<BookBatchResultDTO>>() {});
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(BookBatchResultDTO::getStatus).containsExactly(
+                BookBatchResultDTO.Status.INSERTED,
+                BookBatchResultDTO.Status.INSERTED,
+                BookBatchResultDTO.Status.INVALID,
+                BookBatchResultDTO.Status.DUPLICATE);
+        assertThat(response.getBody().get(1).getWorkTitle()).isEqualTo("War and Peace, Volume 1");
+    }
+
     // PUT tests
     @Test
     void putBookTestBookExists() {
@@ -583,6 +977,39 @@ class BookControllerTest {
                 .isEqualTo(SENSE_AND_SENSIBILITY_DTO.getYearPublished());
     }
 
+    @Test
+    void putBookTestRenamedIntoExistingBook() {
+        // give: a letter-case variant of another stored book's title
+        BookDTO huckleberryFinn = new BookDTO(
+                PRIDE_AND_PREJUDICE_DTO.getId(),
+                "the adventures of huckleberry finn",
+                "Mark Twain",
+                1843,
+                77000,
+                null);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<String> request =
+                new HttpEntity<>(bookDTOtoJson(huckleberryFinn).toString(), headers);
+
+        // when
+        HttpStatusCode statusCode = null;
+        try {
+            restTemplate.put(baseUrl + '/' + PRIDE_AND_PREJUDICE_DTO.getId().toString(), request);
+        } catch (HttpClientErrorException exception) {
+            statusCode = exception.getStatusCode();
+        }
+        ResponseEntity<BookDTO> bookDTOResponseEntity =
+                restTemplate.getForEntity(
+                        baseUrl + '/' + PRIDE_AND_PREJUDICE_DTO.getId().toString(),
+                        BookDTO.class);
+
+        // then
+        assertThat(statusCode).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(bookDTOResponseEntity.getBody().getWorkTitle())
+                .isEqualTo(PRIDE_AND_PREJUDICE_DTO.getWorkTitle());
+    }
+
     @Test
     void putBookTestBookDoesNotExist() {
         // give
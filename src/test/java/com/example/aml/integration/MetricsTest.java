@@ -0,0 +1,59 @@
+package com.example.aml.integration;
+
+import com.example.aml.dao.cache.BookCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.web.client.RestTemplate;
+
+import static com.example.aml.testUtils.BookTestConstants.PRIDE_AND_PREJUDICE_DTO;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Sql(
+        scripts = {"/com/example/aml/dao/testing-schema-setup.sql", "/com/example/aml/dao/testing-data.sql"},
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(
+        scripts = {"/com/example/aml/dao/testing-schema-cleanup.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability
+class MetricsTest {
+    @LocalServerPort
+    private int localServerPort;
+
+    @Autowired
+    private BookCache bookCache;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    @BeforeEach
+    void setUp() {
+        bookCache.invalidateAll();
+    }
+
+    @Test
+    void prometheusEndpointExposesDaoTimersRowCountsAndPoolGauges() {
+        // give
+        String baseUrl = "http://localhost:" + localServerPort;
+        restTemplate.getForObject(baseUrl + "/api/v1/book?primary_author=austen", String.class);
+        restTemplate.getForObject(baseUrl + "/api/v1/book/" + PRIDE_AND_PREJUDICE_DTO.getId(), String.class);
+
+        // when
+        String scrape = restTemplate.getForObject(baseUrl + "/actuator/prometheus", String.class);
+
+        // then
+        assertThat(scrape)
+                .contains("book_dao_calls_seconds_bucket{")
+                .containsPattern("book_dao_calls_seconds_count\\{endpoint=\"GET /api/v1/book\",method=\"selectBooks\","
+                        + "outcome=\"success\",shape=\"primary_author~\\|\",\\} 1\\.0")
+                .containsPattern("book_dao_calls_seconds_count\\{endpoint=\"GET /api/v1/book/\\{id}\","
+                        + "method=\"selectBookById\",outcome=\"success\",shape=\"none\",\\} 1\\.0")
+                .containsPattern("book_dao_rows_total\\{endpoint=\"GET /api/v1/book\",method=\"selectBooks\","
+                        + "shape=\"primary_author~\\|\",\\} [1-9]")
+                .contains("hikaricp_connections_active");
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.aml.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Tests for {@link BookCoverClient} against a local HTTP server */
+class BookCoverClientTest {
+
+    private HttpServer server;
+    private BookCoverClient bookCoverClient;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch releaseSlowResponses = new CountDownLatch(1);
+    private final AtomicReference<String> lastQuery = new AtomicReference<>();
+    private final List<BookCoverClient> clients = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/bookcover", exchange -> {
+            lastQuery.set(exchange.getRequestURI().getRawQuery());
+            respond(exchange, 200, "{\"url\": \"http://127.0.0.1:" + server.getAddress().getPort() + "/emma.jpg\"}");
+        });
+        server.createContext("/emma.jpg", exchange -> respond(exchange, 200, "image"));
+        server.createContext("/notfound/bookcover", exchange -> respond(exchange, 404, "{\"error\": \"not found\"}"));
+        server.createContext("/unavailable/bookcover", exchange -> respond(exchange, 503, "unavailable"));
+        server.createContext("/ratelimited/bookcover", exchange -> respond(exchange, 429, "slow down"));
+        server.createContext("/malformed/bookcover", exchange -> respond(exchange, 200, "{\"url\": \"http://covers example/x.jpg\"}"));
+        server.createContext("/missing", exchange -> respond(exchange, 500, "{\"error\": \"not found\"}"));
+        server.createContext("/slow", exchange -> {
+            try {
+                releaseSlowResponses.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "late");
+        });
+        server.start();
+
+        bookCoverClient = clientFor("/bookcover");
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseSlowResponses.countDown();
+        clients.forEach(BookCoverClient::destroy);
+        server.stop(0);
+    }
+
+    @Test
+    void looksUpCoverUrlWithEncodedParameters() {
+        // when
+        Optional<String> url = bookCoverClient.lookUpCoverUrl("Pride & Prejudice", "Jane Austen").join();
+
+        // then
+        assertThat(url).hasValue(baseUrl() + "/emma.jpg");
+        assertThat(lastQuery.get()).isEqualTo("book_title=Pride%20%26%20Prejudice&author_name=Jane%20Austen");
+        assertThat(meterRegistry.get(BookCoverClient.CALLS_METRIC)
+                .tag("operation", "lookup")
+                .tag("outcome", "found")
+                .timer()
+                .count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void notFoundLookupMeansNoCover() {
+        // when
+        Optional<String> url = clientFor("/notfound/bookcover").lookUpCoverUrl("Emma", "Jane Austen").join();
+
+        // then
+        assertThat(url).isEmpty();
+    }
+
+    @Test
+    void unavailableLookupApiFailsInsteadOfReportingNoCover() {
+        // give
+        // The HTTP client retries a 503 once after a second before giving up
+        BookCoverClient client = clientFor("/unavailable/bookcover", Duration.ofSeconds(5));
+
+        // when / then
+        assertThatThrownBy(() -> client.lookUpCoverUrl("Emma", "Jane Austen").join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(meterRegistry.get(BookCoverClient.CALLS_METRIC)
+                .tag("operation", "lookup")
+                .tag("outcome", "error")
+                .timer()
+                .count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void rateLimitedLookupFailsInsteadOfReportingNoCover() {
+        // give
+        BookCoverClient client = clientFor("/ratelimited/bookcover", Duration.ofSeconds(5));
+
+        // when / then
+        assertThatThrownBy(() -> client.lookUpCoverUrl("Emma", "Jane Austen").join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void malformedCoverUrlMeansNoCover() {
+        // when
+        Optional<String> url = clientFor("/malformed/bookcover").lookUpCoverUrl("Emma", "Jane Austen").join();
+
+        // then
+        assertThat(url).isEmpty();
+    }
+
+    @Test
+    void malformedImageUrlFailsTheFutureInsteadOfThrowing() {
+        // when
+        CompletableFuture<Optional<byte[]>> withSpace = bookCoverClient.downloadImage("http://covers example/x.jpg");
+        CompletableFuture<Optional<byte[]>> notHttp = bookCoverClient.downloadImage("file:///etc/passwd");
+
+        // then
+        assertThatThrownBy(withSpace::join).isInstanceOf(CompletionException.class);
+        assertThatThrownBy(notHttp::join).isInstanceOf(CompletionException.class);
+        assertThat(meterRegistry.get(BookCoverClient.CALLS_METRIC)
+                .tag("operation", "download")
+                .tag("outcome", "error")
+                .timer()
+                .count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void errorResponsesMeanNoCover() {
+        // when
+        Optional<byte[]> image = bookCoverClient.downloadImage(baseUrl() + "/missing").join();
+
+        // then
+        assertThat(image).isEmpty();
+    }
+
+    @Test
+    void slowUpstreamFailsFastAndReleasesItsConnections() {
+        // give
+        CompletableFuture<?>[] slowDownloads = new CompletableFuture<?>[4];
+        for (int i = 0; i < slowDownloads.length; ++i) {
+            slowDownloads[i] = bookCoverClient.downloadImage(baseUrl() + "/slow");
+        }
+
+        // when
+        long start = System.nanoTime();
+        for (CompletableFuture<?> download : slowDownloads) {
+            assertThatThrownBy(download::join)
+                    .isInstanceOf(CompletionException.class)
+                    .satisfies(e -> assertThat(e.getCause())
+                            .isInstanceOfAny(TimeoutException.class, SocketTimeoutException.class));
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        // then
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(3));
+        assertThat(bookCoverClient.downloadImage(baseUrl() + "/emma.jpg").join())
+                .hasValueSatisfying(bytes -> assertThat(new String(bytes, StandardCharsets.UTF_8)).isEqualTo("image"));
+    }
+
+    private BookCoverClient clientFor(String lookupPath) {
+        return clientFor(lookupPath, Duration.ofMillis(500));
+    }
+
+    private BookCoverClient clientFor(String lookupPath, Duration requestTimeout) {
+        BookCoverClient client = new BookCoverClient(
+                baseUrl() + lookupPath,
+                Duration.ofSeconds(1),
+                Duration.ofMillis(300),
+                requestTimeout,
+                10,
+                2,
+                meterRegistry);
+        clients.add(client);
+        return client;
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
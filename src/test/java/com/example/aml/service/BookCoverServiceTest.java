@@ -0,0 +1,162 @@
+package com.example.aml.service;
+
+import com.example.aml.dao.BookCoverLookupDataAccessService;
+import com.example.aml.model.BookCoverLookup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Unit tests for {@link BookCoverService} */
+@ExtendWith(MockitoExtension.class)
+class BookCoverServiceTest {
+
+    private static final String COVER_URL = "http://covers.example/emma.jpg";
+
+    private BookCoverService bookCoverService;
+
+    @Mock
+    private BookCoverClient bookCoverClient;
+    @Mock
+    private BookCoverLookupDataAccessService bookCoverLookupDao;
+
+    @BeforeEach
+    void setUp() {
+        bookCoverService = new BookCoverService(
+                bookCoverClient, bookCoverLookupDao, Duration.ofDays(30), Duration.ofDays(3));
+    }
+
+    @Test
+    void knownMissingCoverMakesNoCalls() {
+        // give
+        Instant now = Instant.now();
+        when(bookCoverLookupDao.selectUnexpiredLookup(eq("emma"), eq("jane austen"), any(Instant.class)))
+                .thenReturn(Optional.of(new BookCoverLookup(
+                        "emma", "jane austen", null, null, now, now.plus(Duration.ofDays(3)))));
+
+        // when
+        Optional<byte[]> cover = bookCoverService.getBookCoverURL(" Emma", "Jane Austen ");
+
+        // then
+        assertThat(cover).isEmpty();
+        verify(bookCoverClient, never()).lookUpCoverUrl(anyString(), anyString());
+        verify(bookCoverClient, never()).downloadImage(anyString());
+        verify(bookCoverLookupDao, never()).upsertLookup(any(BookCoverLookup.class));
+    }
+
+    @Test
+    void knownCoverUrlSkipsTheLookupCall() {
+        // give
+        byte[] image = {1, 2, 3};
+        Instant now = Instant.now();
+        when(bookCoverLookupDao.selectUnexpiredLookup(anyString(), anyString(), any(Instant.class)))
+                .thenReturn(Optional.of(new BookCoverLookup(
+                        "emma", "jane austen", COVER_URL,
+                        "039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81",
+                        now, now.plus(Duration.ofDays(30)))));
+        when(bookCoverClient.downloadImage(COVER_URL))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(image)));
+
+        // when
+        Optional<byte[]> cover = bookCoverService.getBookCoverURL("Emma", "Jane Austen");
+
+        // then
+        assertThat(cover).hasValue(image);
+        verify(bookCoverClient, never()).lookUpCoverUrl(anyString(), anyString());
+        verify(bookCoverLookupDao, never()).upsertLookup(any(BookCoverLookup.class));
+    }
+
+    @Test
+    void lookupWithoutCoverIsRememberedWithNegativeTtl() {
+        // give
+        when(bookCoverLookupDao.selectUnexpiredLookup(anyString(), anyString(), any(Instant.class)))
+                .thenReturn(Optional.empty());
+        when(bookCoverClient.lookUpCoverUrl("Emma", "Jane Austen"))
+                .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        // when
+        Optional<byte[]> cover = bookCoverService.getBookCoverURL("Emma", "Jane Austen");
+
+        // then
+        ArgumentCaptor<BookCoverLookup> lookupCaptor = ArgumentCaptor.forClass(BookCoverLookup.class);
+        verify(bookCoverLookupDao).upsertLookup(lookupCaptor.capture());
+        BookCoverLookup lookup = lookupCaptor.getValue();
+        assertThat(cover).isEmpty();
+        assertThat(lookup.getWorkTitleKey()).isEqualTo("emma");
+        assertThat(lookup.getPrimaryAuthorKey()).isEqualTo("jane austen");
+        assertThat(lookup.isFound()).isFalse();
+        assertThat(Duration.between(lookup.getLookedUpAt(), lookup.getExpiresAt())).isEqualTo(Duration.ofDays(3));
+    }
+
+    @Test
+    void foundCoverIsRememberedWithItsHash() {
+        // give
+        byte[] image = {1, 2, 3};
+        when(bookCoverLookupDao.selectUnexpiredLookup(anyString(), anyString(), any(Instant.class)))
+                .thenReturn(Optional.empty());
+        when(bookCoverClient.lookUpCoverUrl("Emma", "Jane Austen"))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(COVER_URL)));
+        when(bookCoverClient.downloadImage(COVER_URL))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(image)));
+
+        // when
+        Optional<byte[]> cover = bookCoverService.getBookCoverURL("Emma", "Jane Austen");
+
+        // then
+        ArgumentCaptor<BookCoverLookup> lookupCaptor = ArgumentCaptor.forClass(BookCoverLookup.class);
+        verify(bookCoverLookupDao).upsertLookup(lookupCaptor.capture());
+        BookCoverLookup lookup = lookupCaptor.getValue();
+        assertThat(cover).hasValue(image);
+        assertThat(lookup.getCoverUrl()).isEqualTo(COVER_URL);
+        assertThat(lookup.getImageSha256())
+                .isEqualTo("039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81");
+        assertThat(Duration.between(lookup.getLookedUpAt(), lookup.getExpiresAt())).isEqualTo(Duration.ofDays(30));
+    }
+
+    @Test
+    void failedDownloadKeepsTheUrlAndIsRetried() {
+        // give
+        byte[] image = {1, 2, 3};
+        when(bookCoverLookupDao.selectUnexpiredLookup(anyString(), anyString(), any(Instant.class)))
+                .thenReturn(Optional.empty());
+        when(bookCoverClient.lookUpCoverUrl("Emma", "Jane Austen"))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(COVER_URL)));
+        when(bookCoverClient.downloadImage(COVER_URL))
+                .thenReturn(CompletableFuture.completedFuture(Optional.empty()))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(image)));
+
+        // when
+        Optional<byte[]> firstCover = bookCoverService.getBookCoverURL("Emma", "Jane Austen");
+        ArgumentCaptor<BookCoverLookup> lookupCaptor = ArgumentCaptor.forClass(BookCoverLookup.class);
+        verify(bookCoverLookupDao).upsertLookup(lookupCaptor.capture());
+        BookCoverLookup failedLookup = lookupCaptor.getValue();
+        when(bookCoverLookupDao.selectUnexpiredLookup(anyString(), anyString(), any(Instant.class)))
+                .thenReturn(Optional.of(failedLookup));
+        Optional<byte[]> secondCover = bookCoverService.getBookCoverURL("Emma", "Jane Austen");
+
+        // then
+        assertThat(firstCover).isEmpty();
+        assertThat(failedLookup.isFound()).isTrue();
+        assertThat(failedLookup.getCoverUrl()).isEqualTo(COVER_URL);
+        assertThat(failedLookup.getImageSha256()).isNull();
+        assertThat(secondCover).hasValue(image);
+        verify(bookCoverClient, times(1)).lookUpCoverUrl(anyString(), anyString());
+        verify(bookCoverClient, times(2)).downloadImage(COVER_URL);
+    }
+}
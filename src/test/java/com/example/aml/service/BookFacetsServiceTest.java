@@ -0,0 +1,65 @@
+package com.example.aml.service;
+
+import com.example.aml.dao.BookFacetsDataAccessService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/** Unit tests for {@link BookFacetsService} */
+@ExtendWith(MockitoExtension.class)
+class BookFacetsServiceTest {
+
+    private BookFacetsService bookFacetsService;
+
+    @Mock
+    private BookFacetsDataAccessService bookFacetsDao;
+
+    @BeforeEach
+    void setUp() {
+        // Long enough that the background refresh never runs during a test
+        bookFacetsService = new BookFacetsService(bookFacetsDao, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookFacetsService.destroy();
+    }
+
+    @Test
+    void refreshIfStaleRefreshesOncePerBurstOfWrites() {
+        // when
+        bookFacetsService.refreshIfStale(); // stale since startup
+        bookFacetsService.refreshIfStale();
+        bookFacetsService.markStale();
+        bookFacetsService.markStale();
+        bookFacetsService.refreshIfStale();
+
+        // then
+        verify(bookFacetsDao, times(2)).refreshBookFacets();
+    }
+
+    @Test
+    void failedRefreshIsRetried() {
+        // give
+        doThrow(new IllegalStateException("connection refused"))
+                .doNothing()
+                .when(bookFacetsDao).refreshBookFacets();
+
+        // when
+        bookFacetsService.refreshIfStale();
+        bookFacetsService.refreshIfStale();
+        bookFacetsService.refreshIfStale();
+
+        // then
+        verify(bookFacetsDao, times(2)).refreshBookFacets();
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.aml.service;
 
-import com.example.aml.config.BookConfig;
 import com.example.aml.dao.BookDataAccessService;
+import com.example.aml.dao.BookSearchDao;
+import com.example.aml.dao.query.BookQuery;
+import com.example.aml.dao.query.BookSortColumn;
+import com.example.aml.dao.query.SortingOrder;
+import com.example.aml.dto.BookBatchResultDTO;
 import com.example.aml.dto.BookDTO;
 import com.example.aml.mapper.BookDTOMapper;
 import com.example.aml.model.Book;
+import com.example.aml.model.BookPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,21 +17,30 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static com.example.aml.testUtils.BookTestConstants.PRIDE_AND_PREJUDICE;
 import static com.example.aml.testUtils.BookTestConstants.PRIDE_AND_PREJUDICE_DTO;
+import static com.example.aml.testUtils.BookTestConstants.SENSE_AND_SENSIBILITY;
+import static com.example.aml.testUtils.BookTestConstants.SENSE_AND_SENSIBILITY_DTO;
+import static com.example.aml.utility.BookConstants.MAX_PAGE_LIMIT;
+import static com.example.aml.utility.BookConstants.MISSING_IMAGE_ID;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /** Unit tests for {@link BookService} */
@@ -43,11 +57,27 @@ class BookServiceTest {
     @Mock
     private BookDTOMapper bookDTOMapper;
     @Mock
-    private BookConfig bookConfig;
+    private CoverFetchExecutor coverFetchExecutor;
+    @Mock
+    private CoverVariantService coverVariantService;
+    @Mock
+    private MissingCoverImage missingCoverImage;
+    @Mock
+    private BookFacetsService bookFacetsService;
+    @Mock
+    private BookSearchDao bookSearchDao;
 
     @BeforeEach
     void setUp() {
-        bookService = new BookService(bookDao, bookCoverService, bookDTOMapper, bookConfig);
+        bookService = new BookService(
+                bookDao,
+                bookCoverService,
+                bookDTOMapper,
+                coverFetchExecutor,
+                coverVariantService,
+                missingCoverImage,
+                bookFacetsService,
+                bookSearchDao);
     }
 
     // READ operations
@@ -67,6 +97,24 @@ class BookServiceTest {
         assertThat(bookIdCaptor.getValue()).isEqualTo(PRIDE_AND_PREJUDICE.getId());
     }
 
+    @Test
+    void getPictureIdForBookFallsBackToPlaceholder() {
+        //given: See class variable
+
+        //when
+        when(bookDao.selectBookById(PRIDE_AND_PREJUDICE.getId()))
+                .thenReturn(Optional.of(PRIDE_AND_PREJUDICE));
+        when(bookDao.selectBookById(SENSE_AND_SENSIBILITY.getId()))
+                .thenReturn(Optional.empty());
+        Optional<UUID> pictureId = bookService.getPictureIdForBook(PRIDE_AND_PREJUDICE.getId());
+        Optional<UUID> missingBookPictureId = bookService.getPictureIdForBook(SENSE_AND_SENSIBILITY.getId());
+
+        //then
+        assertThat(pictureId).hasValue(UUID.fromString(MISSING_IMAGE_ID));
+        assertThat(missingBookPictureId).isEmpty();
+        verify(bookDao, never()).getImageForBook(any(UUID.class));
+    }
+
     @Test
     void selectBookByIdTestNoBookFound() {
         //given: See class variable
@@ -180,26 +228,39 @@ class BookServiceTest {
         //give
         Map<String, String> params = Map.of(
                 "sort_by", "word_count",
-                "sorting_order", "ASC"
+                "sorting_order", "DESC"
         );
 
         //when
-        when(bookDao.selectBooks(anyList(), anyList())).thenReturn(List.of());
+        when(bookDao.selectBooks(any(BookQuery.class))).thenReturn(List.of());
         bookService.getBooks(
                 params);
 
         //then
-        ArgumentCaptor<ArrayList<String>> whereFiltersCaptor =
-                ArgumentCaptor.forClass(ArrayList.class);
-        ArgumentCaptor<ArrayList<String>> otherFiltersCaptor =
-                ArgumentCaptor.forClass(ArrayList.class);
-        verify(bookDao).selectBooks(
-                whereFiltersCaptor.capture(),
-                otherFiltersCaptor.capture());
-        assertThat(whereFiltersCaptor.getValue()).isEmpty();
-        assertThat(otherFiltersCaptor.getValue()).hasSize(1);
-        assertThat(otherFiltersCaptor.getValue().get(0))
-                .isEqualTo("ORDER BY word_count ASC");
+        ArgumentCaptor<BookQuery> queryCaptor = ArgumentCaptor.forClass(BookQuery.class);
+        verify(bookDao).selectBooks(queryCaptor.capture());
+        assertThat(queryCaptor.getValue().getWorkTitle()).isNull();
+        assertThat(queryCaptor.getValue().getPrimaryAuthor()).isNull();
+        assertThat(queryCaptor.getValue().getSortBy()).isEqualTo(BookSortColumn.WORD_COUNT);
+        assertThat(queryCaptor.getValue().getSortingOrder()).isEqualTo(SortingOrder.DESC);
+    }
+
+    @Test
+    void getBooksSortByUnknownColumnTest() {
+        //give
+        Map<String, String> params = Map.of(
+                "sort_by", "word_count; DROP TABLE book",
+                "sorting_order", "ASC"
+        );
+
+        //when
+        when(bookDao.selectBooks(any(BookQuery.class))).thenReturn(List.of());
+        bookService.getBooks(params);
+
+        //then
+        ArgumentCaptor<BookQuery> queryCaptor = ArgumentCaptor.forClass(BookQuery.class);
+        verify(bookDao).selectBooks(queryCaptor.capture());
+        assertThat(queryCaptor.getValue().getSortBy()).isNull();
     }
 
     @Test
@@ -213,23 +274,15 @@ class BookServiceTest {
         );
 
         //when
-        when(bookDao.selectBooks(anyList(), anyList())).thenReturn(List.of());
+        when(bookDao.selectBooks(any(BookQuery.class))).thenReturn(List.of());
         bookService.getBooks(params);
 
         //then
-        ArgumentCaptor<ArrayList<String>> whereFiltersCaptor =
-                ArgumentCaptor.forClass(ArrayList.class);
-        ArgumentCaptor<ArrayList<String>> otherFiltersCaptor =
-                ArgumentCaptor.forClass(ArrayList.class);
-        verify(bookDao).selectBooks(
-                whereFiltersCaptor.capture(),
-                otherFiltersCaptor.capture());
-        assertThat(otherFiltersCaptor.getValue()).isEmpty();
-        assertThat(whereFiltersCaptor.getValue()).hasSize(2);
-        assertThat(whereFiltersCaptor.getValue().get(0))
-                .isEqualTo(String.format("strpos(%s::citext, '%s'::citext) > 0", "primary_author", primaryAuthor));
-        assertThat(whereFiltersCaptor.getValue().get(1))
-                .isEqualTo(String.format("strpos(%s::citext, '%s'::citext) > 0", "work_title", workTitle));
+        ArgumentCaptor<BookQuery> queryCaptor = ArgumentCaptor.forClass(BookQuery.class);
+        verify(bookDao).selectBooks(queryCaptor.capture());
+        assertThat(queryCaptor.getValue().getSortBy()).isNull();
+        assertThat(queryCaptor.getValue().getPrimaryAuthor()).isEqualTo(primaryAuthor);
+        assertThat(queryCaptor.getValue().getWorkTitle()).isEqualTo(workTitle);
     }
 
     @Test
@@ -243,23 +296,14 @@ class BookServiceTest {
         );
 
         //when
-        when(bookDao.selectBooks(anyList(), anyList())).thenReturn(List.of());
+        when(bookDao.selectBooks(any(BookQuery.class))).thenReturn(List.of());
         bookService.getBooks(params);
 
         //then
-        ArgumentCaptor<ArrayList<String>> whereFiltersCaptor =
-                ArgumentCaptor.forClass(ArrayList.class);
-        ArgumentCaptor<ArrayList<String>> otherFiltersCaptor =
-                ArgumentCaptor.forClass(ArrayList.class);
-        verify(bookDao).selectBooks(
-                whereFiltersCaptor.capture(),
-                otherFiltersCaptor.capture());
-        assertThat(otherFiltersCaptor.getValue()).isEmpty();
-        assertThat(whereFiltersCaptor.getValue()).hasSize(2);
-        assertThat(whereFiltersCaptor.getValue().get(0))
-                .isEqualTo(String.format("strpos(%s::citext, '%s'::citext) > 0", "primary_author", "’’’’’’’’’’’’"));
-        assertThat(whereFiltersCaptor.getValue().get(1))
-                .isEqualTo(String.format("strpos(%s::citext, '%s'::citext) > 0", "work_title", "’’’’’’"));
+        ArgumentCaptor<BookQuery> queryCaptor = ArgumentCaptor.forClass(BookQuery.class);
+        verify(bookDao).selectBooks(queryCaptor.capture());
+        assertThat(queryCaptor.getValue().getPrimaryAuthor()).isEqualTo("’’’’’’’’’’’’");
+        assertThat(queryCaptor.getValue().getWorkTitle()).isEqualTo("’’’’’’");
     }
 
     @Test
@@ -273,23 +317,36 @@ class BookServiceTest {
         );
 
         //when
-        when(bookDao.selectBooks(anyList(), anyList())).thenReturn(List.of());
+        when(bookDao.selectBooks(any(BookQuery.class))).thenReturn(List.of());
         bookService.getBooks(params);
 
         //then
-        ArgumentCaptor<ArrayList<String>> whereFiltersCaptor =
-                ArgumentCaptor.forClass(ArrayList.class);
-        ArgumentCaptor<ArrayList<String>> otherFiltersCaptor =
-                ArgumentCaptor.forClass(ArrayList.class);
-        verify(bookDao).selectBooks(
-                whereFiltersCaptor.capture(),
-                otherFiltersCaptor.capture());
-        assertThat(otherFiltersCaptor.getValue()).isEmpty();
-        assertThat(whereFiltersCaptor.getValue()).hasSize(2);
-        assertThat(whereFiltersCaptor.getValue().get(0))
-                .isEqualTo(String.format("%s %s %s", "word_count", "<=", maxWordCount));
-        assertThat(whereFiltersCaptor.getValue().get(1))
-                .isEqualTo(String.format("%s %s %s", "year_published", ">=", minYearPublished));
+        ArgumentCaptor<BookQuery> queryCaptor = ArgumentCaptor.forClass(BookQuery.class);
+        verify(bookDao).selectBooks(queryCaptor.capture());
+        assertThat(queryCaptor.getValue().getWordCountUpperLimit()).isEqualTo(50000);
+        assertThat(queryCaptor.getValue().getYearPublishedLowerLimit()).isEqualTo(1800);
+        assertThat(queryCaptor.getValue().getWordCountLowerLimit()).isNull();
+        assertThat(queryCaptor.getValue().getYearPublishedUpperLimit()).isNull();
+    }
+
+    @Test
+    void getBooksGenreTest() {
+        //give
+        Map<String, String> params = Map.of(
+                "genre", "Classic",
+                "genres_all", "Romance, Classic",
+                "genres_any", "Science%20Fiction,,Fantasy"
+        );
+
+        //when
+        when(bookDao.selectBooks(any(BookQuery.class))).thenReturn(List.of());
+        bookService.getBooks(params);
+
+        //then
+        ArgumentCaptor<BookQuery> queryCaptor = ArgumentCaptor.forClass(BookQuery.class);
+        verify(bookDao).selectBooks(queryCaptor.capture());
+        assertThat(queryCaptor.getValue().getGenresAll()).containsExactly("Classic", "Romance");
+        assertThat(queryCaptor.getValue().getGenresAny()).containsExactly("Science Fiction", "Fantasy");
     }
 
     @Test
@@ -303,19 +360,74 @@ class BookServiceTest {
             );
 
             //when
-            when(bookDao.selectBooks(anyList(), anyList())).thenReturn(List.of());
+            when(bookDao.selectBooks(any(BookQuery.class))).thenReturn(List.of());
             bookService.getBooks(params);
 
             //then
-            ArgumentCaptor<ArrayList<String>> whereFiltersCaptor =
-                    ArgumentCaptor.forClass(ArrayList.class);
-            ArgumentCaptor<ArrayList<String>> otherFiltersCaptor =
-                    ArgumentCaptor.forClass(ArrayList.class);
-            verify(bookDao).selectBooks(
-                    whereFiltersCaptor.capture(),
-                    otherFiltersCaptor.capture());
-            assertThat(otherFiltersCaptor.getValue()).isEmpty();
-            assertThat(whereFiltersCaptor.getValue()).isEmpty();
+            ArgumentCaptor<BookQuery> queryCaptor = ArgumentCaptor.forClass(BookQuery.class);
+            verify(bookDao).selectBooks(queryCaptor.capture());
+            assertThat(queryCaptor.getValue().getWordCountUpperLimit()).isNull();
+            assertThat(queryCaptor.getValue().getYearPublishedLowerLimit()).isNull();
+    }
+
+    @Test
+    void getBookPageClampsLimitTest() {
+        //give
+        Map<String, String> params = Map.of(
+                "limit", "1000000",
+                "sort_by", "work_title"
+        );
+
+        //when
+        when(bookDao.selectBookPage(any(BookQuery.class))).thenReturn(new BookPage<>(List.of(), null));
+        bookService.getBookPage(params);
+
+        //then
+        ArgumentCaptor<BookQuery> queryCaptor = ArgumentCaptor.forClass(BookQuery.class);
+        verify(bookDao).selectBookPage(queryCaptor.capture());
+        assertThat(queryCaptor.getValue().getLimit()).isEqualTo(MAX_PAGE_LIMIT);
+        assertThat(queryCaptor.getValue().getSortBy()).isEqualTo(BookSortColumn.WORK_TITLE);
+        assertThat(queryCaptor.getValue().getAfter()).isNull();
+    }
+
+    @Test
+    void searchBooksPassesTermsFiltersAndLimitTest() {
+        //give
+        Map<String, String> params = Map.of(
+                "q", "pride prejudice",
+                "primary_author", "austen",
+                "limit", "20"
+        );
+
+        //when
+        when(bookSearchDao.searchBooks(any(BookQuery.class), anyString(), isNull(), anyInt()))
+                .thenReturn(new BookPage<>(List.of(), null));
+        bookService.searchBooks(params);
+
+        //then
+        ArgumentCaptor<BookQuery> queryCaptor = ArgumentCaptor.forClass(BookQuery.class);
+        verify(bookSearchDao).searchBooks(queryCaptor.capture(), eq("pride prejudice"), isNull(), eq(20));
+        assertThat(queryCaptor.getValue().getPrimaryAuthor()).isEqualTo("austen");
+    }
+
+    @Test
+    void searchBooksRequiresTermsTest() {
+        assertThatThrownBy(() -> bookService.searchBooks(Map.of("q", " ")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bookService.searchBooks(Map.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(bookSearchDao);
+    }
+
+    @Test
+    void getBookPageInvalidLimitTest() {
+        assertThatThrownBy(() -> bookService.getBookPage(Map.of("limit", "0")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bookService.getBookPage(Map.of("limit", "ten")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bookService.getBookPage(Map.of("next", "garbage")))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(bookDao, never()).selectBookPage(any(BookQuery.class));
     }
 
     @Test
@@ -324,7 +436,7 @@ class BookServiceTest {
 
         //when
         when(bookDao.getImageForBook(any(UUID.class)))
-                .thenReturn(null);
+                .thenReturn(Optional.empty());
         bookService.getImageForBook(PRIDE_AND_PREJUDICE.getId());
 
         //then
@@ -346,6 +458,17 @@ class BookServiceTest {
         ArgumentCaptor<UUID> bookIdCaptor = ArgumentCaptor.forClass(UUID.class);
         verify(bookDao).deleteBookById(bookIdCaptor.capture());
         assertThat(bookIdCaptor.getValue()).isEqualTo(PRIDE_AND_PREJUDICE.getId());
+        verify(bookFacetsService).markStale();
+    }
+
+    @Test
+    void deleteBookByIdTestNothingDeletedKeepsFacets() {
+        //when
+        when(bookDao.deleteBookById(any(UUID.class))).thenReturn(0);
+        bookService.deleteBookById(PRIDE_AND_PREJUDICE.getId());
+
+        //then
+        verify(bookFacetsService, never()).markStale();
     }
 
     // UPDATE operations
@@ -439,6 +562,61 @@ class BookServiceTest {
         assertThat(bookIdCaptor.getValue()).isEqualTo(PRIDE_AND_PREJUDICE.getId());
         assertThat(byteArrayCaptor.getValue()[0]).isEqualTo((byte)0xe0);
         assertThat(byteArrayCaptor.getValue()[1]).isEqualTo((byte)0x4f);
+        verify(coverVariantService).generateVariants(PRIDE_AND_PREJUDICE.getId());
+    }
+
+    @Test
+    void addBooksTest() {
+        //give
+        BookDTO invalid = new BookDTO(null, " ", "Nobody", 0, 0, null);
+        List<BookDTO> books = Arrays.asList(
+                SENSE_AND_SENSIBILITY_DTO, PRIDE_AND_PREJUDICE_DTO, invalid, SENSE_AND_SENSIBILITY_DTO, null);
+
+        //when
+        when(bookDao.selectExistingTitleAuthorPairs(anyList()))
+                .thenReturn(Set.of(Map.entry(PRIDE_AND_PREJUDICE.getWorkTitle(), PRIDE_AND_PREJUDICE.getPrimaryAuthor())));
+        when(bookDao.insertBooks(anyList())).thenReturn(new int[]{1});
+        List<BookBatchResultDTO> results = bookService.addBooks(books);
+
+        //then
+        assertThat(results).extracting(BookBatchResultDTO::getStatus).containsExactly(
+                BookBatchResultDTO.Status.INSERTED,
+                BookBatchResultDTO.Status.DUPLICATE,
+                BookBatchResultDTO.Status.INVALID,
+                BookBatchResultDTO.Status.DUPLICATE,
+                BookBatchResultDTO.Status.INVALID);
+        assertThat(results).extracting(BookBatchResultDTO::getIndex).containsExactly(0, 1, 2, 3, 4);
+        assertThat(results.get(0).getId()).isNotNull();
+        ArgumentCaptor<List<Book>> insertedCaptor = ArgumentCaptor.forClass(List.class);
+        verify(bookDao).insertBooks(insertedCaptor.capture());
+        assertThat(insertedCaptor.getValue()).extracting(Book::getWorkTitle)
+                .containsExactly(SENSE_AND_SENSIBILITY.getWorkTitle());
+        verify(bookDao).selectExistingTitleAuthorPairs(List.of(
+                Map.entry(SENSE_AND_SENSIBILITY.getWorkTitle(), SENSE_AND_SENSIBILITY.getPrimaryAuthor()),
+                Map.entry(PRIDE_AND_PREJUDICE.getWorkTitle(), PRIDE_AND_PREJUDICE.getPrimaryAuthor())));
+    }
+
+    @Test
+    void addBooksTestCaseVariantInBatchIsDuplicate() {
+        //give
+        BookDTO upperCased = new BookDTO(null,
+                SENSE_AND_SENSIBILITY_DTO.getWorkTitle().toUpperCase(),
+                SENSE_AND_SENSIBILITY_DTO.getPrimaryAuthor().toLowerCase(),
+                SENSE_AND_SENSIBILITY_DTO.getYearPublished(),
+                SENSE_AND_SENSIBILITY_DTO.getWordCount(),
+                null);
+
+        //when
+        when(bookDao.selectExistingTitleAuthorPairs(anyList())).thenReturn(Set.of());
+        when(bookDao.insertBooks(anyList())).thenReturn(new int[]{1});
+        List<BookBatchResultDTO> results = bookService.addBooks(List.of(SENSE_AND_SENSIBILITY_DTO, upperCased));
+
+        //then
+        assertThat(results).extracting(BookBatchResultDTO::getStatus).containsExactly(
+                BookBatchResultDTO.Status.INSERTED,
+                BookBatchResultDTO.Status.DUPLICATE);
+        verify(bookDao).selectExistingTitleAuthorPairs(List.of(
+                Map.entry(SENSE_AND_SENSIBILITY.getWorkTitle(), SENSE_AND_SENSIBILITY.getPrimaryAuthor())));
     }
 
     @Test
@@ -446,13 +624,14 @@ class BookServiceTest {
         //give
 
         //when
-        when(bookDao.selectBookByNameAndAuthor(anyString(), anyString()))
-                .thenReturn(Optional.of(PRIDE_AND_PREJUDICE));
+        when(bookDao.insertBook(any(UUID.class), any(Book.class)))
+                .thenReturn(0);
         int result = bookService.addBook(PRIDE_AND_PREJUDICE_DTO);
 
         //then
         assertThat(result).isZero();
-        verify(bookDao, never()).insertBook(any(Book.class));
+        verify(bookDao, never()).selectBookByNameAndAuthor(anyString(), anyString());
+        verify(coverFetchExecutor, never()).execute(any(Runnable.class));
     }
 
     @Test
@@ -460,8 +639,6 @@ class BookServiceTest {
         //give
 
         //when
-        when(bookDao.selectBookByNameAndAuthor(anyString(), anyString()))
-                .thenReturn(Optional.empty());
         when(bookDao.insertBook(any(UUID.class), any(Book.class)))
                 .thenReturn(1);
         int result = bookService.addBook(PRIDE_AND_PREJUDICE_DTO);
@@ -477,4 +654,25 @@ class BookServiceTest {
         assertThat(bookCaptor.getValue().getYearPublished()).isEqualTo(PRIDE_AND_PREJUDICE.getYearPublished());
     }
 
+    @Test
+    void addBookTestFetchesCoverOnExecutor() {
+        //give
+        byte[] cover = {1, 2, 3};
+
+        //when
+        when(bookDao.insertBook(any(UUID.class), any(Book.class)))
+                .thenReturn(1);
+        when(bookCoverService.getBookCoverURL(anyString(), anyString()))
+                .thenReturn(Optional.of(cover));
+        bookService.addBook(PRIDE_AND_PREJUDICE_DTO);
+
+        //then
+        ArgumentCaptor<Runnable> coverLookupCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(coverFetchExecutor).execute(coverLookupCaptor.capture());
+        verify(bookCoverService, never()).getBookCoverURL(anyString(), anyString());
+        coverLookupCaptor.getValue().run();
+        ArgumentCaptor<UUID> bookIdCaptor = ArgumentCaptor.forClass(UUID.class);
+        verify(bookDao).insertBook(bookIdCaptor.capture(), any(Book.class));
+        verify(bookDao).insertImage(bookIdCaptor.getValue(), cover);
+    }
 }
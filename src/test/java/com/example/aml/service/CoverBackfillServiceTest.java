@@ -0,0 +1,142 @@
+package com.example.aml.service;
+
+import com.example.aml.dao.BookDao;
+import com.example.aml.dao.BookDataAccessService;
+import com.example.aml.model.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.aml.testUtils.BookTestConstants.PRIDE_AND_PREJUDICE;
+import static com.example.aml.testUtils.BookTestConstants.SENSE_AND_SENSIBILITY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Unit tests for {@link CoverBackfillService} */
+@ExtendWith(MockitoExtension.class)
+class CoverBackfillServiceTest {
+
+    private CoverBackfillService coverBackfillService;
+
+    @Mock
+    private BookDataAccessService bookDao;
+    @Mock
+    private BookDao catalogDao;
+    @Mock
+    private BookCoverService bookCoverService;
+    @Mock
+    private CoverVariantService coverVariantService;
+
+    @BeforeEach
+    void setUp() {
+        coverBackfillService = new CoverBackfillService(
+                bookDao, catalogDao, bookCoverService, coverVariantService, 2, 2, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        coverBackfillService.destroy();
+    }
+
+    @Test
+    void backfillWalksEveryPageAndWritesCoversPerBatch() throws InterruptedException {
+        // give
+        byte[] cover = {1, 2, 3};
+        Book emma = book("Emma");
+        when(bookDao.selectBooksWithoutCover(isNull(), eq(2)))
+                .thenReturn(List.of(PRIDE_AND_PREJUDICE, SENSE_AND_SENSIBILITY));
+        when(bookDao.selectBooksWithoutCover(eq(SENSE_AND_SENSIBILITY.getId()), eq(2)))
+                .thenReturn(List.of(emma));
+        when(bookDao.selectBooksWithoutCover(eq(emma.getId()), eq(2)))
+                .thenReturn(List.of());
+        when(bookCoverService.getBookCoverURL(anyString(), anyString()))
+                .thenReturn(Optional.empty());
+        when(bookCoverService.getBookCoverURL(PRIDE_AND_PREJUDICE.getWorkTitle(), PRIDE_AND_PREJUDICE.getPrimaryAuthor()))
+                .thenReturn(Optional.of(cover));
+        when(catalogDao.insertImages(anyMap())).thenAnswer(invocation -> ((Map<?, ?>) invocation.getArgument(0)).size());
+
+        // when
+        coverBackfillService.start(false);
+        CoverBackfillStatus status = awaitFinished();
+
+        // then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<UUID, byte[]>> coversCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(catalogDao, times(2)).insertImages(coversCaptor.capture());
+        assertThat(coversCaptor.getAllValues().get(0)).containsOnlyKeys(PRIDE_AND_PREJUDICE.getId());
+        assertThat(coversCaptor.getAllValues().get(1)).isEmpty();
+        verify(coverVariantService).generateVariants(PRIDE_AND_PREJUDICE.getId());
+        assertThat(status.getState()).isEqualTo(CoverBackfillStatus.State.COMPLETED);
+        assertThat(status.getBooksScanned()).isEqualTo(3);
+        assertThat(status.getCoversAdded()).isEqualTo(1);
+        assertThat(status.getCoversNotFound()).isEqualTo(2);
+        assertThat(status.getLastBookId()).isEqualTo(emma.getId());
+    }
+
+    @Test
+    void stoppedBackfillResumesAfterLastFinishedBook() throws InterruptedException {
+        // give
+        CountDownLatch firstPageRead = new CountDownLatch(1);
+        CountDownLatch stopIssued = new CountDownLatch(1);
+        when(bookDao.selectBooksWithoutCover(eq(PRIDE_AND_PREJUDICE.getId()), anyInt()))
+                .thenReturn(List.of());
+        when(bookDao.selectBooksWithoutCover(isNull(), anyInt()))
+                .thenAnswer(invocation -> {
+                    firstPageRead.countDown();
+                    stopIssued.await(5, TimeUnit.SECONDS);
+                    return List.of(PRIDE_AND_PREJUDICE);
+                });
+
+        // when
+        coverBackfillService.start(false);
+        assertThat(firstPageRead.await(5, TimeUnit.SECONDS)).isTrue();
+        CoverBackfillStatus stopping = coverBackfillService.stop();
+        stopIssued.countDown();
+        CoverBackfillStatus stopped = awaitFinished();
+        coverBackfillService.start(true);
+        CoverBackfillStatus resumed = awaitFinished();
+
+        // then
+        assertThat(stopping.getState()).isEqualTo(CoverBackfillStatus.State.STOPPING);
+        assertThat(stopped.getState()).isEqualTo(CoverBackfillStatus.State.STOPPED);
+        assertThat(stopped.getLastBookId()).isNull();
+        assertThat(resumed.getState()).isEqualTo(CoverBackfillStatus.State.COMPLETED);
+        assertThat(resumed.getBooksScanned()).isEqualTo(1);
+        assertThat(resumed.getLastBookId()).isEqualTo(PRIDE_AND_PREJUDICE.getId());
+    }
+
+    private CoverBackfillStatus awaitFinished() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        CoverBackfillStatus status = coverBackfillService.getStatus();
+        while ((status.getState() == CoverBackfillStatus.State.RUNNING
+                || status.getState() == CoverBackfillStatus.State.STOPPING)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = coverBackfillService.getStatus();
+        }
+        return status;
+    }
+
+    private static Book book(String workTitle) {
+        return new Book(UUID.randomUUID(), workTitle, "Jane Austen", 1815, 160996, null, new Date(), new Date(), null);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.aml.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Unit tests for {@link CoverFetchExecutor} */
+class CoverFetchExecutorTest {
+
+    private final CoverFetchExecutor coverFetchExecutor = new CoverFetchExecutor(1, 1, Duration.ofSeconds(5), false);
+
+    @AfterEach
+    void tearDown() {
+        coverFetchExecutor.destroy();
+    }
+
+    @Test
+    void fullQueueDropsLookupsInsteadOfThrowing() throws InterruptedException {
+        // give
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+        Runnable blockingLookup = () -> {
+            started.countDown();
+            await(release);
+            finished.countDown();
+        };
+
+        // when
+        coverFetchExecutor.execute(blockingLookup);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        coverFetchExecutor.execute(finished::countDown);
+        coverFetchExecutor.execute(finished::countDown);
+        CoverFetchStatistics whileBusy = coverFetchExecutor.getStatistics();
+        release.countDown();
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // then
+        assertThat(whileBusy.getActiveTasks()).isEqualTo(1);
+        assertThat(whileBusy.getQueueDepth()).isEqualTo(1);
+        assertThat(whileBusy.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    void failedLookupsAreCountedSeparately() throws InterruptedException {
+        // give
+        CountDownLatch finished = new CountDownLatch(1);
+
+        // when
+        coverFetchExecutor.execute(() -> {
+            throw new IllegalStateException("cover API is down");
+        });
+        coverFetchExecutor.execute(finished::countDown);
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        coverFetchExecutor.destroy();
+        CoverFetchStatistics statistics = coverFetchExecutor.getStatistics();
+
+        // then
+        assertThat(statistics.getFailed()).isEqualTo(1);
+        assertThat(statistics.getCompleted()).isEqualTo(1);
+        assertThat(statistics.getRejected()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.aml.service;
+
+import com.example.aml.dao.BookDataAccessService;
+import com.example.aml.model.ImageVariant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Unit tests for {@link CoverVariantService} */
+@ExtendWith(MockitoExtension.class)
+class CoverVariantServiceTest {
+
+    private CoverVariantService coverVariantService;
+
+    @Mock
+    private BookDataAccessService bookDao;
+
+    @BeforeEach
+    void setUp() {
+        coverVariantService = new CoverVariantService(bookDao, List.of(64, 128, 320), 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        coverVariantService.destroy();
+    }
+
+    @Test
+    void resizeKeepsAspectRatioAndSkipsWidthsWiderThanTheOriginal() throws IOException {
+        // give
+        byte[] original = encode(new BufferedImage(200, 300, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+        // when
+        List<ImageVariant> variants = coverVariantService.resize(original);
+
+        // then
+        assertThat(variants).extracting(ImageVariant::getWidth).containsExactly(64, 128);
+        assertThat(variants).extracting(ImageVariant::getContentType).containsOnly("image/jpeg");
+        BufferedImage small = decode(variants.get(0).getPicture());
+        assertThat(small.getWidth()).isEqualTo(64);
+        assertThat(small.getHeight()).isEqualTo(96);
+    }
+
+    @Test
+    void resizeKeepsTransparentCoversAsPng() throws IOException {
+        // give
+        byte[] original = encode(new BufferedImage(400, 400, BufferedImage.TYPE_INT_ARGB), "png");
+
+        // when
+        List<ImageVariant> variants = coverVariantService.resize(original);
+
+        // then
+        assertThat(variants).extracting(ImageVariant::getContentType).containsOnly("image/png");
+        assertThat(decode(variants.get(2).getPicture()).getColorModel().hasAlpha()).isTrue();
+    }
+
+    @Test
+    void resizeSkipsImagesItCannotRead() {
+        // when
+        List<ImageVariant> variants = coverVariantService.resize(new byte[]{'R', 'I', 'F', 'F', 0, 0, 0, 0});
+
+        // then
+        assertThat(variants).isEmpty();
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, format, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static BufferedImage decode(byte[] bytes) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(bytes));
+    }
+}
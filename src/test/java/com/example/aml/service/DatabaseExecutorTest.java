@@ -0,0 +1,119 @@
+package com.example.aml.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Unit tests for {@link DatabaseExecutor} */
+class DatabaseExecutorTest {
+
+    // One query thread, one lookup thread, one queued task per lane
+    private final DatabaseExecutor databaseExecutor = new DatabaseExecutor(2, 1, 1, Duration.ofMillis(500));
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        databaseExecutor.destroy();
+    }
+
+    @Test
+    void lookupsDoNotWaitForBusyQueryLane() throws Exception {
+        // give
+        CountDownLatch started = new CountDownLatch(1);
+        databaseExecutor.query(() -> {
+            started.countDown();
+            return await(release);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when
+        CompletableFuture<String> lookup = databaseExecutor.lookup(() -> "found");
+
+        // then
+        assertThat(lookup.get(1, TimeUnit.SECONDS)).isEqualTo("found");
+    }
+
+    @Test
+    void fullQueueFailsTheRequestInsteadOfBlocking() throws InterruptedException {
+        // give
+        CountDownLatch started = new CountDownLatch(1);
+        databaseExecutor.query(() -> {
+            started.countDown();
+            return await(release);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        databaseExecutor.query(() -> "queued");
+
+        // when
+        CompletableFuture<String> rejected = databaseExecutor.query(() -> "rejected");
+
+        // then
+        assertThat(rejected).isCompletedExceptionally();
+        assertThatThrownBy(rejected::get).hasCauseInstanceOf(TaskRejectedException.class);
+    }
+
+    @Test
+    void requestsTimeOutAndQueuedWorkIsSkipped() throws InterruptedException {
+        // give
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> running = databaseExecutor.query(() -> {
+            started.countDown();
+            return await(release);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        CompletableFuture<String> queued = databaseExecutor.query(() -> {
+            queuedRan.set(true);
+            return "queued";
+        });
+
+        // when
+        assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TimeoutException.class);
+        release.countDown();
+        String next = null;
+        while (next == null) {
+            // the queue only frees up once the blocked task has returned
+            next = databaseExecutor.query(() -> "next").exceptionally(e -> null).join();
+        }
+
+        // then
+        assertThatThrownBy(() -> running.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TimeoutException.class);
+        assertThat(next).isEqualTo("next");
+        assertThat(queuedRan).isFalse();
+    }
+
+    @Test
+    void failuresCompleteTheFutureExceptionally() {
+        // when
+        CompletableFuture<String> failed = databaseExecutor.lookup(() -> {
+            throw new IllegalArgumentException("Malformed page token");
+        });
+
+        // then
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "released";
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.aml.service;
+
+import com.example.aml.dao.BookDataAccessService;
+import com.example.aml.model.AssociatedImage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.example.aml.utility.BookConstants.MISSING_IMAGE_ID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Unit tests for {@link MissingCoverImage} */
+@ExtendWith(MockitoExtension.class)
+class MissingCoverImageTest {
+
+    @Mock
+    private BookDataAccessService bookDao;
+
+    @Test
+    void placeholderIsReadOnceAndServedFromMemory() {
+        // give
+        AssociatedImage placeholder = new AssociatedImage(UUID.fromString(MISSING_IMAGE_ID), new byte[]{1}, "image/png");
+        when(bookDao.getPictureById(UUID.fromString(MISSING_IMAGE_ID))).thenReturn(Optional.of(placeholder));
+        MissingCoverImage missingCoverImage = new MissingCoverImage(bookDao, Duration.ofMinutes(1));
+
+        // when
+        Optional<AssociatedImage> first = missingCoverImage.get();
+        Optional<AssociatedImage> second = missingCoverImage.get();
+
+        // then
+        assertThat(first).containsSame(placeholder);
+        assertThat(second).containsSame(placeholder);
+        verify(bookDao).getPictureById(UUID.fromString(MISSING_IMAGE_ID));
+    }
+
+    @Test
+    void missingPlaceholderRowIsRememberedForTheRetryInterval() {
+        // give
+        when(bookDao.getPictureById(UUID.fromString(MISSING_IMAGE_ID))).thenReturn(Optional.empty());
+        MissingCoverImage missingCoverImage = new MissingCoverImage(bookDao, Duration.ofMinutes(1));
+
+        // when
+        missingCoverImage.get();
+        Optional<AssociatedImage> second = missingCoverImage.get();
+
+        // then
+        assertThat(second).isEmpty();
+        verify(bookDao).getPictureById(UUID.fromString(MISSING_IMAGE_ID));
+    }
+
+    @Test
+    void placeholderRowAddedAfterAMissIsPickedUp() {
+        // give
+        AssociatedImage placeholder = new AssociatedImage(UUID.fromString(MISSING_IMAGE_ID), new byte[]{1}, "image/png");
+        when(bookDao.getPictureById(UUID.fromString(MISSING_IMAGE_ID)))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(placeholder));
+        MissingCoverImage missingCoverImage = new MissingCoverImage(bookDao, Duration.ZERO);
+
+        // when
+        Optional<AssociatedImage> first = missingCoverImage.get();
+        Optional<AssociatedImage> second = missingCoverImage.get();
+        Optional<AssociatedImage> third = missingCoverImage.get();
+
+        // then
+        assertThat(first).isEmpty();
+        assertThat(second).containsSame(placeholder);
+        assertThat(third).containsSame(placeholder);
+        verify(bookDao, times(2)).getPictureById(UUID.fromString(MISSING_IMAGE_ID));
+    }
+}
@@ -1,3 +1,7 @@
 DROP TABLE book;
 
-DROP TABLE PICTURES;
+DROP TABLE picture_variants;
+
+DROP TABLE pictures;
+
+DROP TABLE book_cover_lookup;
@@ -1,6 +1,17 @@
-create table PICTURES (
+create table pictures (
     id uuid not null constraint pictures_pk primary key,
-    picture bytea
+    picture bytea,
+    content_type VARCHAR(100),
+    byte_length INT
+);
+
+CREATE TABLE picture_variants (
+    picture_id uuid NOT NULL REFERENCES pictures ON DELETE CASCADE,
+    width INT NOT NULL,
+    picture bytea NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    byte_length INT NOT NULL,
+    CONSTRAINT picture_variants_pk PRIMARY KEY (picture_id, width)
 );
 
 CREATE TABLE book (
@@ -9,9 +20,23 @@ CREATE TABLE book (
     primary_author VARCHAR2(100) NOT NULL,
     year_published INT,
     word_count INT,
-    picture_id uuid constraint book_pictures_id_fk references PICTURES,
+    picture_id uuid constraint book_pictures_id_fk references pictures,
     created_at timestamp not null,
     updated_at timestamp not null,
-    genres VARCHAR ARRAY
+    genres VARCHAR ARRAY,
+    -- H2 can't index expressions, so V3's unique index on (lower(work_title), lower(primary_author)) goes through generated columns
+    work_title_key VARCHAR2(100) GENERATED ALWAYS AS (LOWER(work_title)),
+    primary_author_key VARCHAR2(100) GENERATED ALWAYS AS (LOWER(primary_author)),
+    CONSTRAINT book_title_author_uidx UNIQUE (work_title_key, primary_author_key)
 );
 
+
+CREATE TABLE book_cover_lookup (
+    work_title_key VARCHAR NOT NULL,
+    primary_author_key VARCHAR NOT NULL,
+    cover_url VARCHAR,
+    image_sha256 VARCHAR(64),
+    looked_up_at timestamp not null,
+    expires_at timestamp not null,
+    CONSTRAINT book_cover_lookup_pk PRIMARY KEY (work_title_key, primary_author_key)
+);